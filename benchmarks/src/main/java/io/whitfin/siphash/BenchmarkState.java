@@ -0,0 +1,122 @@
+package io.whitfin.siphash;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Shared benchmark state containing input data and keys.
+ *
+ * Every suite sweeps the same input sizes and compression rounds, so the
+ * parameters live here rather than being repeated on each benchmark.
+ */
+@State(Scope.Thread)
+public class BenchmarkState {
+
+    /**
+     * The number of distinct keys to cycle through for per-call keys.
+     */
+    static final int KEY_COUNT = 1024;
+
+    /**
+     * The size of the input data, in bytes.
+     */
+    @Param({ "0", "8", "64", "1024", "4096", "65536", "1048576" })
+    public int size;
+
+    /**
+     * The rounds of compression to use, formatted as "c-d".
+     */
+    @Param({ "2-4", "1-3" })
+    public String rounds;
+
+    /**
+     * The rounds of C compression, parsed from {@link #rounds}.
+     */
+    int c;
+
+    /**
+     * The rounds of D compression, parsed from {@link #rounds}.
+     */
+    int d;
+
+    /**
+     * The input data being hashed.
+     */
+    byte[] data;
+
+    /**
+     * The input data as an ASCII string of the same length.
+     */
+    String text;
+
+    /**
+     * The key used when a key is re-used across calls.
+     */
+    byte[] key;
+
+    /**
+     * A pool of keys used when a key is provided per call.
+     */
+    byte[][] keys;
+
+    /**
+     * A container seeded with {@link #key}.
+     */
+    SipHasherContainer container;
+
+    /**
+     * A stream created from {@link #container}, reset before each use.
+     */
+    SipHasherStream stream;
+
+    /**
+     * The index of the next key to use from {@link #keys}.
+     */
+    private int next;
+
+    /**
+     * Initializes all input data and keys from a fixed seed.
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(0xC0FFEE);
+
+        String[] split = this.rounds.split("-");
+        this.c = Integer.parseInt(split[0]);
+        this.d = Integer.parseInt(split[1]);
+
+        this.data = new byte[this.size];
+        random.nextBytes(this.data);
+
+        char[] chars = new char[this.size];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) (32 + (this.data[i] & 0x3f));
+        }
+        this.text = new String(chars);
+
+        this.key = new byte[16];
+        random.nextBytes(this.key);
+
+        this.keys = new byte[KEY_COUNT][16];
+        for (byte[] k : this.keys) {
+            random.nextBytes(k);
+        }
+
+        this.container = SipHasher.container(this.key);
+        this.stream = this.container.stream(this.c, this.d);
+    }
+
+    /**
+     * Retrieves the next key from the key pool.
+     *
+     * @return
+     *      a key which differs from the previous call.
+     */
+    byte[] nextKey() {
+        return this.keys[this.next++ & (KEY_COUNT - 1)];
+    }
+}
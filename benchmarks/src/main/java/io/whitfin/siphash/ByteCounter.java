@@ -0,0 +1,30 @@
+package io.whitfin.siphash;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Auxiliary counter to report hashed bytes alongside operations.
+ *
+ * With an output time unit of nanoseconds, the throughput reported for
+ * this counter is bytes per nanosecond, which is equivalent to GB/s.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class ByteCounter {
+
+    /**
+     * The number of bytes hashed during the iteration.
+     */
+    public long bytes;
+
+    /**
+     * Resets the counter at the start of each iteration.
+     */
+    @Setup
+    public void reset() {
+        this.bytes = 0;
+    }
+}
@@ -0,0 +1,65 @@
+package io.whitfin.siphash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the {@link HalfSipHasher} implementations, for comparison
+ * against the equivalent {@link SipHasherContainerBenchmark} results.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HalfSipHasherBenchmark {
+
+    /**
+     * State containing a container seeded from the benchmark key.
+     */
+    @State(Scope.Thread)
+    public static class ContainerState {
+
+        /**
+         * A container seeded with the first 8 bytes of the benchmark key.
+         */
+        HalfSipHasherContainer container;
+
+        /**
+         * Initializes the container from the shared benchmark state.
+         */
+        @Setup
+        public void setup(BenchmarkState state) {
+            this.container = HalfSipHasher.container(Arrays.copyOf(state.key, 8));
+        }
+    }
+
+    /**
+     * Hashes the input to a 32-bit output using a container.
+     */
+    @Benchmark
+    public int hash(BenchmarkState state, ContainerState half, ByteCounter counter) {
+        counter.bytes += state.size;
+        return half.container.hash(state.data, state.c, state.d);
+    }
+
+    /**
+     * Hashes the input to a 64-bit output using a container.
+     */
+    @Benchmark
+    public long hash64(BenchmarkState state, ContainerState half, ByteCounter counter) {
+        counter.bytes += state.size;
+        return half.container.hash64(state.data, state.c, state.d);
+    }
+}
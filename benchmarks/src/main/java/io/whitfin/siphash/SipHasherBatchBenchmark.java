@@ -0,0 +1,138 @@
+package io.whitfin.siphash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for batch hashing via {@link SipHasherContainer}.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SipHasherBatchBenchmark {
+
+    /**
+     * Hashes each input in turn using a plain loop.
+     */
+    @Benchmark
+    public long[] loop(BatchState state, ByteCounter counter) {
+        counter.bytes += state.bytes;
+        byte[][] inputs = state.inputs;
+        long[] out = state.out;
+        for (int i = 0; i < inputs.length; i++) {
+            out[i] = state.container.hash(inputs[i]);
+        }
+        return out;
+    }
+
+    /**
+     * Hashes all inputs using the batch implementation.
+     */
+    @Benchmark
+    public long[] hashAll(BatchState state, ByteCounter counter) {
+        counter.bytes += state.bytes;
+        return state.container.hashAll(state.inputs, state.out);
+    }
+
+    /**
+     * Hashes all slices of a packed array using the batch implementation.
+     */
+    @Benchmark
+    public long[] hashAllSlices(BatchState state, ByteCounter counter) {
+        counter.bytes += state.bytes;
+        return state.container.hashAll(state.data, state.offsets, state.lengths, state.out);
+    }
+
+    /**
+     * State containing a batch of small inputs.
+     */
+    @State(Scope.Thread)
+    public static class BatchState {
+
+        /**
+         * The number of inputs in each batch.
+         */
+        static final int COUNT = 1024;
+
+        /**
+         * The size of each input, in bytes.
+         */
+        @Param({ "8", "16", "32", "64" })
+        public int size;
+
+        /**
+         * The inputs being hashed, as separate arrays.
+         */
+        byte[][] inputs;
+
+        /**
+         * The inputs being hashed, packed into a single array.
+         */
+        byte[] data;
+
+        /**
+         * The index of each input within {@link #data}.
+         */
+        int[] offsets;
+
+        /**
+         * The length of each input within {@link #data}.
+         */
+        int[] lengths;
+
+        /**
+         * The array to write all hashes into.
+         */
+        long[] out;
+
+        /**
+         * The total number of bytes in a batch.
+         */
+        long bytes;
+
+        /**
+         * A container seeded with a random key.
+         */
+        SipHasherContainer container;
+
+        /**
+         * Initializes all inputs from a fixed seed.
+         */
+        @Setup
+        public void setup() {
+            Random random = new Random(0xC0FFEE);
+
+            this.inputs = new byte[COUNT][this.size];
+            this.data = new byte[COUNT * this.size];
+            this.offsets = new int[COUNT];
+            this.lengths = new int[COUNT];
+            this.out = new long[COUNT];
+            this.bytes = (long) COUNT * this.size;
+
+            for (int i = 0; i < COUNT; i++) {
+                random.nextBytes(this.inputs[i]);
+                System.arraycopy(this.inputs[i], 0, this.data, i * this.size, this.size);
+                this.offsets[i] = i * this.size;
+                this.lengths[i] = this.size;
+            }
+
+            byte[] key = new byte[16];
+            random.nextBytes(key);
+            this.container = SipHasher.container(key);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package io.whitfin.siphash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the zero-allocation {@link SipHasher} implementation.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SipHasherBenchmark {
+
+    /**
+     * Hashes the input using the same key on every call.
+     */
+    @Benchmark
+    public long reusedKey(BenchmarkState state, ByteCounter counter) {
+        counter.bytes += state.size;
+        return SipHasher.hash(state.key, state.data, state.c, state.d);
+    }
+
+    /**
+     * Hashes the input using a different key on every call.
+     */
+    @Benchmark
+    public long perCallKey(BenchmarkState state, ByteCounter counter) {
+        counter.bytes += state.size;
+        return SipHasher.hash(state.nextKey(), state.data, state.c, state.d);
+    }
+}
@@ -0,0 +1,40 @@
+package io.whitfin.siphash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the {@link SipHasherContainer} implementation.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SipHasherContainerBenchmark {
+
+    /**
+     * Hashes the input using a container created once up front.
+     */
+    @Benchmark
+    public long reusedKey(BenchmarkState state, ByteCounter counter) {
+        counter.bytes += state.size;
+        return state.container.hash(state.data, state.c, state.d);
+    }
+
+    /**
+     * Hashes the input using a container created on every call.
+     */
+    @Benchmark
+    public long perCallKey(BenchmarkState state, ByteCounter counter) {
+        counter.bytes += state.size;
+        return SipHasher.container(state.nextKey()).hash(state.data, state.c, state.d);
+    }
+}
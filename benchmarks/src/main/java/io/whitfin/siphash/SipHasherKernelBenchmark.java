@@ -0,0 +1,53 @@
+package io.whitfin.siphash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks comparing the unrolled kernels against the generic round loops.
+ *
+ * Both benchmarks use the rounds from {@link BenchmarkState#rounds}; the
+ * unrolled benchmark goes through the same dispatch as the public API.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SipHasherKernelBenchmark {
+
+    /**
+     * Hashes the input using the unrolled kernel for the requested rounds.
+     */
+    @Benchmark
+    public long unrolled(BenchmarkState state, ByteCounter counter) {
+        counter.bytes += state.size;
+        return SipHasher.hash(
+            state.c, state.d,
+            SipHasher.INITIAL_V0, SipHasher.INITIAL_V1,
+            SipHasher.INITIAL_V2, SipHasher.INITIAL_V3,
+            state.data, 0, state.size
+        );
+    }
+
+    /**
+     * Hashes the input using the generic round loops.
+     */
+    @Benchmark
+    public long generic(BenchmarkState state, ByteCounter counter) {
+        counter.bytes += state.size;
+        return SipHasher.hashGeneric(
+            state.c, state.d,
+            SipHasher.INITIAL_V0, SipHasher.INITIAL_V1,
+            SipHasher.INITIAL_V2, SipHasher.INITIAL_V3,
+            state.data, 0, state.size
+        );
+    }
+}
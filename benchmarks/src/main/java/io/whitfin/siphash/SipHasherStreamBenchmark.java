@@ -0,0 +1,58 @@
+package io.whitfin.siphash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the {@link SipHasherStream} implementation.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SipHasherStreamBenchmark {
+
+    /**
+     * Streams the input in a single update, using the same key on every call.
+     */
+    @Benchmark
+    public long reusedKey(BenchmarkState state, ByteCounter counter) {
+        counter.bytes += state.size;
+        return SipHasher.init(state.key, state.c, state.d).update(state.data).digest();
+    }
+
+    /**
+     * Streams the input in a single update, using a different key on every call.
+     */
+    @Benchmark
+    public long perCallKey(BenchmarkState state, ByteCounter counter) {
+        counter.bytes += state.size;
+        return SipHasher.init(state.nextKey(), state.c, state.d).update(state.data).digest();
+    }
+
+    /**
+     * Streams the input in a single update, resetting a single stream per call.
+     */
+    @Benchmark
+    public long resetStream(BenchmarkState state, ByteCounter counter) {
+        counter.bytes += state.size;
+        return state.stream.reset().update(state.data).digest();
+    }
+
+    /**
+     * Streams the input in a single update, creating a stream from a container.
+     */
+    @Benchmark
+    public long containerStream(BenchmarkState state, ByteCounter counter) {
+        counter.bytes += state.size;
+        return state.container.stream(state.c, state.d).update(state.data).digest();
+    }
+}
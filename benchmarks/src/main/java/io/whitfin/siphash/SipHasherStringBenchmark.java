@@ -0,0 +1,50 @@
+package io.whitfin.siphash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for hashing strings via {@link SipHasherContainer}.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SipHasherStringBenchmark {
+
+    /**
+     * Hashes the string by encoding it to a temporary array.
+     */
+    @Benchmark
+    public long getBytes(BenchmarkState state, ByteCounter counter) {
+        counter.bytes += state.size;
+        return state.container.hash(state.text.getBytes(StandardCharsets.UTF_8), state.c, state.d);
+    }
+
+    /**
+     * Hashes the string by encoding it directly into the hash state.
+     */
+    @Benchmark
+    public long utf8(BenchmarkState state, ByteCounter counter) {
+        counter.bytes += state.size;
+        return state.container.hashUtf8(state.text, state.c, state.d);
+    }
+
+    /**
+     * Hashes the raw characters of the string without encoding.
+     */
+    @Benchmark
+    public long chars(BenchmarkState state, ByteCounter counter) {
+        counter.bytes += state.size;
+        return state.container.hashChars(state.text, state.c, state.d);
+    }
+}
@@ -0,0 +1,124 @@
+package io.whitfin.siphash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the {@link SipTreeHasher} implementation.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SipTreeHasherBenchmark {
+
+    /**
+     * Hashes the input sequentially as a baseline.
+     */
+    @Benchmark
+    public long sequential(TreeState state) {
+        return SipHasher.hash(state.key, state.data);
+    }
+
+    /**
+     * Hashes the input as a tree on the shared pool.
+     */
+    @Benchmark
+    public long tree(TreeState state) {
+        return state.tree.hash(state.data);
+    }
+
+    /**
+     * Hashes the input as a tree from a memory mapped file.
+     *
+     * Leaves are hashed directly from the mapped buffer, so this should keep
+     * pace with {@link #tree(TreeState)} once the file is in the page cache.
+     */
+    @Benchmark
+    public long treeFile(TreeState state) throws IOException {
+        return state.tree.hashFile(state.path);
+    }
+
+    /**
+     * State containing a large input to hash.
+     */
+    @State(Scope.Benchmark)
+    public static class TreeState {
+
+        /**
+         * The size of the input data, in MiB.
+         */
+        @Param({ "16", "256" })
+        public int size;
+
+        /**
+         * The size of each chunk, in bytes.
+         */
+        @Param({ "1048576" })
+        public int chunkSize;
+
+        /**
+         * The input data being hashed.
+         */
+        byte[] data;
+
+        /**
+         * A temporary file containing {@link #data}.
+         */
+        Path path;
+
+        /**
+         * The key used for all hashes.
+         */
+        byte[] key;
+
+        /**
+         * A tree hasher seeded with {@link #key}.
+         */
+        SipTreeHasher tree;
+
+        /**
+         * Initializes the input data and key from a fixed seed.
+         */
+        @Setup
+        public void setup() throws IOException {
+            Random random = new Random(0xC0FFEE);
+
+            this.data = new byte[this.size << 20];
+            random.nextBytes(this.data);
+
+            this.path = Files.createTempFile("siphash", ".bin");
+            Files.write(this.path, this.data);
+
+            this.key = new byte[16];
+            random.nextBytes(this.key);
+
+            this.tree = SipHasher.tree(this.key, this.chunkSize);
+        }
+
+        /**
+         * Removes the temporary file containing the input data.
+         */
+        @TearDown
+        public void teardown() throws IOException {
+            Files.delete(this.path);
+        }
+    }
+}
@@ -0,0 +1,647 @@
+package io.whitfin.siphash;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static io.whitfin.siphash.SipHashMap.UTF_8;
+
+/**
+ * Concurrent hash map keyed on byte sequences, resistant to hash flooding.
+ *
+ * This is the concurrent equivalent of {@link SipHashMap}, with the same key
+ * semantics: keys are arrays of bytes or character sequences (as UTF-8), and
+ * are hashed using SipHash-1-3 with a random key generated for every map.
+ *
+ * The map is split into a power of two number of segments, each of which is
+ * an open addressing table guarded by its own lock. The high bits of the hash
+ * of a key select the segment, and the low bits select the slot within the
+ * segment table, so the two are independent. Writes only lock the segment
+ * of their key, and each segment resizes independently of the others.
+ *
+ * Reads never lock. Within a table a key is never moved or replaced once
+ * written, and is published after its hash and value, so a reader which
+ * sees a key always sees the matching hash. Removal clears the value of an
+ * entry rather than the key, which keeps probe sequences intact for readers;
+ * cleared entries are dropped when the segment is next rebuilt. As such,
+ * null values are not permitted, and a null return always means absence.
+ *
+ * As with {@link java.util.concurrent.ConcurrentHashMap}, the size of the
+ * map is only a snapshot while writes are taking place.
+ *
+ * @param <V>
+ *      the type of the values stored in the map.
+ */
+public final class ConcurrentSipHashMap<V> {
+
+    /**
+     * The default number of entries a map can hold without resizing.
+     */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The default number of segments, and so concurrent writers.
+     */
+    public static final int DEFAULT_CONCURRENCY = 64;
+
+    /**
+     * The largest number of segments in a map.
+     */
+    private static final int MAXIMUM_SEGMENTS = 1 << 16;
+
+    /**
+     * The largest number of slots in a segment table.
+     */
+    private static final int MAXIMUM_SLOTS = 1 << 30;
+
+    /**
+     * The container used to hash all keys of this map.
+     */
+    private final SipHasherContainer container;
+
+    /**
+     * The segments of the map, indexed by the high bits of the hash.
+     */
+    private final Segment<V>[] segments;
+
+    /**
+     * The shift applied to a hash to find its segment.
+     */
+    private final int segmentShift;
+
+    /**
+     * Initializes an empty map with the default capacity and concurrency.
+     */
+    public ConcurrentSipHashMap() {
+        this(DEFAULT_CAPACITY, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Initializes an empty map able to hold a number of entries.
+     *
+     * @param capacity
+     *      the number of entries to hold before resizing.
+     * @param concurrency
+     *      the number of concurrent writers to allow for, which is
+     *      rounded up to a power of two of at least 2.
+     * @throws IllegalArgumentException
+     *      if the capacity is negative, or the concurrency is not positive.
+     */
+    public ConcurrentSipHashMap(int capacity, int concurrency) {
+        this(capacity, concurrency, SipHashMap.RandomKey.next());
+    }
+
+    /**
+     * Initializes an empty map using a specific key.
+     *
+     * @param capacity
+     *      the number of entries to hold before resizing.
+     * @param concurrency
+     *      the number of concurrent writers to allow for.
+     * @param key
+     *      the key used to hash all keys of the map.
+     * @throws IllegalArgumentException
+     *      if the capacity is negative, or the concurrency is not positive.
+     */
+    @SuppressWarnings("unchecked")
+    ConcurrentSipHashMap(int capacity, int concurrency, byte[] key) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative!");
+        }
+
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency must be positive!");
+        }
+
+        int count = Math.max(2, Integer.highestOneBit(Math.min(concurrency, MAXIMUM_SEGMENTS) * 2 - 1));
+        int slots = slots((capacity + count - 1) / count);
+
+        this.container = SipHasher.container(key);
+        this.segments = (Segment<V>[]) new Segment<?>[count];
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(count);
+
+        for (int i = 0; i < count; i++) {
+            this.segments[i] = new Segment<>(slots);
+        }
+    }
+
+    /**
+     * Retrieves the number of entries in the map.
+     *
+     * @return
+     *      the number of entries.
+     */
+    public final int size() {
+        long size = 0;
+        for (Segment<V> segment : this.segments) {
+            size += segment.count;
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Determines whether the map is empty.
+     *
+     * @return
+     *      true if the map contains no entries.
+     */
+    public final boolean isEmpty() {
+        for (Segment<V> segment : this.segments) {
+            if (segment.count != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether the map contains a key.
+     *
+     * @param key
+     *      the key to look up.
+     * @return
+     *      true if the key is present in the map.
+     */
+    public final boolean containsKey(byte[] key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Determines whether the map contains a key.
+     *
+     * @param key
+     *      the key to look up, as UTF-8.
+     * @return
+     *      true if the key is present in the map.
+     */
+    public final boolean containsKey(CharSequence key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Retrieves the value associated with a key, without locking.
+     *
+     * @param key
+     *      the key to look up.
+     * @return
+     *      the associated value, or null if the key is not present.
+     */
+    public final V get(byte[] key) {
+        long hash = hash(key);
+        return segment(hash).get(key, hash);
+    }
+
+    /**
+     * Retrieves the value associated with a key, without locking.
+     *
+     * @param key
+     *      the key to look up, as UTF-8.
+     * @return
+     *      the associated value, or null if the key is not present.
+     */
+    public final V get(CharSequence key) {
+        long hash = hash(key);
+        return segment(hash).get(key, hash);
+    }
+
+    /**
+     * Associates a value with a key, replacing any existing value.
+     *
+     * @param key
+     *      the key to insert, which is copied.
+     * @param value
+     *      the value to associate with the key.
+     * @return
+     *      the previous value, or null if the key was not present.
+     */
+    public final V put(byte[] key, V value) {
+        long hash = hash(key);
+        return segment(hash).put(key, hash, value, false);
+    }
+
+    /**
+     * Associates a value with a key, replacing any existing value.
+     *
+     * @param key
+     *      the key to insert, which is stored as UTF-8.
+     * @param value
+     *      the value to associate with the key.
+     * @return
+     *      the previous value, or null if the key was not present.
+     */
+    public final V put(CharSequence key, V value) {
+        long hash = hash(key);
+        return segment(hash).put(key, hash, value, false);
+    }
+
+    /**
+     * Associates a value with a key, unless the key is already present.
+     *
+     * @param key
+     *      the key to insert, which is copied.
+     * @param value
+     *      the value to associate with the key.
+     * @return
+     *      the existing value, or null if the value was inserted.
+     */
+    public final V putIfAbsent(byte[] key, V value) {
+        long hash = hash(key);
+        return segment(hash).put(key, hash, value, true);
+    }
+
+    /**
+     * Associates a value with a key, unless the key is already present.
+     *
+     * @param key
+     *      the key to insert, which is stored as UTF-8.
+     * @param value
+     *      the value to associate with the key.
+     * @return
+     *      the existing value, or null if the value was inserted.
+     */
+    public final V putIfAbsent(CharSequence key, V value) {
+        long hash = hash(key);
+        return segment(hash).put(key, hash, value, true);
+    }
+
+    /**
+     * Removes a key and its associated value.
+     *
+     * @param key
+     *      the key to remove.
+     * @return
+     *      the removed value, or null if the key was not present.
+     */
+    public final V remove(byte[] key) {
+        long hash = hash(key);
+        return segment(hash).remove(key, hash);
+    }
+
+    /**
+     * Removes a key and its associated value.
+     *
+     * @param key
+     *      the key to remove, as UTF-8.
+     * @return
+     *      the removed value, or null if the key was not present.
+     */
+    public final V remove(CharSequence key) {
+        long hash = hash(key);
+        return segment(hash).remove(key, hash);
+    }
+
+    /**
+     * Removes all entries from the map.
+     *
+     * Each segment is cleared in turn, so entries inserted concurrently
+     * may remain once this returns.
+     */
+    public final void clear() {
+        for (Segment<V> segment : this.segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Hashes a key of bytes.
+     *
+     * @param key
+     *      the key to hash.
+     * @return
+     *      the hash of the key.
+     */
+    private long hash(byte[] key) {
+        return this.container.hash(key, 1, 3);
+    }
+
+    /**
+     * Hashes a key of characters, as UTF-8.
+     *
+     * @param key
+     *      the key to hash.
+     * @return
+     *      the hash of the key.
+     */
+    private long hash(CharSequence key) {
+        return this.container.hashUtf8(key, 1, 3);
+    }
+
+    /**
+     * Retrieves the segment for a hash, using the high bits of the hash.
+     *
+     * @param hash
+     *      the hash of a key.
+     * @return
+     *      the {@link Segment} containing the key.
+     */
+    private Segment<V> segment(long hash) {
+        return this.segments[(int) (hash >>> this.segmentShift)];
+    }
+
+    /**
+     * Calculates the number of slots required to hold a number of entries.
+     *
+     * @param capacity
+     *      the number of entries to hold.
+     * @return
+     *      the number of slots, as a power of two.
+     */
+    private static int slots(int capacity) {
+        if (capacity >= MAXIMUM_SLOTS / 2) {
+            return MAXIMUM_SLOTS;
+        }
+        return Math.max(2, Integer.highestOneBit(capacity * 2 - 1) << 1);
+    }
+
+    /**
+     * Determines whether a key matches a stored key.
+     *
+     * @param key
+     *      the key being looked up, as bytes or characters.
+     * @param stored
+     *      the key stored in the table.
+     * @return
+     *      true if the keys are equal.
+     */
+    private static boolean matches(Object key, byte[] stored) {
+        return key instanceof byte[]
+            ? Arrays.equals((byte[]) key, stored)
+            : SipHashMap.equals((CharSequence) key, stored);
+    }
+
+    /**
+     * Open addressing table of a segment, replaced as a whole on resize.
+     */
+    private static final class Table {
+
+        /**
+         * The hash of each key, written before the key is published.
+         */
+        private final long[] hashes;
+
+        /**
+         * The key in each slot, or null if the slot has never been used.
+         */
+        private final AtomicReferenceArray<byte[]> keys;
+
+        /**
+         * The value in each slot, or null if the key has been removed.
+         */
+        private final AtomicReferenceArray<Object> values;
+
+        /**
+         * The number of used slots allowed before the table is rebuilt.
+         */
+        private final int threshold;
+
+        /**
+         * Initializes an empty table with a number of slots.
+         *
+         * @param slots
+         *      the number of slots, as a power of two.
+         */
+        Table(int slots) {
+            this.hashes = new long[slots];
+            this.keys = new AtomicReferenceArray<>(slots);
+            this.values = new AtomicReferenceArray<>(slots);
+            this.threshold = slots / 2;
+        }
+
+        /**
+         * Locates the slot holding a key, or the empty slot ending its probe.
+         *
+         * @param key
+         *      the key to locate, as bytes or characters.
+         * @param hash
+         *      the hash of the key.
+         * @return
+         *      the slot holding the key, or the empty slot where it belongs.
+         */
+        int find(Object key, long hash) {
+            int mask = this.hashes.length - 1;
+            for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+                byte[] k = this.keys.get(i);
+                if (k == null || (this.hashes[i] == hash && matches(key, k))) {
+                    return i;
+                }
+            }
+        }
+
+        /**
+         * Writes an entry into a slot, publishing the key last.
+         *
+         * @param index
+         *      the empty slot to write.
+         * @param hash
+         *      the hash of the key.
+         * @param key
+         *      the key to write.
+         * @param value
+         *      the value to write.
+         */
+        void write(int index, long hash, byte[] key, Object value) {
+            this.hashes[index] = hash;
+            this.values.set(index, value);
+            this.keys.set(index, key);
+        }
+    }
+
+    /**
+     * Segment of the map, holding a table guarded by its own lock.
+     *
+     * @param <V>
+     *      the type of the values stored in the segment.
+     */
+    private static final class Segment<V> extends ReentrantLock {
+
+        /**
+         * Serialization version, as required by {@link ReentrantLock}.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The current table, replaced when rebuilt.
+         */
+        private volatile Table table;
+
+        /**
+         * The number of entries in the segment.
+         */
+        private volatile int count;
+
+        /**
+         * The number of used slots in the table, including removed entries.
+         */
+        private int used;
+
+        /**
+         * Initializes a segment with a number of slots.
+         *
+         * @param slots
+         *      the number of slots, as a power of two.
+         */
+        Segment(int slots) {
+            this.table = new Table(slots);
+        }
+
+        /**
+         * Retrieves the value associated with a key, without locking.
+         *
+         * @param key
+         *      the key to look up, as bytes or characters.
+         * @param hash
+         *      the hash of the key.
+         * @return
+         *      the associated value, or null if the key is not present.
+         */
+        @SuppressWarnings("unchecked")
+        V get(Object key, long hash) {
+            Table table = this.table;
+            int index = table.find(key, hash);
+            return table.keys.get(index) == null ? null : (V) table.values.get(index);
+        }
+
+        /**
+         * Associates a value with a key under the segment lock.
+         *
+         * @param key
+         *      the key to insert, as bytes or characters.
+         * @param hash
+         *      the hash of the key.
+         * @param value
+         *      the value to associate with the key.
+         * @param absent
+         *      whether to only insert if the key is not present.
+         * @return
+         *      the previous value, or null if the key was not present.
+         */
+        @SuppressWarnings("unchecked")
+        V put(Object key, long hash, V value, boolean absent) {
+            if (value == null) {
+                throw new NullPointerException("Value must not be null!");
+            }
+
+            lock();
+            try {
+                Table table = this.table;
+                int index = table.find(key, hash);
+
+                if (table.keys.get(index) != null) {
+                    V previous = (V) table.values.get(index);
+                    if (previous == null) {
+                        this.count++;
+                    }
+                    if (previous == null || !absent) {
+                        table.values.set(index, value);
+                    }
+                    return previous;
+                }
+
+                if (this.used >= table.threshold) {
+                    table = rebuild(table);
+                    index = table.find(key, hash);
+                }
+
+                byte[] bytes = key instanceof byte[]
+                    ? ((byte[]) key).clone()
+                    : key.toString().getBytes(UTF_8);
+
+                table.write(index, hash, bytes, value);
+
+                this.used++;
+                this.count++;
+
+                return null;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Removes a key under the segment lock.
+         *
+         * The key stays in its slot, so that concurrent readers probing past
+         * the slot are unaffected; only the value is cleared.
+         *
+         * @param key
+         *      the key to remove, as bytes or characters.
+         * @param hash
+         *      the hash of the key.
+         * @return
+         *      the removed value, or null if the key was not present.
+         */
+        @SuppressWarnings("unchecked")
+        V remove(Object key, long hash) {
+            lock();
+            try {
+                Table table = this.table;
+                int index = table.find(key, hash);
+
+                if (table.keys.get(index) == null) {
+                    return null;
+                }
+
+                V previous = (V) table.values.getAndSet(index, null);
+                if (previous != null) {
+                    this.count--;
+                }
+                return previous;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Removes all entries under the segment lock.
+         */
+        void clear() {
+            lock();
+            try {
+                this.table = new Table(this.table.hashes.length);
+                this.used = 0;
+                this.count = 0;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Rebuilds a full table without its removed entries.
+         *
+         * The table doubles in size if at least half of the used slots are
+         * live, otherwise it's rebuilt at the same size. Entries are placed
+         * using their stored hash, and the new table is published once it's
+         * complete, so readers of the old table are unaffected.
+         *
+         * @param table
+         *      the current table of the segment.
+         * @return
+         *      the new table of the segment.
+         * @throws IllegalStateException
+         *      if the table cannot grow any further.
+         */
+        private Table rebuild(Table table) {
+            int slots = table.hashes.length;
+            if (this.count >= table.threshold / 2) {
+                if (slots == MAXIMUM_SLOTS) {
+                    throw new IllegalStateException("Segment cannot grow beyond 2^29 entries!");
+                }
+                slots *= 2;
+            }
+
+            Table rebuilt = new Table(slots);
+            for (int i = 0; i < table.hashes.length; i++) {
+                byte[] key = table.keys.get(i);
+                Object value = table.values.get(i);
+                if (key != null && value != null) {
+                    rebuilt.write(rebuilt.find(key, table.hashes[i]), table.hashes[i], key, value);
+                }
+            }
+
+            this.table = rebuilt;
+            this.used = this.count;
+
+            return rebuilt;
+        }
+    }
+}
@@ -0,0 +1,925 @@
+package io.whitfin.siphash;
+
+/**
+ * Provides hashing for the HalfSipHash family.
+ *
+ * HalfSipHash is a variant of SipHash operating on 32-bit words with a 64-bit
+ * key, producing either a 32-bit or a 64-bit output. It's cheaper than SipHash
+ * for short inputs, at the cost of a smaller security margin, which makes it a
+ * good fit for hash tables which only need 32-bit hashes.
+ *
+ * This class mirrors {@link SipHasher}, offering a zero-allocation algorithm via
+ * {@link #hash(byte[], byte[])}, containers for single-key environments via
+ * {@link #container(byte[])}, and a streaming algorithm via {@link #init(byte[])}.
+ * The 64-bit output is available through {@link #hash64(byte[], byte[])} and the
+ * equivalent container and streaming methods. HalfSipHash-2-4 is used by default,
+ * although any rounds can be provided (such as HalfSipHash-1-3).
+ */
+public final class HalfSipHasher {
+
+    /**
+     * Initial value for the v0 magic number.
+     */
+    static final int INITIAL_V0 = 0;
+
+    /**
+     * Initial value for the v1 magic number.
+     */
+    static final int INITIAL_V1 = 0;
+
+    /**
+     * Initial value for the v2 magic number.
+     */
+    static final int INITIAL_V2 = 0x6c796765;
+
+    /**
+     * Initial value for the v3 magic number.
+     */
+    static final int INITIAL_V3 = 0x74656462;
+
+    /**
+     * Creates a new container, seeded with the provided key.
+     *
+     * @param key
+     *      the key bytes used to seed the container.
+     * @return
+     *      a {@link HalfSipHasherContainer} instance after initialization.
+     */
+    public static HalfSipHasherContainer container(byte[] key) {
+        return new HalfSipHasherContainer(key);
+    }
+
+    /**
+     * Hashes a data input for a given key, producing a 32-bit output.
+     *
+     * This will used the default values for C and D rounds.
+     *
+     * @param key
+     *      the key to seed the hash with.
+     * @param data
+     *      the input data to hash.
+     * @return
+     *      an int value as the output of the hash.
+     */
+    public static int hash(byte[] key, byte[] data) {
+        return hash(key, data, SipHasher.DEFAULT_C, SipHasher.DEFAULT_D);
+    }
+
+    /**
+     * Hashes a data input for a given key, using the provided rounds
+     * of compression and producing a 32-bit output.
+     *
+     * @param key
+     *      the key to seed the hash with.
+     * @param data
+     *      the input data to hash.
+     * @param c
+     *      the number of C rounds of compression
+     * @param d
+     *      the number of D rounds of compression.
+     * @return
+     *      an int value as the output of the hash.
+     */
+    public static int hash(byte[] key, byte[] data, int c, int d) {
+        return (int) hash(key, data, c, d, false);
+    }
+
+    /**
+     * Hashes a data input for a given key, producing a 64-bit output.
+     *
+     * This will used the default values for C and D rounds.
+     *
+     * @param key
+     *      the key to seed the hash with.
+     * @param data
+     *      the input data to hash.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public static long hash64(byte[] key, byte[] data) {
+        return hash64(key, data, SipHasher.DEFAULT_C, SipHasher.DEFAULT_D);
+    }
+
+    /**
+     * Hashes a data input for a given key, using the provided rounds
+     * of compression and producing a 64-bit output.
+     *
+     * The first 4 bytes of the reference output are stored in the lower
+     * 32 bits of the result, so the result is the reference output read
+     * as a little endian long.
+     *
+     * @param key
+     *      the key to seed the hash with.
+     * @param data
+     *      the input data to hash.
+     * @param c
+     *      the number of C rounds of compression
+     * @param d
+     *      the number of D rounds of compression.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public static long hash64(byte[] key, byte[] data, int c, int d) {
+        return hash(key, data, c, d, true);
+    }
+
+    /**
+     * Initializes a streaming hash with a 32-bit output, seeded with
+     * the given key.
+     *
+     * This will used the default values for C and D rounds.
+     *
+     * @param key
+     *      the key to seed the hash with.
+     * @return
+     *      a {@link HalfSipHasherStream} instance to update and digest.
+     */
+    public static HalfSipHasherStream init(byte[] key) {
+        return init(key, SipHasher.DEFAULT_C, SipHasher.DEFAULT_D);
+    }
+
+    /**
+     * Initializes a streaming hash with a 32-bit output, seeded with
+     * the given key and desired rounds of compression.
+     *
+     * @param key
+     *      the key to seed the hash with.
+     * @param c
+     *      the number of C rounds of compression
+     * @param d
+     *      the number of D rounds of compression.
+     * @return
+     *      a {@link HalfSipHasherStream} instance to update and digest.
+     */
+    public static HalfSipHasherStream init(byte[] key, int c, int d) {
+        return new HalfSipHasherStream(key, c, d, false);
+    }
+
+    /**
+     * Initializes a streaming hash with a 64-bit output, seeded with
+     * the given key.
+     *
+     * This will used the default values for C and D rounds.
+     *
+     * @param key
+     *      the key to seed the hash with.
+     * @return
+     *      a {@link HalfSipHasherStream} instance to update and digest.
+     */
+    public static HalfSipHasherStream init64(byte[] key) {
+        return init64(key, SipHasher.DEFAULT_C, SipHasher.DEFAULT_D);
+    }
+
+    /**
+     * Initializes a streaming hash with a 64-bit output, seeded with
+     * the given key and desired rounds of compression.
+     *
+     * Streams created via this method must be finalized using the
+     * {@link HalfSipHasherStream#digest64()} method.
+     *
+     * @param key
+     *      the key to seed the hash with.
+     * @param c
+     *      the number of C rounds of compression
+     * @param d
+     *      the number of D rounds of compression.
+     * @return
+     *      a {@link HalfSipHasherStream} instance to update and digest.
+     */
+    public static HalfSipHasherStream init64(byte[] key, int c, int d) {
+        return new HalfSipHasherStream(key, c, d, true);
+    }
+
+    /**
+     * Converts a chunk of 4 bytes to a number in little endian.
+     *
+     * @param bytes
+     *      the byte array containing our bytes to convert.
+     * @param offset
+     *      the index to start at when chunking bytes.
+     * @return
+     *      an int representation, in little endian.
+     */
+    static int bytesToInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff)
+            | (bytes[offset + 1] & 0xff) << 8
+            | (bytes[offset + 2] & 0xff) << 16
+            | (bytes[offset + 3] & 0xff) << 24;
+    }
+
+    /**
+     * Validates a key and hashes a data input with either output size.
+     *
+     * @param key
+     *      the key to seed the hash with.
+     * @param data
+     *      the input data to hash.
+     * @param c
+     *      the number of C rounds of compression
+     * @param d
+     *      the number of D rounds of compression.
+     * @param wide
+     *      whether to produce a 64-bit output.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    private static long hash(byte[] key, byte[] data, int c, int d, boolean wide) {
+        if (key.length != 8) {
+            throw new IllegalArgumentException("Key must be exactly 8 bytes!");
+        }
+
+        int k0 = bytesToInt(key, 0);
+        int k1 = bytesToInt(key, 4);
+
+        return hash(
+            c, d,
+            INITIAL_V0 ^ k0,
+            INITIAL_V1 ^ k1,
+            INITIAL_V2 ^ k0,
+            INITIAL_V3 ^ k1,
+            data, 0, data.length,
+            wide
+        );
+    }
+
+    /**
+     * Internal 0A hashing implementation.
+     *
+     * Requires initial state being manually provided (to avoid allocation). The
+     * compression rounds must also be provided, as nothing will be validated in
+     * this layer (such as defaults).
+     *
+     * The common HalfSipHash-2-4 and HalfSipHash-1-3 variants are routed to
+     * unrolled implementations, with all other rounds using {@link #hashGeneric}.
+     *
+     * @param c
+     *      the rounds of C compression to apply.
+     * @param d
+     *      the rounds of D compression to apply.
+     * @param v0
+     *      the seeded initial value of v0.
+     * @param v1
+     *      the seeded initial value of v1.
+     * @param v2
+     *      the seeded initial value of v2.
+     * @param v3
+     *      the seeded initial value of v3.
+     * @param data
+     *      the input data to hash using the HalfSipHash algorithm.
+     * @param offset
+     *      the index of the first byte to hash.
+     * @param length
+     *      the number of bytes to hash.
+     * @param wide
+     *      whether to produce a 64-bit output.
+     * @return
+     *      the output of the hash, in the lower 32 bits unless wide.
+     */
+    static long hash(int c, int d, int v0, int v1, int v2, int v3, byte[] data, int offset, int length, boolean wide) {
+        if (c == 2 && d == 4) {
+            return hash24(v0, v1, v2, v3, data, offset, length, wide);
+        }
+        if (c == 1 && d == 3) {
+            return hash13(v0, v1, v2, v3, data, offset, length, wide);
+        }
+        return hashGeneric(c, d, v0, v1, v2, v3, data, offset, length, wide);
+    }
+
+    /**
+     * Internal 0A hashing implementation for HalfSipHash-2-4.
+     *
+     * This is identical to {@link #hashGeneric} with C and D fixed, but has
+     * all rounds written out to avoid any loop overhead in the hot path.
+     *
+     * @param v0
+     *      the seeded initial value of v0.
+     * @param v1
+     *      the seeded initial value of v1.
+     * @param v2
+     *      the seeded initial value of v2.
+     * @param v3
+     *      the seeded initial value of v3.
+     * @param data
+     *      the input data to hash using the HalfSipHash algorithm.
+     * @param offset
+     *      the index of the first byte to hash.
+     * @param length
+     *      the number of bytes to hash.
+     * @param wide
+     *      whether to produce a 64-bit output.
+     * @return
+     *      the output of the hash, in the lower 32 bits unless wide.
+     */
+    static long hash24(int v0, int v1, int v2, int v3, byte[] data, int offset, int length, boolean wide) {
+        int m;
+        int last = offset + length / 4 * 4;
+        int i = offset;
+
+        if (wide) {
+            v1 ^= 0xee;
+        }
+
+        while (i < last) {
+            m = bytesToInt(data, i);
+            i += 4;
+
+            v3 ^= m;
+
+            v0 += v1;
+            v1 = Integer.rotateLeft(v1, 5);
+            v1 ^= v0;
+            v0 = Integer.rotateLeft(v0, 16);
+
+            v2 += v3;
+            v3 = Integer.rotateLeft(v3, 8);
+            v3 ^= v2;
+
+            v0 += v3;
+            v3 = Integer.rotateLeft(v3, 7);
+            v3 ^= v0;
+
+            v2 += v1;
+            v1 = Integer.rotateLeft(v1, 13);
+            v1 ^= v2;
+            v2 = Integer.rotateLeft(v2, 16);
+
+            v0 += v1;
+            v1 = Integer.rotateLeft(v1, 5);
+            v1 ^= v0;
+            v0 = Integer.rotateLeft(v0, 16);
+
+            v2 += v3;
+            v3 = Integer.rotateLeft(v3, 8);
+            v3 ^= v2;
+
+            v0 += v3;
+            v3 = Integer.rotateLeft(v3, 7);
+            v3 ^= v0;
+
+            v2 += v1;
+            v1 = Integer.rotateLeft(v1, 13);
+            v1 ^= v2;
+            v2 = Integer.rotateLeft(v2, 16);
+
+            v0 ^= m;
+        }
+
+        m = 0;
+        for (i = offset + length - 1; i >= last; --i) {
+            m <<= 8;
+            m |= (data[i] & 0xff);
+        }
+        m |= length << 24;
+
+        v3 ^= m;
+
+        v0 += v1;
+        v1 = Integer.rotateLeft(v1, 5);
+        v1 ^= v0;
+        v0 = Integer.rotateLeft(v0, 16);
+
+        v2 += v3;
+        v3 = Integer.rotateLeft(v3, 8);
+        v3 ^= v2;
+
+        v0 += v3;
+        v3 = Integer.rotateLeft(v3, 7);
+        v3 ^= v0;
+
+        v2 += v1;
+        v1 = Integer.rotateLeft(v1, 13);
+        v1 ^= v2;
+        v2 = Integer.rotateLeft(v2, 16);
+
+        v0 += v1;
+        v1 = Integer.rotateLeft(v1, 5);
+        v1 ^= v0;
+        v0 = Integer.rotateLeft(v0, 16);
+
+        v2 += v3;
+        v3 = Integer.rotateLeft(v3, 8);
+        v3 ^= v2;
+
+        v0 += v3;
+        v3 = Integer.rotateLeft(v3, 7);
+        v3 ^= v0;
+
+        v2 += v1;
+        v1 = Integer.rotateLeft(v1, 13);
+        v1 ^= v2;
+        v2 = Integer.rotateLeft(v2, 16);
+
+        v0 ^= m;
+
+        v2 ^= wide ? 0xee : 0xff;
+
+        v0 += v1;
+        v1 = Integer.rotateLeft(v1, 5);
+        v1 ^= v0;
+        v0 = Integer.rotateLeft(v0, 16);
+
+        v2 += v3;
+        v3 = Integer.rotateLeft(v3, 8);
+        v3 ^= v2;
+
+        v0 += v3;
+        v3 = Integer.rotateLeft(v3, 7);
+        v3 ^= v0;
+
+        v2 += v1;
+        v1 = Integer.rotateLeft(v1, 13);
+        v1 ^= v2;
+        v2 = Integer.rotateLeft(v2, 16);
+
+        v0 += v1;
+        v1 = Integer.rotateLeft(v1, 5);
+        v1 ^= v0;
+        v0 = Integer.rotateLeft(v0, 16);
+
+        v2 += v3;
+        v3 = Integer.rotateLeft(v3, 8);
+        v3 ^= v2;
+
+        v0 += v3;
+        v3 = Integer.rotateLeft(v3, 7);
+        v3 ^= v0;
+
+        v2 += v1;
+        v1 = Integer.rotateLeft(v1, 13);
+        v1 ^= v2;
+        v2 = Integer.rotateLeft(v2, 16);
+
+        v0 += v1;
+        v1 = Integer.rotateLeft(v1, 5);
+        v1 ^= v0;
+        v0 = Integer.rotateLeft(v0, 16);
+
+        v2 += v3;
+        v3 = Integer.rotateLeft(v3, 8);
+        v3 ^= v2;
+
+        v0 += v3;
+        v3 = Integer.rotateLeft(v3, 7);
+        v3 ^= v0;
+
+        v2 += v1;
+        v1 = Integer.rotateLeft(v1, 13);
+        v1 ^= v2;
+        v2 = Integer.rotateLeft(v2, 16);
+
+        v0 += v1;
+        v1 = Integer.rotateLeft(v1, 5);
+        v1 ^= v0;
+        v0 = Integer.rotateLeft(v0, 16);
+
+        v2 += v3;
+        v3 = Integer.rotateLeft(v3, 8);
+        v3 ^= v2;
+
+        v0 += v3;
+        v3 = Integer.rotateLeft(v3, 7);
+        v3 ^= v0;
+
+        v2 += v1;
+        v1 = Integer.rotateLeft(v1, 13);
+        v1 ^= v2;
+        v2 = Integer.rotateLeft(v2, 16);
+
+        int out = v1 ^ v3;
+        if (!wide) {
+            return out & 0xffffffffL;
+        }
+
+        v1 ^= 0xdd;
+
+        v0 += v1;
+        v1 = Integer.rotateLeft(v1, 5);
+        v1 ^= v0;
+        v0 = Integer.rotateLeft(v0, 16);
+
+        v2 += v3;
+        v3 = Integer.rotateLeft(v3, 8);
+        v3 ^= v2;
+
+        v0 += v3;
+        v3 = Integer.rotateLeft(v3, 7);
+        v3 ^= v0;
+
+        v2 += v1;
+        v1 = Integer.rotateLeft(v1, 13);
+        v1 ^= v2;
+        v2 = Integer.rotateLeft(v2, 16);
+
+        v0 += v1;
+        v1 = Integer.rotateLeft(v1, 5);
+        v1 ^= v0;
+        v0 = Integer.rotateLeft(v0, 16);
+
+        v2 += v3;
+        v3 = Integer.rotateLeft(v3, 8);
+        v3 ^= v2;
+
+        v0 += v3;
+        v3 = Integer.rotateLeft(v3, 7);
+        v3 ^= v0;
+
+        v2 += v1;
+        v1 = Integer.rotateLeft(v1, 13);
+        v1 ^= v2;
+        v2 = Integer.rotateLeft(v2, 16);
+
+        v0 += v1;
+        v1 = Integer.rotateLeft(v1, 5);
+        v1 ^= v0;
+        v0 = Integer.rotateLeft(v0, 16);
+
+        v2 += v3;
+        v3 = Integer.rotateLeft(v3, 8);
+        v3 ^= v2;
+
+        v0 += v3;
+        v3 = Integer.rotateLeft(v3, 7);
+        v3 ^= v0;
+
+        v2 += v1;
+        v1 = Integer.rotateLeft(v1, 13);
+        v1 ^= v2;
+        v2 = Integer.rotateLeft(v2, 16);
+
+        v0 += v1;
+        v1 = Integer.rotateLeft(v1, 5);
+        v1 ^= v0;
+        v0 = Integer.rotateLeft(v0, 16);
+
+        v2 += v3;
+        v3 = Integer.rotateLeft(v3, 8);
+        v3 ^= v2;
+
+        v0 += v3;
+        v3 = Integer.rotateLeft(v3, 7);
+        v3 ^= v0;
+
+        v2 += v1;
+        v1 = Integer.rotateLeft(v1, 13);
+        v1 ^= v2;
+        v2 = Integer.rotateLeft(v2, 16);
+
+        return ((long) (v1 ^ v3) << 32) | (out & 0xffffffffL);
+    }
+
+    /**
+     * Internal 0A hashing implementation for HalfSipHash-1-3.
+     *
+     * This is identical to {@link #hashGeneric} with C and D fixed, but has
+     * all rounds written out to avoid any loop overhead in the hot path.
+     *
+     * @param v0
+     *      the seeded initial value of v0.
+     * @param v1
+     *      the seeded initial value of v1.
+     * @param v2
+     *      the seeded initial value of v2.
+     * @param v3
+     *      the seeded initial value of v3.
+     * @param data
+     *      the input data to hash using the HalfSipHash algorithm.
+     * @param offset
+     *      the index of the first byte to hash.
+     * @param length
+     *      the number of bytes to hash.
+     * @param wide
+     *      whether to produce a 64-bit output.
+     * @return
+     *      the output of the hash, in the lower 32 bits unless wide.
+     */
+    static long hash13(int v0, int v1, int v2, int v3, byte[] data, int offset, int length, boolean wide) {
+        int m;
+        int last = offset + length / 4 * 4;
+        int i = offset;
+
+        if (wide) {
+            v1 ^= 0xee;
+        }
+
+        while (i < last) {
+            m = bytesToInt(data, i);
+            i += 4;
+
+            v3 ^= m;
+
+            v0 += v1;
+            v1 = Integer.rotateLeft(v1, 5);
+            v1 ^= v0;
+            v0 = Integer.rotateLeft(v0, 16);
+
+            v2 += v3;
+            v3 = Integer.rotateLeft(v3, 8);
+            v3 ^= v2;
+
+            v0 += v3;
+            v3 = Integer.rotateLeft(v3, 7);
+            v3 ^= v0;
+
+            v2 += v1;
+            v1 = Integer.rotateLeft(v1, 13);
+            v1 ^= v2;
+            v2 = Integer.rotateLeft(v2, 16);
+
+            v0 ^= m;
+        }
+
+        m = 0;
+        for (i = offset + length - 1; i >= last; --i) {
+            m <<= 8;
+            m |= (data[i] & 0xff);
+        }
+        m |= length << 24;
+
+        v3 ^= m;
+
+        v0 += v1;
+        v1 = Integer.rotateLeft(v1, 5);
+        v1 ^= v0;
+        v0 = Integer.rotateLeft(v0, 16);
+
+        v2 += v3;
+        v3 = Integer.rotateLeft(v3, 8);
+        v3 ^= v2;
+
+        v0 += v3;
+        v3 = Integer.rotateLeft(v3, 7);
+        v3 ^= v0;
+
+        v2 += v1;
+        v1 = Integer.rotateLeft(v1, 13);
+        v1 ^= v2;
+        v2 = Integer.rotateLeft(v2, 16);
+
+        v0 ^= m;
+
+        v2 ^= wide ? 0xee : 0xff;
+
+        v0 += v1;
+        v1 = Integer.rotateLeft(v1, 5);
+        v1 ^= v0;
+        v0 = Integer.rotateLeft(v0, 16);
+
+        v2 += v3;
+        v3 = Integer.rotateLeft(v3, 8);
+        v3 ^= v2;
+
+        v0 += v3;
+        v3 = Integer.rotateLeft(v3, 7);
+        v3 ^= v0;
+
+        v2 += v1;
+        v1 = Integer.rotateLeft(v1, 13);
+        v1 ^= v2;
+        v2 = Integer.rotateLeft(v2, 16);
+
+        v0 += v1;
+        v1 = Integer.rotateLeft(v1, 5);
+        v1 ^= v0;
+        v0 = Integer.rotateLeft(v0, 16);
+
+        v2 += v3;
+        v3 = Integer.rotateLeft(v3, 8);
+        v3 ^= v2;
+
+        v0 += v3;
+        v3 = Integer.rotateLeft(v3, 7);
+        v3 ^= v0;
+
+        v2 += v1;
+        v1 = Integer.rotateLeft(v1, 13);
+        v1 ^= v2;
+        v2 = Integer.rotateLeft(v2, 16);
+
+        v0 += v1;
+        v1 = Integer.rotateLeft(v1, 5);
+        v1 ^= v0;
+        v0 = Integer.rotateLeft(v0, 16);
+
+        v2 += v3;
+        v3 = Integer.rotateLeft(v3, 8);
+        v3 ^= v2;
+
+        v0 += v3;
+        v3 = Integer.rotateLeft(v3, 7);
+        v3 ^= v0;
+
+        v2 += v1;
+        v1 = Integer.rotateLeft(v1, 13);
+        v1 ^= v2;
+        v2 = Integer.rotateLeft(v2, 16);
+
+        int out = v1 ^ v3;
+        if (!wide) {
+            return out & 0xffffffffL;
+        }
+
+        v1 ^= 0xdd;
+
+        v0 += v1;
+        v1 = Integer.rotateLeft(v1, 5);
+        v1 ^= v0;
+        v0 = Integer.rotateLeft(v0, 16);
+
+        v2 += v3;
+        v3 = Integer.rotateLeft(v3, 8);
+        v3 ^= v2;
+
+        v0 += v3;
+        v3 = Integer.rotateLeft(v3, 7);
+        v3 ^= v0;
+
+        v2 += v1;
+        v1 = Integer.rotateLeft(v1, 13);
+        v1 ^= v2;
+        v2 = Integer.rotateLeft(v2, 16);
+
+        v0 += v1;
+        v1 = Integer.rotateLeft(v1, 5);
+        v1 ^= v0;
+        v0 = Integer.rotateLeft(v0, 16);
+
+        v2 += v3;
+        v3 = Integer.rotateLeft(v3, 8);
+        v3 ^= v2;
+
+        v0 += v3;
+        v3 = Integer.rotateLeft(v3, 7);
+        v3 ^= v0;
+
+        v2 += v1;
+        v1 = Integer.rotateLeft(v1, 13);
+        v1 ^= v2;
+        v2 = Integer.rotateLeft(v2, 16);
+
+        v0 += v1;
+        v1 = Integer.rotateLeft(v1, 5);
+        v1 ^= v0;
+        v0 = Integer.rotateLeft(v0, 16);
+
+        v2 += v3;
+        v3 = Integer.rotateLeft(v3, 8);
+        v3 ^= v2;
+
+        v0 += v3;
+        v3 = Integer.rotateLeft(v3, 7);
+        v3 ^= v0;
+
+        v2 += v1;
+        v1 = Integer.rotateLeft(v1, 13);
+        v1 ^= v2;
+        v2 = Integer.rotateLeft(v2, 16);
+
+        return ((long) (v1 ^ v3) << 32) | (out & 0xffffffffL);
+    }
+
+    /**
+     * Internal 0A hashing implementation for arbitrary rounds.
+     *
+     * Requires initial state being manually provided (to avoid allocation). The
+     * compression rounds must also be provided, as nothing will be validated in
+     * this layer (such as defaults).
+     *
+     * @param c
+     *      the rounds of C compression to apply.
+     * @param d
+     *      the rounds of D compression to apply.
+     * @param v0
+     *      the seeded initial value of v0.
+     * @param v1
+     *      the seeded initial value of v1.
+     * @param v2
+     *      the seeded initial value of v2.
+     * @param v3
+     *      the seeded initial value of v3.
+     * @param data
+     *      the input data to hash using the HalfSipHash algorithm.
+     * @param offset
+     *      the index of the first byte to hash.
+     * @param length
+     *      the number of bytes to hash.
+     * @param wide
+     *      whether to produce a 64-bit output.
+     * @return
+     *      the output of the hash, in the lower 32 bits unless wide.
+     */
+    static long hashGeneric(int c, int d, int v0, int v1, int v2, int v3, byte[] data, int offset, int length, boolean wide) {
+        int m;
+        int last = offset + length / 4 * 4;
+        int i = offset;
+        int r;
+
+        if (wide) {
+            v1 ^= 0xee;
+        }
+
+        while (i < last) {
+            m = bytesToInt(data, i);
+            i += 4;
+
+            v3 ^= m;
+            for (r = 0; r < c; r++) {
+                v0 += v1;
+                v1 = Integer.rotateLeft(v1, 5);
+                v1 ^= v0;
+                v0 = Integer.rotateLeft(v0, 16);
+
+                v2 += v3;
+                v3 = Integer.rotateLeft(v3, 8);
+                v3 ^= v2;
+
+                v0 += v3;
+                v3 = Integer.rotateLeft(v3, 7);
+                v3 ^= v0;
+
+                v2 += v1;
+                v1 = Integer.rotateLeft(v1, 13);
+                v1 ^= v2;
+                v2 = Integer.rotateLeft(v2, 16);
+            }
+            v0 ^= m;
+        }
+
+        m = 0;
+        for (i = offset + length - 1; i >= last; --i) {
+            m <<= 8;
+            m |= (data[i] & 0xff);
+        }
+        m |= length << 24;
+
+        v3 ^= m;
+        for (r = 0; r < c; r++) {
+            v0 += v1;
+            v1 = Integer.rotateLeft(v1, 5);
+            v1 ^= v0;
+            v0 = Integer.rotateLeft(v0, 16);
+
+            v2 += v3;
+            v3 = Integer.rotateLeft(v3, 8);
+            v3 ^= v2;
+
+            v0 += v3;
+            v3 = Integer.rotateLeft(v3, 7);
+            v3 ^= v0;
+
+            v2 += v1;
+            v1 = Integer.rotateLeft(v1, 13);
+            v1 ^= v2;
+            v2 = Integer.rotateLeft(v2, 16);
+        }
+        v0 ^= m;
+
+        v2 ^= wide ? 0xee : 0xff;
+        for (r = 0; r < d; r++) {
+            v0 += v1;
+            v1 = Integer.rotateLeft(v1, 5);
+            v1 ^= v0;
+            v0 = Integer.rotateLeft(v0, 16);
+
+            v2 += v3;
+            v3 = Integer.rotateLeft(v3, 8);
+            v3 ^= v2;
+
+            v0 += v3;
+            v3 = Integer.rotateLeft(v3, 7);
+            v3 ^= v0;
+
+            v2 += v1;
+            v1 = Integer.rotateLeft(v1, 13);
+            v1 ^= v2;
+            v2 = Integer.rotateLeft(v2, 16);
+        }
+
+        int out = v1 ^ v3;
+        if (!wide) {
+            return out & 0xffffffffL;
+        }
+
+        v1 ^= 0xdd;
+        for (r = 0; r < d; r++) {
+            v0 += v1;
+            v1 = Integer.rotateLeft(v1, 5);
+            v1 ^= v0;
+            v0 = Integer.rotateLeft(v0, 16);
+
+            v2 += v3;
+            v3 = Integer.rotateLeft(v3, 8);
+            v3 ^= v2;
+
+            v0 += v3;
+            v3 = Integer.rotateLeft(v3, 7);
+            v3 ^= v0;
+
+            v2 += v1;
+            v1 = Integer.rotateLeft(v1, 13);
+            v1 ^= v2;
+            v2 = Integer.rotateLeft(v2, 16);
+        }
+
+        return ((long) (v1 ^ v3) << 32) | (out & 0xffffffffL);
+    }
+}
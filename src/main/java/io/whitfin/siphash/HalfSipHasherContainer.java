@@ -0,0 +1,175 @@
+package io.whitfin.siphash;
+
+import static io.whitfin.siphash.HalfSipHasher.*;
+import static io.whitfin.siphash.SipHasher.DEFAULT_C;
+import static io.whitfin.siphash.SipHasher.DEFAULT_D;
+import static io.whitfin.siphash.SipHasher.checkBounds;
+
+/**
+ * Small container of state to aid HalfSipHash throughput.
+ *
+ * This is the HalfSipHash equivalent of {@link SipHasherContainer}, keeping
+ * the seeded v* values for use across many hashes with a constant key.
+ */
+public final class HalfSipHasherContainer {
+
+    /**
+     * The seeded value for the magic v0 number.
+     */
+    private final int v0;
+
+    /**
+     * The seeded value for the magic v1 number.
+     */
+    private final int v1;
+
+    /**
+     * The seeded value for the magic v2 number.
+     */
+    private final int v2;
+
+    /**
+     * The seeded value for the magic v3 number.
+     */
+    private final int v3;
+
+    /**
+     * Initializes a container from a key seed.
+     *
+     * @param key
+     *      the key to use to seed this hash container.
+     */
+    HalfSipHasherContainer(byte[] key) {
+        if (key.length != 8) {
+            throw new IllegalArgumentException("Key must be exactly 8 bytes!");
+        }
+
+        int k0 = bytesToInt(key, 0);
+        int k1 = bytesToInt(key, 4);
+
+        this.v0 = INITIAL_V0 ^ k0;
+        this.v1 = INITIAL_V1 ^ k1;
+        this.v2 = INITIAL_V2 ^ k0;
+        this.v3 = INITIAL_V3 ^ k1;
+    }
+
+    /**
+     * Hashes input data using the preconfigured state, producing a
+     * 32-bit output.
+     *
+     * @param data
+     *      the data to hash and digest.
+     * @return
+     *      an int value as the output of the hash.
+     */
+    public final int hash(byte[] data) {
+        return hash(data, DEFAULT_C, DEFAULT_D);
+    }
+
+    /**
+     * Hashes input data using the preconfigured state, producing a
+     * 32-bit output.
+     *
+     * @param data
+     *      the data to hash and digest.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @return
+     *      an int value as the output of the hash.
+     */
+    public final int hash(byte[] data, int c, int d) {
+        return hash(data, 0, data.length, c, d);
+    }
+
+    /**
+     * Hashes a slice of input data using the preconfigured state,
+     * producing a 32-bit output.
+     *
+     * @param data
+     *      the array containing the data to hash and digest.
+     * @param offset
+     *      the index of the first byte to hash.
+     * @param length
+     *      the number of bytes to hash.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @return
+     *      an int value as the output of the hash.
+     */
+    public final int hash(byte[] data, int offset, int length, int c, int d) {
+        checkBounds(data, offset, length);
+        return (int) HalfSipHasher.hash(
+            c, d,
+            this.v0,
+            this.v1,
+            this.v2,
+            this.v3,
+            data, offset, length,
+            false
+        );
+    }
+
+    /**
+     * Hashes input data using the preconfigured state, producing a
+     * 64-bit output.
+     *
+     * @param data
+     *      the data to hash and digest.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hash64(byte[] data) {
+        return hash64(data, DEFAULT_C, DEFAULT_D);
+    }
+
+    /**
+     * Hashes input data using the preconfigured state, producing a
+     * 64-bit output.
+     *
+     * @param data
+     *      the data to hash and digest.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hash64(byte[] data, int c, int d) {
+        return hash64(data, 0, data.length, c, d);
+    }
+
+    /**
+     * Hashes a slice of input data using the preconfigured state,
+     * producing a 64-bit output.
+     *
+     * @param data
+     *      the array containing the data to hash and digest.
+     * @param offset
+     *      the index of the first byte to hash.
+     * @param length
+     *      the number of bytes to hash.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hash64(byte[] data, int offset, int length, int c, int d) {
+        checkBounds(data, offset, length);
+        return HalfSipHasher.hash(
+            c, d,
+            this.v0,
+            this.v1,
+            this.v2,
+            this.v3,
+            data, offset, length,
+            true
+        );
+    }
+}
@@ -0,0 +1,348 @@
+package io.whitfin.siphash;
+
+import static io.whitfin.siphash.HalfSipHasher.*;
+import static io.whitfin.siphash.SipHasher.checkBounds;
+
+/**
+ * Streaming implementation of the HalfSipHash algorithm.
+ *
+ * This is the HalfSipHash equivalent of {@link SipHasherStream}, allowing
+ * input of unknown length to be hashed as it's received. Arrays are compressed
+ * directly in 4-byte blocks, with only a partial block buffered between updates.
+ */
+public final class HalfSipHasherStream {
+
+    /**
+     * The specified rounds of C compression.
+     */
+    private final int c;
+
+    /**
+     * The specified rounds of D compression.
+     */
+    private final int d;
+
+    /**
+     * Whether this stream produces a 64-bit output.
+     */
+    private final boolean wide;
+
+    /**
+     * The number of bytes provided to the stream so far.
+     *
+     * The index into the current block is always the lower 2 bits of this,
+     * and the lower 8 bits are written into the final block when padding.
+     */
+    private long len;
+
+    /**
+     * The current value for the m number.
+     */
+    private int m;
+
+    /**
+     * The current value for the v0 number.
+     */
+    private int v0;
+
+    /**
+     * The current value for the v1 number.
+     */
+    private int v1;
+
+    /**
+     * The current value for the v2 number.
+     */
+    private int v2;
+
+    /**
+     * The current value for the v3 number.
+     */
+    private int v3;
+
+    /**
+     * Initializes a streaming digest using a key and compression rounds.
+     *
+     * @param key
+     *      the key to use to seed this hash container.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @param wide
+     *      whether to produce a 64-bit output.
+     */
+    HalfSipHasherStream(byte[] key, int c, int d, boolean wide) {
+        if (key.length != 8) {
+            throw new IllegalArgumentException("Key must be exactly 8 bytes!");
+        }
+
+        int k0 = bytesToInt(key, 0);
+        int k1 = bytesToInt(key, 4);
+
+        this.v0 = INITIAL_V0 ^ k0;
+        this.v1 = INITIAL_V1 ^ k1 ^ (wide ? 0xee : 0);
+        this.v2 = INITIAL_V2 ^ k0;
+        this.v3 = INITIAL_V3 ^ k1;
+
+        this.c = c;
+        this.d = d;
+        this.wide = wide;
+
+        this.m = 0;
+        this.len = 0;
+    }
+
+    /**
+     * Updates the hash with a single byte.
+     *
+     * This will only modify the internal `m` value, nothing will be modified
+     * in the actual `v*` states until a 4-byte block has been provided.
+     *
+     * @param b
+     *      the byte being added to the digest.
+     * @return
+     *      the same {@link HalfSipHasherStream} for chaining.
+     */
+    public final HalfSipHasherStream update(byte b) {
+        int index = (int) this.len++ & 3;
+        this.m |= (b & 0xff) << (index * 8);
+        if (index < 3) {
+            return this;
+        }
+        this.v3 ^= this.m;
+        rounds(this.c);
+        this.v0 ^= this.m;
+        this.m = 0;
+        return this;
+    }
+
+    /**
+     * Updates the hash with an array of bytes.
+     *
+     * @param bytes
+     *      the bytes being added to the digest.
+     * @return
+     *      the same {@link HalfSipHasherStream} for chaining.
+     */
+    public final HalfSipHasherStream update(byte[] bytes) {
+        return update(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Updates the hash with a slice of an array of bytes.
+     *
+     * Any partially filled block is completed first, before all full blocks
+     * are compressed directly from the array. Only the remaining tail bytes
+     * are buffered until the next update.
+     *
+     * @param bytes
+     *      the array containing the bytes being added to the digest.
+     * @param offset
+     *      the index of the first byte to add.
+     * @param length
+     *      the number of bytes to add.
+     * @return
+     *      the same {@link HalfSipHasherStream} for chaining.
+     */
+    public final HalfSipHasherStream update(byte[] bytes, int offset, int length) {
+        checkBounds(bytes, offset, length);
+
+        int i = offset;
+        int end = offset + length;
+
+        while ((this.len & 3) != 0 && i < end) {
+            update(bytes[i++]);
+        }
+
+        int last = i + (end - i) / 4 * 4;
+        if (i < last) {
+            compress(bytes, i, last);
+            i = last;
+        }
+
+        while (i < end) {
+            update(bytes[i++]);
+        }
+        return this;
+    }
+
+    /**
+     * Retrieves the number of bytes provided to the stream so far.
+     *
+     * @return
+     *      the number of bytes provided to the stream.
+     */
+    public final long length() {
+        return this.len;
+    }
+
+    /**
+     * Finalizes the digest and returns the 32-bit hash.
+     *
+     * Finalization does not modify the stream, so it's possible to take
+     * the hash of all input so far and then continue to update the stream.
+     *
+     * @return
+     *      the final result of the hash as an int.
+     * @throws IllegalStateException
+     *      if this stream was initialized for 64-bit output.
+     */
+    public final int digest() {
+        if (this.wide) {
+            throw new IllegalStateException("Stream must be finalized using digest64!");
+        }
+
+        int v0 = this.v0;
+        int v1 = this.v1;
+        int v2 = this.v2;
+        int v3 = this.v3;
+
+        pad();
+
+        this.v2 ^= 0xff;
+        rounds(this.d);
+
+        int hash = this.v1 ^ this.v3;
+
+        this.v0 = v0;
+        this.v1 = v1;
+        this.v2 = v2;
+        this.v3 = v3;
+
+        return hash;
+    }
+
+    /**
+     * Finalizes the digest and returns the 64-bit hash.
+     *
+     * As with {@link #digest()}, the stream can continue to be updated.
+     *
+     * @return
+     *      the final result of the hash as a long.
+     * @throws IllegalStateException
+     *      if this stream was not initialized for 64-bit output.
+     */
+    public final long digest64() {
+        if (!this.wide) {
+            throw new IllegalStateException("Stream must be finalized using digest!");
+        }
+
+        int v0 = this.v0;
+        int v1 = this.v1;
+        int v2 = this.v2;
+        int v3 = this.v3;
+
+        pad();
+
+        this.v2 ^= 0xee;
+        rounds(this.d);
+        int out = this.v1 ^ this.v3;
+
+        this.v1 ^= 0xdd;
+        rounds(this.d);
+
+        long hash = ((long) (this.v1 ^ this.v3) << 32) | (out & 0xffffffffL);
+
+        this.v0 = v0;
+        this.v1 = v1;
+        this.v2 = v2;
+        this.v3 = v3;
+
+        return hash;
+    }
+
+    /**
+     * Pads the input to the next 4-byte block, ending with the length.
+     *
+     * As any unused bytes of the current block are always zero, the final
+     * block is formed by writing the length into the top byte directly.
+     */
+    private void pad() {
+        int b = this.m | (int) this.len << 24;
+
+        this.v3 ^= b;
+        rounds(this.c);
+        this.v0 ^= b;
+    }
+
+    /**
+     * Compresses full 4-byte blocks from an array into the current state.
+     *
+     * @param bytes
+     *      the array containing the blocks to compress.
+     * @param offset
+     *      the index of the first block.
+     * @param last
+     *      the index after the final block; must be a multiple of 4 from offset.
+     */
+    private void compress(byte[] bytes, int offset, int last) {
+        int v0 = this.v0;
+        int v1 = this.v1;
+        int v2 = this.v2;
+        int v3 = this.v3;
+        int c = this.c;
+        int m;
+        int r;
+
+        for (int i = offset; i < last; i += 4) {
+            m = bytesToInt(bytes, i);
+
+            v3 ^= m;
+            for (r = 0; r < c; r++) {
+                v0 += v1;
+                v1 = Integer.rotateLeft(v1, 5);
+                v1 ^= v0;
+                v0 = Integer.rotateLeft(v0, 16);
+
+                v2 += v3;
+                v3 = Integer.rotateLeft(v3, 8);
+                v3 ^= v2;
+
+                v0 += v3;
+                v3 = Integer.rotateLeft(v3, 7);
+                v3 ^= v0;
+
+                v2 += v1;
+                v1 = Integer.rotateLeft(v1, 13);
+                v1 ^= v2;
+                v2 = Integer.rotateLeft(v2, 16);
+            }
+            v0 ^= m;
+        }
+
+        this.v0 = v0;
+        this.v1 = v1;
+        this.v2 = v2;
+        this.v3 = v3;
+        this.len += last - offset;
+    }
+
+    /**
+     * Applies a number of rounds to the current state.
+     *
+     * @param n
+     *      the number of rounds to apply.
+     */
+    private void rounds(int n) {
+        for (int i = 0; i < n; i++) {
+            this.v0 += this.v1;
+            this.v1 = Integer.rotateLeft(this.v1, 5);
+            this.v1 ^= this.v0;
+            this.v0 = Integer.rotateLeft(this.v0, 16);
+
+            this.v2 += this.v3;
+            this.v3 = Integer.rotateLeft(this.v3, 8);
+            this.v3 ^= this.v2;
+
+            this.v0 += this.v3;
+            this.v3 = Integer.rotateLeft(this.v3, 7);
+            this.v3 ^= this.v0;
+
+            this.v2 += this.v1;
+            this.v1 = Integer.rotateLeft(this.v1, 13);
+            this.v1 ^= this.v2;
+            this.v2 = Integer.rotateLeft(this.v2, 16);
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package io.whitfin.siphash;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keyed Bloom filter, resistant to deliberate saturation.
+ *
+ * Each element is hashed using SipHash-1-3 under the key of the filter, and
+ * the k probe positions are derived using Kirsch-Mitzenmacher double hashing
+ * from two 64-bit hashes: the hash of the element, and the hash of that hash.
+ * Without the key, it's not possible to choose elements which set specific
+ * bits, so the filter cannot be saturated (or probed) offline.
+ *
+ * Elements are arrays of bytes or character sequences, where a character
+ * sequence is treated as its UTF-8 encoding, in the same way as a
+ * {@link SipHashMap}. Bits are held in an {@link AtomicLongArray}, so elements
+ * can be added and filters merged concurrently from multiple threads without
+ * any locking. The number of bits is always a power of two.
+ *
+ * Filters can be written to a {@link DataOutput} and read back on another
+ * node using the same key. The serialized form records a key id (a hash of a
+ * fixed message under the key, which does not reveal the key), so filters
+ * created with different keys are rejected rather than silently combined.
+ */
+public final class SipBloomFilter {
+
+    /**
+     * The smallest number of bits in a filter.
+     */
+    private static final long MINIMUM_BITS = 64;
+
+    /**
+     * The largest number of bits in a filter.
+     */
+    private static final long MAXIMUM_BITS = 1L << 36;
+
+    /**
+     * The largest number of hash functions in a filter.
+     */
+    private static final int MAXIMUM_HASHES = 64;
+
+    /**
+     * The number of words read before a deserialized filter grows its buffer.
+     */
+    private static final int READ_BLOCK = 1 << 16;
+
+    /**
+     * The version of the serialized form.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The message hashed to create the key id of a filter.
+     */
+    private static final String KEY_ID_MESSAGE = "io.whitfin.siphash.SipBloomFilter";
+
+    /**
+     * The container used to hash all elements of this filter.
+     */
+    private final SipHasherContainer container;
+
+    /**
+     * The identifier of the key of this filter.
+     */
+    private final long keyId;
+
+    /**
+     * The number of hash functions applied to each element.
+     */
+    private final int hashes;
+
+    /**
+     * The mask applied to a hash to select a bit.
+     */
+    private final long mask;
+
+    /**
+     * The bits of the filter, 64 to each word.
+     */
+    private final AtomicLongArray bits;
+
+    /**
+     * Initializes an empty filter with a number of bits and hash functions.
+     *
+     * @param key
+     *      the key used to hash elements.
+     * @param bits
+     *      the number of bits, rounded up to a power of two.
+     * @param hashes
+     *      the number of hash functions applied to each element.
+     * @throws IllegalArgumentException
+     *      if the key is not 16 bytes, or the bits or hashes are invalid.
+     */
+    public SipBloomFilter(byte[] key, long bits, int hashes) {
+        if (bits <= 0 || bits > MAXIMUM_BITS) {
+            throw new IllegalArgumentException("Bit count must be between 1 and 2^36!");
+        }
+
+        if (hashes <= 0 || hashes > MAXIMUM_HASHES) {
+            throw new IllegalArgumentException("Hash count must be between 1 and 64!");
+        }
+
+        long size = Math.max(MINIMUM_BITS, Long.highestOneBit(bits * 2 - 1));
+
+        this.container = SipHasher.container(key);
+        this.keyId = this.container.hashUtf8(KEY_ID_MESSAGE, 1, 3);
+        this.hashes = hashes;
+        this.mask = size - 1;
+        this.bits = new AtomicLongArray((int) (size >>> 6));
+    }
+
+    /**
+     * Creates an empty filter sized for an expected number of elements.
+     *
+     * The number of bits is calculated for the desired false positive rate
+     * (and then rounded up to a power of two), with the number of hash functions
+     * chosen to minimise the false positive rate for that number of bits.
+     *
+     * @param key
+     *      the key used to hash elements.
+     * @param expected
+     *      the number of elements expected to be added.
+     * @param rate
+     *      the desired false positive rate, between 0 and 1.
+     * @return
+     *      a new {@link SipBloomFilter} instance.
+     * @throws IllegalArgumentException
+     *      if the key is not 16 bytes, or the expected count or rate are
+     *      invalid, or the filter would be too large.
+     */
+    public static SipBloomFilter create(byte[] key, long expected, double rate) {
+        if (expected <= 0) {
+            throw new IllegalArgumentException("Expected count must be positive!");
+        }
+
+        if (!(rate > 0 && rate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1!");
+        }
+
+        double ln2 = Math.log(2);
+        double optimal = Math.ceil(-expected * Math.log(rate) / (ln2 * ln2));
+        if (optimal > MAXIMUM_BITS) {
+            throw new IllegalArgumentException("Bit count must be between 1 and 2^36!");
+        }
+
+        long bits = Math.max(MINIMUM_BITS, Long.highestOneBit((long) optimal * 2 - 1));
+        long hashes = Math.round((double) bits / expected * ln2);
+
+        return new SipBloomFilter(key, bits, (int) Math.max(1, Math.min(MAXIMUM_HASHES, hashes)));
+    }
+
+    /**
+     * Reads a filter previously written via {@link #writeTo(DataOutput)}.
+     *
+     * The size declared in the header is not trusted: words are read into a
+     * buffer which only grows as they arrive, and the filter is allocated once
+     * every word has been read. A header declaring more words than the input
+     * holds therefore fails without allocating the declared size.
+     *
+     * @param key
+     *      the key the filter was created with.
+     * @param in
+     *      the input to read the filter from.
+     * @return
+     *      a new {@link SipBloomFilter} instance.
+     * @throws IOException
+     *      if the filter cannot be read, including when the input ends
+     *      before the number of words declared in the header.
+     * @throws IllegalArgumentException
+     *      if the filter was created with a different key, or the
+     *      serialized form is invalid.
+     */
+    public static SipBloomFilter readFrom(byte[] key, DataInput in) throws IOException {
+        if (in.readUnsignedByte() != VERSION) {
+            throw new IllegalArgumentException("Filter must be serialized using version 1!");
+        }
+
+        if (in.readLong() != SipHasher.container(key).hashUtf8(KEY_ID_MESSAGE, 1, 3)) {
+            throw new IllegalArgumentException("Filter must be created with the same key!");
+        }
+
+        int hashes = in.readUnsignedByte();
+        int words = in.readInt();
+
+        if (words <= 0 || Integer.bitCount(words) != 1) {
+            throw new IllegalArgumentException("Filter must contain a power of two words!");
+        }
+
+        if (hashes <= 0 || hashes > MAXIMUM_HASHES) {
+            throw new IllegalArgumentException("Hash count must be between 1 and 64!");
+        }
+
+        long[] buffer = new long[Math.min(words, READ_BLOCK)];
+        for (int i = 0; i < words; i++) {
+            if (i == buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.min(words, i * 2));
+            }
+            buffer[i] = in.readLong();
+        }
+
+        SipBloomFilter filter = new SipBloomFilter(key, (long) words << 6, hashes);
+        for (int i = 0; i < words; i++) {
+            filter.bits.set(i, buffer[i]);
+        }
+
+        return filter;
+    }
+
+    /**
+     * Retrieves the number of bits in the filter.
+     *
+     * @return
+     *      the number of bits.
+     */
+    public final long bitSize() {
+        return this.mask + 1;
+    }
+
+    /**
+     * Retrieves the number of hash functions applied to each element.
+     *
+     * @return
+     *      the number of hash functions.
+     */
+    public final int hashCount() {
+        return this.hashes;
+    }
+
+    /**
+     * Retrieves the identifier of the key of the filter.
+     *
+     * @return
+     *      the key id, equal for all filters using the same key.
+     */
+    public final long keyId() {
+        return this.keyId;
+    }
+
+    /**
+     * Adds an element to the filter.
+     *
+     * @param element
+     *      the element to add.
+     * @return
+     *      true if any bits changed, meaning the element was definitely
+     *      not present beforehand.
+     */
+    public final boolean add(byte[] element) {
+        return add(this.container.hash(element, 1, 3));
+    }
+
+    /**
+     * Adds an element to the filter.
+     *
+     * @param element
+     *      the element to add, as UTF-8.
+     * @return
+     *      true if any bits changed, meaning the element was definitely
+     *      not present beforehand.
+     */
+    public final boolean add(CharSequence element) {
+        return add(this.container.hashUtf8(element, 1, 3));
+    }
+
+    /**
+     * Determines whether an element might have been added to the filter.
+     *
+     * @param element
+     *      the element to check.
+     * @return
+     *      false if the element was definitely not added, and true if it
+     *      may have been added.
+     */
+    public final boolean mightContain(byte[] element) {
+        return mightContain(this.container.hash(element, 1, 3));
+    }
+
+    /**
+     * Determines whether an element might have been added to the filter.
+     *
+     * @param element
+     *      the element to check, as UTF-8.
+     * @return
+     *      false if the element was definitely not added, and true if it
+     *      may have been added.
+     */
+    public final boolean mightContain(CharSequence element) {
+        return mightContain(this.container.hashUtf8(element, 1, 3));
+    }
+
+    /**
+     * Merges another filter into this filter, so that it contains the
+     * elements of both filters.
+     *
+     * @param filter
+     *      the filter to merge into this filter.
+     * @throws IllegalArgumentException
+     *      if the filter has a different key, size or hash count.
+     */
+    public final void merge(SipBloomFilter filter) {
+        if (filter.keyId != this.keyId || filter.mask != this.mask || filter.hashes != this.hashes) {
+            throw new IllegalArgumentException("Filters must share the same key, size and hash count!");
+        }
+
+        for (int i = 0; i < this.bits.length(); i++) {
+            or(i, filter.bits.get(i));
+        }
+    }
+
+    /**
+     * Writes the filter to an output, to be read via {@link #readFrom(byte[], DataInput)}.
+     *
+     * The serialized form is a version byte, the key id, the hash count as a
+     * byte, the number of words, and then each word of the filter. Concurrent
+     * additions may or may not be included in the output.
+     *
+     * @param out
+     *      the output to write the filter to.
+     * @throws IOException
+     *      if the filter cannot be written.
+     */
+    public final void writeTo(DataOutput out) throws IOException {
+        out.writeByte(VERSION);
+        out.writeLong(this.keyId);
+        out.writeByte(this.hashes);
+        out.writeInt(this.bits.length());
+
+        for (int i = 0; i < this.bits.length(); i++) {
+            out.writeLong(this.bits.get(i));
+        }
+    }
+
+    /**
+     * Sets the bits for the hash of an element.
+     *
+     * @param hash
+     *      the hash of the element.
+     * @return
+     *      true if any bits changed.
+     */
+    private boolean add(long hash) {
+        long step = this.container.hashLong(hash, 1, 3) | 1;
+        boolean changed = false;
+
+        for (int i = 0; i < this.hashes; i++) {
+            long bit = hash & this.mask;
+            changed |= or((int) (bit >>> 6), 1L << bit);
+            hash += step;
+        }
+
+        return changed;
+    }
+
+    /**
+     * Checks the bits for the hash of an element.
+     *
+     * @param hash
+     *      the hash of the element.
+     * @return
+     *      true if all bits are set.
+     */
+    private boolean mightContain(long hash) {
+        long step = this.container.hashLong(hash, 1, 3) | 1;
+
+        for (int i = 0; i < this.hashes; i++) {
+            long bit = hash & this.mask;
+            if ((this.bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+            hash += step;
+        }
+
+        return true;
+    }
+
+    /**
+     * Atomically sets bits within a word of the filter.
+     *
+     * @param index
+     *      the index of the word.
+     * @param value
+     *      the bits to set.
+     * @return
+     *      true if any bits changed.
+     */
+    private boolean or(int index, long value) {
+        for (;;) {
+            long word = this.bits.get(index);
+            if ((word | value) == word) {
+                return false;
+            }
+            if (this.bits.compareAndSet(index, word, word | value)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package io.whitfin.siphash;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keyed Count-Min sketch for estimating the frequency of elements.
+ *
+ * Each of the d rows of the sketch is a set of w counters, and every element
+ * increments one counter in each row; the estimate of an element is then the
+ * smallest of its counters. Estimates never fall below the true count, and
+ * exceed it by at most {@code e / w} of the total count with probability
+ * {@code 1 - e^-d}. The estimate is returned from every addition, so it can be
+ * used directly for heavy hitter (top-K) detection.
+ *
+ * The counter of an element in each row is chosen from two 64-bit hashes,
+ * using SipHash-1-3 under the key of the sketch: the hash of the element, and
+ * the hash of that hash. Row i combines the two as {@code h1 + i * h2}, mixed
+ * with an offset derived for that row from the key at construction. This costs
+ * two SipHash invocations per element regardless of the depth, and without the
+ * key an attacker cannot choose elements which collide in every row.
+ *
+ * Counters are updated conservatively: an addition only raises each counter
+ * to the new estimate of the element, rather than incrementing all of them,
+ * which greatly reduces the error for skewed input. As such, counts must not
+ * be negative.
+ *
+ * Sketches are either single threaded, with counters in a {@code long[]}, or
+ * concurrent. Concurrent sketches hold counters in an {@link AtomicLongArray}
+ * and only ever raise a counter via compare-and-set, so concurrent additions
+ * of different elements sharing a counter cannot lower each other's counts.
+ * Additions of the same element are serialized by one of a fixed set of lock
+ * stripes, chosen by the hash of the element, so that no increment is lost.
+ */
+public final class SipCountMinSketch {
+
+    /**
+     * The largest supported depth.
+     */
+    private static final int MAXIMUM_DEPTH = 64;
+
+    /**
+     * The largest supported width.
+     */
+    private static final int MAXIMUM_WIDTH = 1 << 24;
+
+    /**
+     * The number of lock stripes used by concurrent sketches.
+     */
+    private static final int STRIPES = 64;
+
+    /**
+     * The message hashed to create the key id of a sketch.
+     */
+    private static final String KEY_ID_MESSAGE = "io.whitfin.siphash.SipCountMinSketch";
+
+    /**
+     * The container used to hash all elements of this sketch.
+     */
+    private final SipHasherContainer container;
+
+    /**
+     * The identifier of the key of this sketch.
+     */
+    private final long keyId;
+
+    /**
+     * The number of rows in the sketch.
+     */
+    private final int depth;
+
+    /**
+     * The shift applied to a hash to select a counter within a row.
+     */
+    private final int shift;
+
+    /**
+     * The offset of each row, derived from the key.
+     */
+    private final long[] offsets;
+
+    /**
+     * The counters of a single threaded sketch, row by row.
+     */
+    private final long[] counters;
+
+    /**
+     * The counters of a concurrent sketch, row by row.
+     */
+    private final AtomicLongArray atomic;
+
+    /**
+     * The locks used to serialize additions of an element, if concurrent.
+     */
+    private final ReentrantLock[] stripes;
+
+    /**
+     * The total of all counts added to the sketch.
+     */
+    private final AtomicLong total;
+
+    /**
+     * Initializes an empty single threaded sketch.
+     *
+     * @param key
+     *      the key used to hash elements.
+     * @param depth
+     *      the number of rows, between 1 and 64.
+     * @param width
+     *      the number of counters in each row, rounded up to a power of two.
+     * @throws IllegalArgumentException
+     *      if the key is not 16 bytes, or the depth or width are invalid.
+     */
+    public SipCountMinSketch(byte[] key, int depth, int width) {
+        this(key, depth, width, false);
+    }
+
+    /**
+     * Initializes an empty sketch, which may be safely shared between threads.
+     *
+     * @param key
+     *      the key used to hash elements.
+     * @param depth
+     *      the number of rows, between 1 and 64.
+     * @param width
+     *      the number of counters in each row, rounded up to a power of two.
+     * @param concurrent
+     *      whether the sketch may be updated by multiple threads.
+     * @throws IllegalArgumentException
+     *      if the key is not 16 bytes, or the depth or width are invalid.
+     */
+    public SipCountMinSketch(byte[] key, int depth, int width, boolean concurrent) {
+        if (depth <= 0 || depth > MAXIMUM_DEPTH) {
+            throw new IllegalArgumentException("Depth must be between 1 and 64!");
+        }
+
+        if (width <= 0 || width > MAXIMUM_WIDTH) {
+            throw new IllegalArgumentException("Width must be between 1 and 2^24!");
+        }
+
+        int size = Math.max(2, Integer.highestOneBit(width * 2 - 1));
+
+        this.container = SipHasher.container(key);
+        this.keyId = this.container.hashUtf8(KEY_ID_MESSAGE, 1, 3);
+        this.depth = depth;
+        this.shift = 64 - Integer.numberOfTrailingZeros(size);
+        this.offsets = new long[depth];
+        this.total = new AtomicLong();
+
+        for (int i = 0; i < depth; i++) {
+            this.offsets[i] = this.container.hashLong(i, 1, 3);
+        }
+
+        if (concurrent) {
+            this.counters = null;
+            this.atomic = new AtomicLongArray(depth * size);
+            this.stripes = new ReentrantLock[STRIPES];
+            for (int i = 0; i < STRIPES; i++) {
+                this.stripes[i] = new ReentrantLock();
+            }
+        } else {
+            this.counters = new long[depth * size];
+            this.atomic = null;
+            this.stripes = null;
+        }
+    }
+
+    /**
+     * Creates an empty single threaded sketch with error bounds.
+     *
+     * @param key
+     *      the key used to hash elements.
+     * @param epsilon
+     *      the maximum overestimate, as a fraction of the total count.
+     * @param delta
+     *      the probability of exceeding the maximum overestimate.
+     * @return
+     *      a new {@link SipCountMinSketch} instance.
+     * @throws IllegalArgumentException
+     *      if the key is not 16 bytes, or the bounds are invalid.
+     */
+    public static SipCountMinSketch create(byte[] key, double epsilon, double delta) {
+        if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("Error bounds must be between 0 and 1!");
+        }
+
+        double width = Math.ceil(Math.E / epsilon);
+        double depth = Math.ceil(Math.log(1 / delta));
+
+        return new SipCountMinSketch(key, (int) Math.min(depth, MAXIMUM_DEPTH + 1), (int) Math.min(width, MAXIMUM_WIDTH + 1L));
+    }
+
+    /**
+     * Retrieves the number of rows in the sketch.
+     *
+     * @return
+     *      the depth of the sketch.
+     */
+    public final int depth() {
+        return this.depth;
+    }
+
+    /**
+     * Retrieves the number of counters in each row of the sketch.
+     *
+     * @return
+     *      the width of the sketch.
+     */
+    public final int width() {
+        return 1 << (64 - this.shift);
+    }
+
+    /**
+     * Retrieves the identifier of the key of the sketch.
+     *
+     * @return
+     *      the key id, equal for all sketches using the same key.
+     */
+    public final long keyId() {
+        return this.keyId;
+    }
+
+    /**
+     * Retrieves the total of all counts added to the sketch.
+     *
+     * @return
+     *      the total count.
+     */
+    public final long total() {
+        return this.total.get();
+    }
+
+    /**
+     * Adds a count of an element to the sketch.
+     *
+     * @param element
+     *      the element to add.
+     * @param count
+     *      the count to add, which must not be negative.
+     * @return
+     *      the estimated count of the element after the addition.
+     * @throws IllegalArgumentException
+     *      if the count is negative.
+     */
+    public final long add(byte[] element, long count) {
+        return increment(this.container.hash(element, 1, 3), count);
+    }
+
+    /**
+     * Adds a count of an element to the sketch.
+     *
+     * @param element
+     *      the element to add, as UTF-8.
+     * @param count
+     *      the count to add, which must not be negative.
+     * @return
+     *      the estimated count of the element after the addition.
+     * @throws IllegalArgumentException
+     *      if the count is negative.
+     */
+    public final long add(CharSequence element, long count) {
+        return increment(this.container.hashUtf8(element, 1, 3), count);
+    }
+
+    /**
+     * Adds a count of an element to the sketch.
+     *
+     * @param element
+     *      the element to add, as 8 little endian bytes.
+     * @param count
+     *      the count to add, which must not be negative.
+     * @return
+     *      the estimated count of the element after the addition.
+     * @throws IllegalArgumentException
+     *      if the count is negative.
+     */
+    public final long add(long element, long count) {
+        return increment(this.container.hashLong(element, 1, 3), count);
+    }
+
+    /**
+     * Estimates the count of an element.
+     *
+     * @param element
+     *      the element to estimate.
+     * @return
+     *      the estimated count, which is never below the true count.
+     */
+    public final long estimate(byte[] element) {
+        return lookup(this.container.hash(element, 1, 3));
+    }
+
+    /**
+     * Estimates the count of an element.
+     *
+     * @param element
+     *      the element to estimate, as UTF-8.
+     * @return
+     *      the estimated count, which is never below the true count.
+     */
+    public final long estimate(CharSequence element) {
+        return lookup(this.container.hashUtf8(element, 1, 3));
+    }
+
+    /**
+     * Estimates the count of an element.
+     *
+     * @param element
+     *      the element to estimate, as 8 little endian bytes.
+     * @return
+     *      the estimated count, which is never below the true count.
+     */
+    public final long estimate(long element) {
+        return lookup(this.container.hashLong(element, 1, 3));
+    }
+
+    /**
+     * Merges another sketch into this sketch by summing the counters, so
+     * that estimates cover the elements added to either sketch.
+     *
+     * @param sketch
+     *      the sketch to merge into this sketch.
+     * @throws IllegalArgumentException
+     *      if the sketch has a different key, depth or width.
+     */
+    public final void merge(SipCountMinSketch sketch) {
+        if (sketch.keyId != this.keyId || sketch.depth != this.depth || sketch.shift != this.shift) {
+            throw new IllegalArgumentException("Sketches must share the same key, depth and width!");
+        }
+
+        int length = this.depth << (64 - this.shift);
+        for (int i = 0; i < length; i++) {
+            long value = sketch.get(i);
+            if (this.counters != null) {
+                this.counters[i] += value;
+            } else {
+                this.atomic.addAndGet(i, value);
+            }
+        }
+
+        this.total.addAndGet(sketch.total());
+    }
+
+    /**
+     * Adds a count for the hash of an element.
+     *
+     * @param hash
+     *      the hash of the element.
+     * @param count
+     *      the count to add.
+     * @return
+     *      the estimated count of the element after the addition.
+     */
+    private long increment(long hash, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must not be negative!");
+        }
+
+        this.total.addAndGet(count);
+
+        if (this.stripes == null) {
+            return update(hash, count);
+        }
+
+        ReentrantLock lock = this.stripes[(int) (hash >>> 58)];
+        lock.lock();
+        try {
+            return update(hash, count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Conservatively updates the counters for the hash of an element.
+     *
+     * @param hash
+     *      the hash of the element.
+     * @param count
+     *      the count to add.
+     * @return
+     *      the estimated count of the element after the addition.
+     */
+    private long update(long hash, long count) {
+        long step = this.container.hashLong(hash, 1, 3) | 1;
+        long target = estimate(hash, step) + count;
+
+        for (int i = 0; i < this.depth; i++) {
+            raise(index(hash, step, i), target);
+        }
+
+        return target;
+    }
+
+    /**
+     * Estimates the count for the hash of an element.
+     *
+     * @param hash
+     *      the hash of the element.
+     * @return
+     *      the smallest counter of the element.
+     */
+    private long lookup(long hash) {
+        return estimate(hash, this.container.hashLong(hash, 1, 3) | 1);
+    }
+
+    /**
+     * Estimates the count for the hashes of an element.
+     *
+     * @param hash
+     *      the hash of the element.
+     * @param step
+     *      the hash of the hash of the element.
+     * @return
+     *      the smallest counter of the element.
+     */
+    private long estimate(long hash, long step) {
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < this.depth; i++) {
+            estimate = Math.min(estimate, get(index(hash, step, i)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Locates the counter of an element within a row.
+     *
+     * @param hash
+     *      the hash of the element.
+     * @param step
+     *      the hash of the hash of the element.
+     * @param row
+     *      the row of the counter.
+     * @return
+     *      the index of the counter.
+     */
+    private int index(long hash, long step, int row) {
+        long mixed = (hash + row * step ^ this.offsets[row]) * 0x9e3779b97f4a7c15L;
+        return row << (64 - this.shift) | (int) (mixed >>> this.shift);
+    }
+
+    /**
+     * Retrieves the value of a counter.
+     *
+     * @param index
+     *      the index of the counter.
+     * @return
+     *      the value of the counter.
+     */
+    private long get(int index) {
+        return this.counters != null ? this.counters[index] : this.atomic.get(index);
+    }
+
+    /**
+     * Raises a counter to a value, if it's currently lower.
+     *
+     * @param index
+     *      the index of the counter.
+     * @param value
+     *      the value to raise the counter to.
+     */
+    private void raise(int index, long value) {
+        if (this.counters != null) {
+            if (this.counters[index] < value) {
+                this.counters[index] = value;
+            }
+            return;
+        }
+
+        for (;;) {
+            long current = this.atomic.get(index);
+            if (current >= value || this.atomic.compareAndSet(index, current, value)) {
+                return;
+            }
+        }
+    }
+}
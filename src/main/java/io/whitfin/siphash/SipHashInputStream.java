@@ -0,0 +1,189 @@
+package io.whitfin.siphash;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream which hashes all bytes read through it.
+ *
+ * Bytes are passed to a {@link SipHasherStream} as they're read from the
+ * underlying stream, so the hash of the input is available once the stream
+ * has been consumed without having to buffer the input separately. As the
+ * digest of a {@link SipHasherStream} does not finalize the stream, the hash
+ * of all bytes read so far can be retrieved at any point.
+ *
+ * Skipped bytes are read and hashed rather than being skipped on the
+ * underlying stream, so that the hash always covers the entire input. For
+ * the same reason, marking and resetting the stream is not supported.
+ */
+public final class SipHashInputStream extends FilterInputStream {
+
+    /**
+     * The size of the buffer used when skipping bytes.
+     */
+    private static final int SKIP_BUFFER_SIZE = 4096;
+
+    /**
+     * The hasher receiving all bytes read from this stream.
+     */
+    private final SipHasherStream hasher;
+
+    /**
+     * The buffer used when skipping bytes, created on first use.
+     */
+    private byte[] skip;
+
+    /**
+     * Initializes a hashing stream around an input stream.
+     *
+     * @param in
+     *      the input stream to read bytes from.
+     * @param hasher
+     *      the hasher to pass all bytes read into.
+     */
+    public SipHashInputStream(InputStream in, SipHasherStream hasher) {
+        super(in);
+        this.hasher = hasher;
+    }
+
+    /**
+     * Retrieves the hasher receiving all bytes read from this stream.
+     *
+     * @return
+     *      the {@link SipHasherStream} used by this stream.
+     */
+    public final SipHasherStream hasher() {
+        return this.hasher;
+    }
+
+    /**
+     * Retrieves the hash of all bytes read so far.
+     *
+     * @return
+     *      the result of the hash as a long.
+     * @throws IllegalStateException
+     *      if the hasher was initialized for 128-bit output.
+     */
+    public final long digest() {
+        return this.hasher.digest();
+    }
+
+    /**
+     * Retrieves the 128-bit hash of all bytes read so far.
+     *
+     * @param out
+     *      the array to write the two 64-bit halves of the output into.
+     * @return
+     *      the provided output array, for convenience.
+     * @throws IllegalStateException
+     *      if the hasher was not initialized for 128-bit output.
+     */
+    public final long[] digest128(long[] out) {
+        return this.hasher.digest128(out);
+    }
+
+    /**
+     * Reads a single byte, passing it to the hasher.
+     *
+     * @return
+     *      the byte read, or -1 at the end of the stream.
+     * @throws IOException
+     *      if the underlying stream cannot be read.
+     */
+    @Override
+    public int read() throws IOException {
+        int b = this.in.read();
+        if (b != -1) {
+            this.hasher.update((byte) b);
+        }
+        return b;
+    }
+
+    /**
+     * Reads bytes into an array, passing them to the hasher.
+     *
+     * @param bytes
+     *      the array to read bytes into.
+     * @param offset
+     *      the offset to start writing at.
+     * @param length
+     *      the maximum number of bytes to read.
+     * @return
+     *      the number of bytes read, or -1 at the end of the stream.
+     * @throws IOException
+     *      if the underlying stream cannot be read.
+     */
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        int read = this.in.read(bytes, offset, length);
+        if (read > 0) {
+            this.hasher.update(bytes, offset, read);
+        }
+        return read;
+    }
+
+    /**
+     * Skips bytes by reading them, so that they're still hashed.
+     *
+     * @param n
+     *      the number of bytes to skip.
+     * @return
+     *      the number of bytes actually skipped.
+     * @throws IOException
+     *      if the underlying stream cannot be read.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+
+        if (this.skip == null) {
+            this.skip = new byte[SKIP_BUFFER_SIZE];
+        }
+
+        long remaining = n;
+        while (remaining > 0) {
+            int read = read(this.skip, 0, (int) Math.min(this.skip.length, remaining));
+            if (read < 0) {
+                break;
+            }
+            remaining -= read;
+        }
+        return n - remaining;
+    }
+
+    /**
+     * Marking is not supported, as re-read bytes would be hashed twice.
+     *
+     * @return
+     *      false, always.
+     */
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Marking is not supported, so this does nothing.
+     *
+     * @param limit
+     *      the read limit, which is ignored.
+     */
+    @Override
+    public void mark(int limit) {
+        // not supported
+    }
+
+    /**
+     * Resetting is not supported, as re-read bytes would be hashed twice.
+     *
+     * @throws IOException
+     *      always, as resetting is not supported.
+     */
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("Mark and reset are not supported!");
+    }
+}
@@ -0,0 +1,264 @@
+package io.whitfin.siphash;
+
+import java.nio.ByteBuffer;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.spec.AlgorithmParameterSpec;
+import javax.crypto.MacSpi;
+
+/**
+ * JCA implementation of SipHash as a {@link javax.crypto.Mac}.
+ *
+ * Instances are created through the {@link SipHashProvider}, rather than being
+ * used directly. Each instance is backed by a single {@link SipHasherStream},
+ * which is created on initialization and reset after every MAC is computed, so
+ * updates (including those from a {@link ByteBuffer}) never allocate.
+ *
+ * The MAC is written as the little endian bytes of the hash, which matches the
+ * byte output of the SipHash reference implementation. Keys can be of any type
+ * (such as {@link javax.crypto.spec.SecretKeySpec}), as long as the encoded form
+ * is exactly 16 bytes.
+ */
+public abstract class SipHashMac extends MacSpi implements Cloneable {
+
+    /**
+     * The specified rounds of C compression.
+     */
+    private final int c;
+
+    /**
+     * The specified rounds of D compression.
+     */
+    private final int d;
+
+    /**
+     * Whether this MAC produces a 128-bit output.
+     */
+    private final boolean wide;
+
+    /**
+     * The 128-bit output buffer, re-used across calls.
+     */
+    private long[] out;
+
+    /**
+     * The stream backing this MAC, or null if not yet initialized.
+     */
+    private SipHasherStream stream;
+
+    /**
+     * Initializes a MAC using compression rounds and an output width.
+     *
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @param wide
+     *      whether to produce a 128-bit output.
+     */
+    SipHashMac(int c, int d, boolean wide) {
+        this.c = c;
+        this.d = d;
+        this.wide = wide;
+        this.out = wide ? new long[2] : null;
+    }
+
+    /**
+     * Retrieves the length of the MAC, in bytes.
+     *
+     * @return
+     *      the length of the MAC.
+     */
+    @Override
+    protected int engineGetMacLength() {
+        return this.wide ? 16 : 8;
+    }
+
+    /**
+     * Initializes the MAC with a key.
+     *
+     * @param key
+     *      the key to use, which must encode to exactly 16 bytes.
+     * @param params
+     *      the algorithm parameters, which must be null.
+     * @throws InvalidKeyException
+     *      if the key does not encode to exactly 16 bytes.
+     * @throws InvalidAlgorithmParameterException
+     *      if any algorithm parameters are provided.
+     */
+    @Override
+    protected void engineInit(Key key, AlgorithmParameterSpec params)
+            throws InvalidKeyException, InvalidAlgorithmParameterException {
+        if (params != null) {
+            throw new InvalidAlgorithmParameterException("SipHash does not accept parameters!");
+        }
+
+        byte[] encoded = key == null ? null : key.getEncoded();
+        if (encoded == null || encoded.length != 16) {
+            throw new InvalidKeyException("Key must be exactly 16 bytes!");
+        }
+
+        this.stream = new SipHasherStream(encoded, this.c, this.d, this.wide);
+    }
+
+    /**
+     * Updates the MAC with a single byte.
+     *
+     * @param input
+     *      the byte being added to the MAC.
+     */
+    @Override
+    protected void engineUpdate(byte input) {
+        this.stream.update(input);
+    }
+
+    /**
+     * Updates the MAC with a slice of bytes.
+     *
+     * @param input
+     *      the array containing the bytes being added to the MAC.
+     * @param offset
+     *      the offset to start reading from.
+     * @param length
+     *      the number of bytes to read.
+     */
+    @Override
+    protected void engineUpdate(byte[] input, int offset, int length) {
+        this.stream.update(input, offset, length);
+    }
+
+    /**
+     * Updates the MAC with the remaining bytes of a buffer.
+     *
+     * This is overridden to hash the buffer directly, as the default
+     * implementation copies direct buffers through a temporary array.
+     *
+     * @param input
+     *      the buffer containing the bytes being added to the MAC.
+     */
+    @Override
+    protected void engineUpdate(ByteBuffer input) {
+        this.stream.update(input);
+    }
+
+    /**
+     * Completes the MAC and resets for further use.
+     *
+     * @return
+     *      the little endian bytes of the hash.
+     */
+    @Override
+    protected byte[] engineDoFinal() {
+        byte[] mac = new byte[engineGetMacLength()];
+
+        if (this.wide) {
+            this.stream.digest128(this.out);
+            write(this.out[0], mac, 0);
+            write(this.out[1], mac, 8);
+        } else {
+            write(this.stream.digest(), mac, 0);
+        }
+
+        this.stream.reset();
+        return mac;
+    }
+
+    /**
+     * Resets the MAC to its freshly initialized state.
+     */
+    @Override
+    protected void engineReset() {
+        if (this.stream != null) {
+            this.stream.reset();
+        }
+    }
+
+    /**
+     * Creates a copy of this MAC, including any input received so far.
+     *
+     * @return
+     *      a new {@link SipHashMac} with the same state.
+     * @throws CloneNotSupportedException
+     *      never, as this class is always cloneable.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        SipHashMac mac = (SipHashMac) super.clone();
+        if (this.out != null) {
+            mac.out = new long[2];
+        }
+        if (this.stream != null) {
+            mac.stream = this.stream.copy();
+        }
+        return mac;
+    }
+
+    /**
+     * Writes a long value into an array as 8 little endian bytes.
+     *
+     * @param value
+     *      the value to write.
+     * @param bytes
+     *      the array to write into.
+     * @param offset
+     *      the offset to start writing at.
+     */
+    private static void write(long value, byte[] bytes, int offset) {
+        for (int i = 0; i < 8; i++) {
+            bytes[offset + i] = (byte) (value >>> (i * 8));
+        }
+    }
+
+    /**
+     * SipHash-2-4 with a 64-bit output.
+     */
+    public static final class SipHash24 extends SipHashMac {
+
+        /**
+         * Initializes a SipHash-2-4 MAC.
+         */
+        public SipHash24() {
+            super(2, 4, false);
+        }
+    }
+
+    /**
+     * SipHash-1-3 with a 64-bit output.
+     */
+    public static final class SipHash13 extends SipHashMac {
+
+        /**
+         * Initializes a SipHash-1-3 MAC.
+         */
+        public SipHash13() {
+            super(1, 3, false);
+        }
+    }
+
+    /**
+     * SipHash-2-4 with a 128-bit output.
+     */
+    public static final class SipHash24Wide extends SipHashMac {
+
+        /**
+         * Initializes a 128-bit SipHash-2-4 MAC.
+         */
+        public SipHash24Wide() {
+            super(2, 4, true);
+        }
+    }
+
+    /**
+     * SipHash-1-3 with a 128-bit output.
+     */
+    public static final class SipHash13Wide extends SipHashMac {
+
+        /**
+         * Initializes a 128-bit SipHash-1-3 MAC.
+         */
+        public SipHash13Wide() {
+            super(1, 3, true);
+        }
+    }
+}
@@ -0,0 +1,554 @@
+package io.whitfin.siphash;
+
+import java.nio.charset.Charset;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import static io.whitfin.siphash.SipHasher.utf8;
+
+/**
+ * Hash map keyed on byte sequences, resistant to hash flooding.
+ *
+ * Keys are hashed using SipHash-1-3 with a random key generated for every
+ * map instance, so an attacker cannot construct keys which collide without
+ * first learning the key of a specific map. This makes it suitable for input
+ * from untrusted sources, such as request headers and query parameters.
+ *
+ * Keys are either arrays of bytes or character sequences, where a character
+ * sequence is treated as its UTF-8 encoding (with unpaired surrogates being
+ * encoded as '?', as in {@link String#getBytes(Charset)}). This means that a
+ * String key and the UTF-8 bytes of that String refer to the same entry, and
+ * lookups by character sequence do not have to encode the sequence first.
+ * Keys are copied when inserted, so arrays can be re-used by the caller.
+ *
+ * Entries are stored in parallel arrays using open addressing with linear
+ * probing, rather than as a node per entry. The 64-bit hash of every key is
+ * stored alongside it, so resizing never has to hash a key again and lookups
+ * only compare keys when their hashes are equal. Removal shifts entries back
+ * into the freed slot, so there are no tombstones to degrade lookups over
+ * time. The table is kept at most half full.
+ *
+ * This class is not thread safe, and does not permit null keys.
+ *
+ * @param <V>
+ *      the type of the values stored in the map.
+ */
+public final class SipHashMap<V> {
+
+    /**
+     * The default number of entries a map can hold without resizing.
+     */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The largest number of slots in a table.
+     */
+    private static final int MAXIMUM_SLOTS = 1 << 30;
+
+    /**
+     * The UTF-8 charset, used to encode character sequences on insertion.
+     */
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The container used to hash all keys of this map.
+     */
+    private final SipHasherContainer container;
+
+    /**
+     * The hash of each key, indexed by slot.
+     */
+    private long[] hashes;
+
+    /**
+     * The key in each slot, or null if the slot is empty.
+     */
+    private byte[][] keys;
+
+    /**
+     * The value in each slot.
+     */
+    private Object[] values;
+
+    /**
+     * The number of entries in the map.
+     */
+    private int size;
+
+    /**
+     * The number of entries allowed before the table must grow.
+     */
+    private int threshold;
+
+    /**
+     * Initializes an empty map with the default capacity.
+     */
+    public SipHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Initializes an empty map able to hold a number of entries.
+     *
+     * @param capacity
+     *      the number of entries to hold before resizing.
+     * @throws IllegalArgumentException
+     *      if the capacity is negative.
+     */
+    public SipHashMap(int capacity) {
+        this(capacity, RandomKey.next());
+    }
+
+    /**
+     * Initializes an empty map using a specific key.
+     *
+     * @param capacity
+     *      the number of entries to hold before resizing.
+     * @param key
+     *      the key used to hash all keys of the map.
+     * @throws IllegalArgumentException
+     *      if the capacity is negative.
+     */
+    SipHashMap(int capacity, byte[] key) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative!");
+        }
+
+        this.container = SipHasher.container(key);
+        allocate(slots(capacity));
+    }
+
+    /**
+     * Retrieves the number of entries in the map.
+     *
+     * @return
+     *      the number of entries.
+     */
+    public final int size() {
+        return this.size;
+    }
+
+    /**
+     * Determines whether the map is empty.
+     *
+     * @return
+     *      true if the map contains no entries.
+     */
+    public final boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Determines whether the map contains a key.
+     *
+     * @param key
+     *      the key to look up.
+     * @return
+     *      true if the key is present in the map.
+     */
+    public final boolean containsKey(byte[] key) {
+        return find(key, hash(key)) >= 0;
+    }
+
+    /**
+     * Determines whether the map contains a key.
+     *
+     * @param key
+     *      the key to look up, as UTF-8.
+     * @return
+     *      true if the key is present in the map.
+     */
+    public final boolean containsKey(CharSequence key) {
+        return find(key, hash(key)) >= 0;
+    }
+
+    /**
+     * Retrieves the value associated with a key.
+     *
+     * @param key
+     *      the key to look up.
+     * @return
+     *      the associated value, or null if the key is not present.
+     */
+    public final V get(byte[] key) {
+        return value(find(key, hash(key)));
+    }
+
+    /**
+     * Retrieves the value associated with a key.
+     *
+     * @param key
+     *      the key to look up, as UTF-8.
+     * @return
+     *      the associated value, or null if the key is not present.
+     */
+    public final V get(CharSequence key) {
+        return value(find(key, hash(key)));
+    }
+
+    /**
+     * Associates a value with a key, replacing any existing value.
+     *
+     * @param key
+     *      the key to insert, which is copied.
+     * @param value
+     *      the value to associate with the key.
+     * @return
+     *      the previous value, or null if the key was not present.
+     */
+    public final V put(byte[] key, V value) {
+        long hash = hash(key);
+        int index = find(key, hash);
+        if (index >= 0) {
+            return replace(index, value);
+        }
+        insert(hash, key.clone(), value);
+        return null;
+    }
+
+    /**
+     * Associates a value with a key, replacing any existing value.
+     *
+     * @param key
+     *      the key to insert, which is stored as UTF-8.
+     * @param value
+     *      the value to associate with the key.
+     * @return
+     *      the previous value, or null if the key was not present.
+     */
+    public final V put(CharSequence key, V value) {
+        long hash = hash(key);
+        int index = find(key, hash);
+        if (index >= 0) {
+            return replace(index, value);
+        }
+        insert(hash, key.toString().getBytes(UTF_8), value);
+        return null;
+    }
+
+    /**
+     * Removes a key and its associated value.
+     *
+     * @param key
+     *      the key to remove.
+     * @return
+     *      the removed value, or null if the key was not present.
+     */
+    public final V remove(byte[] key) {
+        return delete(find(key, hash(key)));
+    }
+
+    /**
+     * Removes a key and its associated value.
+     *
+     * @param key
+     *      the key to remove, as UTF-8.
+     * @return
+     *      the removed value, or null if the key was not present.
+     */
+    public final V remove(CharSequence key) {
+        return delete(find(key, hash(key)));
+    }
+
+    /**
+     * Removes all entries from the map, retaining the current capacity.
+     */
+    public final void clear() {
+        Arrays.fill(this.keys, null);
+        Arrays.fill(this.values, null);
+        this.size = 0;
+    }
+
+    /**
+     * Hashes a key of bytes.
+     *
+     * @param key
+     *      the key to hash.
+     * @return
+     *      the hash of the key.
+     */
+    private long hash(byte[] key) {
+        return this.container.hash(key, 1, 3);
+    }
+
+    /**
+     * Hashes a key of characters, as UTF-8.
+     *
+     * @param key
+     *      the key to hash.
+     * @return
+     *      the hash of the key.
+     */
+    private long hash(CharSequence key) {
+        return this.container.hashUtf8(key, 1, 3);
+    }
+
+    /**
+     * Locates the slot holding a key of bytes.
+     *
+     * @param key
+     *      the key to locate.
+     * @param hash
+     *      the hash of the key.
+     * @return
+     *      the slot holding the key, or -1 if not present.
+     */
+    private int find(byte[] key, long hash) {
+        int mask = this.keys.length - 1;
+        for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+            byte[] k = this.keys[i];
+            if (k == null) {
+                return -1;
+            }
+            if (this.hashes[i] == hash && Arrays.equals(k, key)) {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * Locates the slot holding a key of characters.
+     *
+     * @param key
+     *      the key to locate.
+     * @param hash
+     *      the hash of the key.
+     * @return
+     *      the slot holding the key, or -1 if not present.
+     */
+    private int find(CharSequence key, long hash) {
+        int mask = this.keys.length - 1;
+        for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+            byte[] k = this.keys[i];
+            if (k == null) {
+                return -1;
+            }
+            if (this.hashes[i] == hash && equals(key, k)) {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * Retrieves the value in a slot.
+     *
+     * @param index
+     *      the slot to read, or -1 for a missing key.
+     * @return
+     *      the value in the slot, or null for a missing key.
+     */
+    @SuppressWarnings("unchecked")
+    private V value(int index) {
+        return index < 0 ? null : (V) this.values[index];
+    }
+
+    /**
+     * Replaces the value in a slot.
+     *
+     * @param index
+     *      the slot to write.
+     * @param value
+     *      the value to write.
+     * @return
+     *      the previous value in the slot.
+     */
+    private V replace(int index, V value) {
+        V previous = value(index);
+        this.values[index] = value;
+        return previous;
+    }
+
+    /**
+     * Inserts a new entry, growing the table if necessary.
+     *
+     * @param hash
+     *      the hash of the key.
+     * @param key
+     *      the key to insert, which must not be present.
+     * @param value
+     *      the value to insert.
+     */
+    private void insert(long hash, byte[] key, Object value) {
+        if (this.size >= this.threshold) {
+            resize();
+        }
+        place(hash, key, value);
+        this.size++;
+    }
+
+    /**
+     * Places an entry into the first free slot from its home slot.
+     *
+     * @param hash
+     *      the hash of the key.
+     * @param key
+     *      the key to place.
+     * @param value
+     *      the value to place.
+     */
+    private void place(long hash, byte[] key, Object value) {
+        int mask = this.keys.length - 1;
+        int i = (int) hash & mask;
+        while (this.keys[i] != null) {
+            i = (i + 1) & mask;
+        }
+        this.hashes[i] = hash;
+        this.keys[i] = key;
+        this.values[i] = value;
+    }
+
+    /**
+     * Removes the entry in a slot, shifting back any displaced entries.
+     *
+     * Every entry after the freed slot (up to the next empty slot) is moved
+     * back into the gap if the gap lies between its home slot and itself,
+     * so that every entry remains reachable from its home slot.
+     *
+     * @param index
+     *      the slot to remove, or -1 for a missing key.
+     * @return
+     *      the removed value, or null for a missing key.
+     */
+    private V delete(int index) {
+        if (index < 0) {
+            return null;
+        }
+
+        V previous = value(index);
+        int mask = this.keys.length - 1;
+
+        int gap = index;
+        for (int i = (index + 1) & mask; this.keys[i] != null; i = (i + 1) & mask) {
+            int home = (int) this.hashes[i] & mask;
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                this.hashes[gap] = this.hashes[i];
+                this.keys[gap] = this.keys[i];
+                this.values[gap] = this.values[i];
+                gap = i;
+            }
+        }
+
+        this.keys[gap] = null;
+        this.values[gap] = null;
+        this.size--;
+
+        return previous;
+    }
+
+    /**
+     * Doubles the size of the table, placing entries using their stored hash.
+     *
+     * @throws IllegalStateException
+     *      if the table cannot grow any further.
+     */
+    private void resize() {
+        if (this.keys.length == MAXIMUM_SLOTS) {
+            throw new IllegalStateException("Map cannot grow beyond 2^29 entries!");
+        }
+
+        long[] hashes = this.hashes;
+        byte[][] keys = this.keys;
+        Object[] values = this.values;
+
+        allocate(keys.length * 2);
+
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                place(hashes[i], keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Allocates an empty table with a number of slots.
+     *
+     * @param slots
+     *      the number of slots, as a power of two.
+     */
+    private void allocate(int slots) {
+        this.hashes = new long[slots];
+        this.keys = new byte[slots][];
+        this.values = new Object[slots];
+        this.threshold = slots / 2;
+    }
+
+    /**
+     * Calculates the number of slots required to hold a number of entries.
+     *
+     * @param capacity
+     *      the number of entries to hold.
+     * @return
+     *      the number of slots, as a power of two.
+     */
+    private static int slots(int capacity) {
+        if (capacity >= MAXIMUM_SLOTS / 2) {
+            return MAXIMUM_SLOTS;
+        }
+        return Math.max(2, Integer.highestOneBit(capacity * 2 - 1) << 1);
+    }
+
+    /**
+     * Determines whether characters encode to a byte array as UTF-8.
+     *
+     * @param chars
+     *      the characters to compare.
+     * @param bytes
+     *      the bytes to compare.
+     * @return
+     *      true if the characters encode to the bytes.
+     */
+    static boolean equals(CharSequence chars, byte[] bytes) {
+        int length = chars.length();
+        int j = 0;
+
+        for (int i = 0; i < length; ) {
+            char ch = chars.charAt(i);
+            if (ch < 0x80) {
+                if (j == bytes.length || bytes[j++] != (byte) ch) {
+                    return false;
+                }
+                i++;
+                continue;
+            }
+
+            long encoded = utf8(chars, i);
+            int count = (int) (encoded >>> 32);
+            if (bytes.length - j < count) {
+                return false;
+            }
+
+            for (int k = 0; k < count; k++) {
+                if (bytes[j++] != (byte) (encoded >>> (k * 8))) {
+                    return false;
+                }
+            }
+            i += count == 4 ? 2 : 1;
+        }
+
+        return j == bytes.length;
+    }
+
+    /**
+     * Holder of the random source for map keys, so that it's only created
+     * when first used.
+     */
+    static final class RandomKey {
+
+        /**
+         * The shared random source, which is thread safe.
+         */
+        private static final SecureRandom RANDOM = new SecureRandom();
+
+        /**
+         * Generates a new random key.
+         *
+         * @return
+         *      a random 16 byte key.
+         */
+        static byte[] next() {
+            byte[] key = new byte[16];
+            RANDOM.nextBytes(key);
+            return key;
+        }
+    }
+}
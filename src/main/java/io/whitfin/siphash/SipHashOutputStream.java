@@ -0,0 +1,102 @@
+package io.whitfin.siphash;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream which hashes all bytes written through it.
+ *
+ * Bytes are passed to a {@link SipHasherStream} as they're written to the
+ * underlying stream, with arrays being written and hashed in bulk (rather
+ * than a byte at a time, as in {@link FilterOutputStream}). The hash of all
+ * bytes written so far can be retrieved at any point.
+ */
+public final class SipHashOutputStream extends FilterOutputStream {
+
+    /**
+     * The hasher receiving all bytes written to this stream.
+     */
+    private final SipHasherStream hasher;
+
+    /**
+     * Initializes a hashing stream around an output stream.
+     *
+     * @param out
+     *      the output stream to write bytes to.
+     * @param hasher
+     *      the hasher to pass all bytes written into.
+     */
+    public SipHashOutputStream(OutputStream out, SipHasherStream hasher) {
+        super(out);
+        this.hasher = hasher;
+    }
+
+    /**
+     * Retrieves the hasher receiving all bytes written to this stream.
+     *
+     * @return
+     *      the {@link SipHasherStream} used by this stream.
+     */
+    public final SipHasherStream hasher() {
+        return this.hasher;
+    }
+
+    /**
+     * Retrieves the hash of all bytes written so far.
+     *
+     * @return
+     *      the result of the hash as a long.
+     * @throws IllegalStateException
+     *      if the hasher was initialized for 128-bit output.
+     */
+    public final long digest() {
+        return this.hasher.digest();
+    }
+
+    /**
+     * Retrieves the 128-bit hash of all bytes written so far.
+     *
+     * @param out
+     *      the array to write the two 64-bit halves of the output into.
+     * @return
+     *      the provided output array, for convenience.
+     * @throws IllegalStateException
+     *      if the hasher was not initialized for 128-bit output.
+     */
+    public final long[] digest128(long[] out) {
+        return this.hasher.digest128(out);
+    }
+
+    /**
+     * Writes a single byte, passing it to the hasher.
+     *
+     * @param b
+     *      the byte to write.
+     * @throws IOException
+     *      if the underlying stream cannot be written.
+     */
+    @Override
+    public void write(int b) throws IOException {
+        this.out.write(b);
+        this.hasher.update((byte) b);
+    }
+
+    /**
+     * Writes bytes from an array, passing them to the hasher.
+     *
+     * @param bytes
+     *      the array containing the bytes to write.
+     * @param offset
+     *      the offset to start reading from.
+     * @param length
+     *      the number of bytes to write.
+     * @throws IOException
+     *      if the underlying stream cannot be written.
+     */
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        this.out.write(bytes, offset, length);
+        this.hasher.update(bytes, offset, length);
+    }
+}
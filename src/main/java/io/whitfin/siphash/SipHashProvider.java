@@ -0,0 +1,54 @@
+package io.whitfin.siphash;
+
+import java.security.Provider;
+
+/**
+ * JCA provider exposing SipHash through {@link javax.crypto.Mac}.
+ *
+ * This allows SipHash to be used by code written against the standard JCA
+ * interfaces, either by passing an instance to {@link javax.crypto.Mac#getInstance(String, Provider)}
+ * or by registering it via {@link java.security.Security#addProvider(Provider)}.
+ * The following algorithms are registered:
+ *
+ * <ul>
+ *   <li>SipHash-2-4 (also SipHash), with a 64-bit output.</li>
+ *   <li>SipHash-1-3, with a 64-bit output.</li>
+ *   <li>SipHash-2-4-128 (also SipHash-128), with a 128-bit output.</li>
+ *   <li>SipHash-1-3-128, with a 128-bit output.</li>
+ * </ul>
+ *
+ * As SipHash always requires a key, there is no {@link java.security.MessageDigest}
+ * implementation. Note that some JDK vendors require providers of the
+ * {@code javax.crypto} services to be signed, which this provider is not.
+ */
+public final class SipHashProvider extends Provider {
+
+    /**
+     * The name of this provider.
+     */
+    public static final String NAME = "SipHash";
+
+    /**
+     * Serialization version, as required by {@link Provider}.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Initializes the provider and registers all algorithms.
+     *
+     * The numeric version constructor is deprecated as of Java 9, but its
+     * replacement doesn't exist on Java 7 and 8.
+     */
+    @SuppressWarnings("deprecation")
+    public SipHashProvider() {
+        super(NAME, 2.0, "SipHash provider (SipHash-2-4, SipHash-1-3 and 128-bit variants)");
+
+        put("Mac.SipHash-2-4", SipHashMac.SipHash24.class.getName());
+        put("Mac.SipHash-1-3", SipHashMac.SipHash13.class.getName());
+        put("Mac.SipHash-2-4-128", SipHashMac.SipHash24Wide.class.getName());
+        put("Mac.SipHash-1-3-128", SipHashMac.SipHash13Wide.class.getName());
+
+        put("Alg.Alias.Mac.SipHash", "SipHash-2-4");
+        put("Alg.Alias.Mac.SipHash-128", "SipHash-2-4-128");
+    }
+}
@@ -0,0 +1,141 @@
+package io.whitfin.siphash;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Readable channel which hashes all bytes read through it.
+ *
+ * Bytes are hashed directly from the destination buffer after each read, so
+ * no copy is made regardless of the buffer type. The hash of all bytes read
+ * so far can be retrieved at any point.
+ */
+public final class SipHashReadableChannel implements ReadableByteChannel {
+
+    /**
+     * The channel to read bytes from.
+     */
+    private final ReadableByteChannel channel;
+
+    /**
+     * The hasher receiving all bytes read from this channel.
+     */
+    private final SipHasherStream hasher;
+
+    /**
+     * Initializes a hashing channel around a readable channel.
+     *
+     * @param channel
+     *      the channel to read bytes from.
+     * @param hasher
+     *      the hasher to pass all bytes read into.
+     */
+    public SipHashReadableChannel(ReadableByteChannel channel, SipHasherStream hasher) {
+        this.channel = channel;
+        this.hasher = hasher;
+    }
+
+    /**
+     * Retrieves the hasher receiving all bytes read from this channel.
+     *
+     * @return
+     *      the {@link SipHasherStream} used by this channel.
+     */
+    public final SipHasherStream hasher() {
+        return this.hasher;
+    }
+
+    /**
+     * Retrieves the hash of all bytes read so far.
+     *
+     * @return
+     *      the result of the hash as a long.
+     * @throws IllegalStateException
+     *      if the hasher was initialized for 128-bit output.
+     */
+    public final long digest() {
+        return this.hasher.digest();
+    }
+
+    /**
+     * Retrieves the 128-bit hash of all bytes read so far.
+     *
+     * @param out
+     *      the array to write the two 64-bit halves of the output into.
+     * @return
+     *      the provided output array, for convenience.
+     * @throws IllegalStateException
+     *      if the hasher was not initialized for 128-bit output.
+     */
+    public final long[] digest128(long[] out) {
+        return this.hasher.digest128(out);
+    }
+
+    /**
+     * Reads bytes into a buffer, passing them to the hasher.
+     *
+     * @param dst
+     *      the buffer to read bytes into.
+     * @return
+     *      the number of bytes read, or -1 at the end of the channel.
+     * @throws IOException
+     *      if the underlying channel cannot be read.
+     */
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        int position = dst.position();
+        int read = this.channel.read(dst);
+        if (read > 0) {
+            update(this.hasher, dst, position, dst.position());
+        }
+        return read;
+    }
+
+    /**
+     * Determines whether the underlying channel is open.
+     *
+     * @return
+     *      true if the underlying channel is open.
+     */
+    @Override
+    public boolean isOpen() {
+        return this.channel.isOpen();
+    }
+
+    /**
+     * Closes the underlying channel.
+     *
+     * @throws IOException
+     *      if the underlying channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Hashes a range of a buffer without allocating a view of the range.
+     *
+     * The limit of the buffer is restored afterwards, and the position is
+     * left at the end of the range.
+     *
+     * @param hasher
+     *      the hasher to pass the bytes into.
+     * @param buffer
+     *      the buffer containing the bytes.
+     * @param from
+     *      the position of the first byte to hash.
+     * @param to
+     *      the position after the last byte to hash.
+     */
+    static void update(SipHasherStream hasher, ByteBuffer buffer, int from, int to) {
+        Buffer view = buffer;
+        int limit = view.limit();
+
+        view.limit(to).position(from);
+        hasher.update(buffer);
+        view.limit(limit);
+    }
+}
@@ -0,0 +1,118 @@
+package io.whitfin.siphash;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import static io.whitfin.siphash.SipHashReadableChannel.update;
+
+/**
+ * Writable channel which hashes all bytes written through it.
+ *
+ * Only the bytes accepted by the underlying channel are hashed, directly
+ * from the source buffer, so partial writes are handled correctly and no copy
+ * is made. The hash of all bytes written so far can be retrieved at any point.
+ */
+public final class SipHashWritableChannel implements WritableByteChannel {
+
+    /**
+     * The channel to write bytes to.
+     */
+    private final WritableByteChannel channel;
+
+    /**
+     * The hasher receiving all bytes written to this channel.
+     */
+    private final SipHasherStream hasher;
+
+    /**
+     * Initializes a hashing channel around a writable channel.
+     *
+     * @param channel
+     *      the channel to write bytes to.
+     * @param hasher
+     *      the hasher to pass all bytes written into.
+     */
+    public SipHashWritableChannel(WritableByteChannel channel, SipHasherStream hasher) {
+        this.channel = channel;
+        this.hasher = hasher;
+    }
+
+    /**
+     * Retrieves the hasher receiving all bytes written to this channel.
+     *
+     * @return
+     *      the {@link SipHasherStream} used by this channel.
+     */
+    public final SipHasherStream hasher() {
+        return this.hasher;
+    }
+
+    /**
+     * Retrieves the hash of all bytes written so far.
+     *
+     * @return
+     *      the result of the hash as a long.
+     * @throws IllegalStateException
+     *      if the hasher was initialized for 128-bit output.
+     */
+    public final long digest() {
+        return this.hasher.digest();
+    }
+
+    /**
+     * Retrieves the 128-bit hash of all bytes written so far.
+     *
+     * @param out
+     *      the array to write the two 64-bit halves of the output into.
+     * @return
+     *      the provided output array, for convenience.
+     * @throws IllegalStateException
+     *      if the hasher was not initialized for 128-bit output.
+     */
+    public final long[] digest128(long[] out) {
+        return this.hasher.digest128(out);
+    }
+
+    /**
+     * Writes bytes from a buffer, passing them to the hasher.
+     *
+     * @param src
+     *      the buffer containing the bytes to write.
+     * @return
+     *      the number of bytes written.
+     * @throws IOException
+     *      if the underlying channel cannot be written.
+     */
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int position = src.position();
+        int written = this.channel.write(src);
+        if (written > 0) {
+            update(this.hasher, src, position, src.position());
+        }
+        return written;
+    }
+
+    /**
+     * Determines whether the underlying channel is open.
+     *
+     * @return
+     *      true if the underlying channel is open.
+     */
+    @Override
+    public boolean isOpen() {
+        return this.channel.isOpen();
+    }
+
+    /**
+     * Closes the underlying channel.
+     *
+     * @throws IOException
+     *      if the underlying channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
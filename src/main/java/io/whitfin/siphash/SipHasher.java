@@ -1,5 +1,15 @@
 package io.whitfin.siphash;
 
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Provides hashing for the SipHash cryptographic hash family.
  *
@@ -24,6 +34,15 @@ package io.whitfin.siphash;
  * basis via {@link #init(byte[])} and can be updated with bytes multiple times
  * via {@link SipHasherStream#update(byte[])}. Once all input has been updated,
  * a final call to {@link SipHasherStream#digest()} will return the digested data.
+ *
+ * All implementations can also hash directly from a {@link ByteBuffer}, such as
+ * a direct buffer received from a channel, without copying to the heap first.
+ * Files can be hashed via {@link #hashFile(byte[], Path)}, which will memory map
+ * the file rather than reading it onto the heap.
+ *
+ * Each implementation also supports the 128-bit output variant of SipHash, via
+ * {@link #hash128(byte[], byte[], long[])} and the equivalent container and
+ * streaming methods. Output is written to a provided array to avoid allocation.
  */
 public final class SipHasher {
 
@@ -57,6 +76,21 @@ public final class SipHasher {
      */
     static final long INITIAL_V3 = 0x7465646279746573L;
 
+    /**
+     * Size of each window mapped into memory when hashing files.
+     */
+    static final long MAP_WINDOW = 1L << 30;
+
+    /**
+     * Handle used to read a little endian long from a byte array in one load.
+     *
+     * On Java 9+ this is a byte array view VarHandle, exposed as a MethodHandle
+     * so that it can be invoked from Java 7 sources. As it's a constant, the JIT
+     * will compile it down to a single load. On older runtimes this is null and
+     * the bytes are combined manually instead.
+     */
+    private static final MethodHandle LONG_VIEW = longView();
+
     /**
      * Creates a new container, seeded with the provided key.
      *
@@ -101,6 +135,90 @@ public final class SipHasher {
      *      a long value as the output of the hash.
      */
     public static long hash(byte[] key, byte[] data, int c, int d) {
+        return hash(key, data, 0, data.length, c, d);
+    }
+
+    /**
+     * Hashes a slice of a data input for a given key, using the provided
+     * rounds of compression.
+     *
+     * The slice is hashed in place, so this is equivalent to hashing a copy
+     * of the range without the need to allocate the copy. Rounds must be
+     * provided, as a slice with default rounds would clash with the
+     * signature of {@link #hash(byte[], byte[], int, int)}.
+     *
+     * @param key
+     *      the key to seed the hash with.
+     * @param data
+     *      the array containing the input data to hash.
+     * @param offset
+     *      the index of the first byte to hash.
+     * @param length
+     *      the number of bytes to hash.
+     * @param c
+     *      the number of C rounds of compression
+     * @param d
+     *      the number of D rounds of compression.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public static long hash(byte[] key, byte[] data, int offset, int length, int c, int d) {
+        if (key.length != 16) {
+            throw new IllegalArgumentException("Key must be exactly 16 bytes!");
+        }
+
+        checkBounds(data, offset, length);
+
+        long k0 = bytesToLong(key, 0);
+        long k1 = bytesToLong(key, 8);
+
+        return hash(
+            c, d,
+            INITIAL_V0 ^ k0,
+            INITIAL_V1 ^ k1,
+            INITIAL_V2 ^ k0,
+            INITIAL_V3 ^ k1,
+            data, offset, length
+        );
+    }
+
+    /**
+     * Hashes the remaining bytes of a buffer for a given key.
+     *
+     * This will used the default values for C and D rounds.
+     *
+     * @param key
+     *      the key to seed the hash with.
+     * @param data
+     *      the buffer containing the input data to hash.
+     * @return
+     *      a long value as the output of the hash.
+     * @see #hash(byte[], ByteBuffer, int, int)
+     */
+    public static long hash(byte[] key, ByteBuffer data) {
+        return hash(key, data, DEFAULT_C, DEFAULT_D);
+    }
+
+    /**
+     * Hashes the remaining bytes of a buffer for a given key, using the
+     * provided rounds of compression.
+     *
+     * The bytes between the position and limit of the buffer are hashed
+     * in place, without copying. The position of the buffer is left as-is,
+     * and any buffer type is supported (heap, direct, or read-only).
+     *
+     * @param key
+     *      the key to seed the hash with.
+     * @param data
+     *      the buffer containing the input data to hash.
+     * @param c
+     *      the number of C rounds of compression
+     * @param d
+     *      the number of D rounds of compression.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public static long hash(byte[] key, ByteBuffer data, int c, int d) {
         if (key.length != 16) {
             throw new IllegalArgumentException("Key must be exactly 16 bytes!");
         }
@@ -118,6 +236,113 @@ public final class SipHasher {
         );
     }
 
+    /**
+     * Hashes a data input for a given key, producing a 128-bit output.
+     *
+     * This will used the default values for C and D rounds.
+     *
+     * @param key
+     *      the key to seed the hash with.
+     * @param data
+     *      the input data to hash.
+     * @param out
+     *      the array to write the two 64-bit halves of the output into.
+     * @return
+     *      the provided output array, for convenience.
+     * @see #hash128(byte[], byte[], int, int, long[])
+     */
+    public static long[] hash128(byte[] key, byte[] data, long[] out) {
+        return hash128(key, data, DEFAULT_C, DEFAULT_D, out);
+    }
+
+    /**
+     * Hashes a data input for a given key, using the provided rounds
+     * of compression and producing a 128-bit output.
+     *
+     * The output is written into the first two elements of the provided
+     * array, to avoid allocation. The first element contains the first 8
+     * bytes of the reference output (in little endian), and the second
+     * element contains the last 8 bytes.
+     *
+     * @param key
+     *      the key to seed the hash with.
+     * @param data
+     *      the input data to hash.
+     * @param c
+     *      the number of C rounds of compression
+     * @param d
+     *      the number of D rounds of compression.
+     * @param out
+     *      the array to write the two 64-bit halves of the output into.
+     * @return
+     *      the provided output array, for convenience.
+     */
+    public static long[] hash128(byte[] key, byte[] data, int c, int d, long[] out) {
+        if (key.length != 16) {
+            throw new IllegalArgumentException("Key must be exactly 16 bytes!");
+        }
+
+        checkOutput(out);
+
+        long k0 = bytesToLong(key, 0);
+        long k1 = bytesToLong(key, 8);
+
+        return hash128(
+            c, d,
+            INITIAL_V0 ^ k0,
+            INITIAL_V1 ^ k1 ^ 0xee,
+            INITIAL_V2 ^ k0,
+            INITIAL_V3 ^ k1,
+            data, 0, data.length,
+            out
+        );
+    }
+
+    /**
+     * Hashes the contents of a file for a given key.
+     *
+     * This will used the default values for C and D rounds.
+     *
+     * @param key
+     *      the key to seed the hash with.
+     * @param path
+     *      the path of the file to hash.
+     * @return
+     *      a long value as the output of the hash.
+     * @throws IOException
+     *      if the file cannot be opened or mapped.
+     * @see #hashFile(byte[], Path, int, int)
+     */
+    public static long hashFile(byte[] key, Path path) throws IOException {
+        return hashFile(key, path, DEFAULT_C, DEFAULT_D);
+    }
+
+    /**
+     * Hashes the contents of a file for a given key, using the provided
+     * rounds of compression.
+     *
+     * The file is memory mapped in windows of 1 GiB, with each window being
+     * fed through a {@link SipHasherStream} without copying to the heap. This
+     * supports files of any size, including those larger than 2 GiB. The
+     * result is identical to hashing the contents of the file as an array.
+     *
+     * @param key
+     *      the key to seed the hash with.
+     * @param path
+     *      the path of the file to hash.
+     * @param c
+     *      the number of C rounds of compression
+     * @param d
+     *      the number of D rounds of compression.
+     * @return
+     *      a long value as the output of the hash.
+     * @throws IOException
+     *      if the file cannot be opened or mapped.
+     */
+    public static long hashFile(byte[] key, Path path, int c, int d) throws IOException {
+        return hashFile(init(key, c, d), path, MAP_WINDOW);
+    }
+
     /**
      * Initializes a streaming hash, seeded with the given key.
      *
@@ -148,7 +373,91 @@ public final class SipHasher {
      *      a {@link SipHasherStream} instance to update and digest.
      */
     public static SipHasherStream init(byte[] key, int c, int d) {
-        return new SipHasherStream(key, c, d);
+        return new SipHasherStream(key, c, d, false);
+    }
+
+    /**
+     * Initializes a streaming hash with a 128-bit output, seeded with the
+     * given key.
+     *
+     * This will used the default values for C and D rounds.
+     *
+     * @param key
+     *      the key to seed the hash with.
+     * @return
+     *      a {@link SipHasherStream} instance to update and digest.
+     */
+    public static SipHasherStream init128(byte[] key) {
+        return init128(key, DEFAULT_C, DEFAULT_D);
+    }
+
+    /**
+     * Initializes a streaming hash with a 128-bit output, seeded with the
+     * given key and desired rounds of compression.
+     *
+     * Streams created via this method must be finalized using the
+     * {@link SipHasherStream#digest128(long[])} method.
+     *
+     * @param key
+     *      the key to seed the hash with.
+     * @param c
+     *      the number of C rounds of compression
+     * @param d
+     *      the number of D rounds of compression.
+     * @return
+     *      a {@link SipHasherStream} instance to update and digest.
+     */
+    public static SipHasherStream init128(byte[] key, int c, int d) {
+        return new SipHasherStream(key, c, d, true);
+    }
+
+    /**
+     * Creates a new tree hasher, seeded with the provided key.
+     *
+     * This will use the default chunk size and a shared pool.
+     *
+     * @param key
+     *      the key bytes used to seed the tree hasher.
+     * @return
+     *      a {@link SipTreeHasher} instance after initialization.
+     */
+    public static SipTreeHasher tree(byte[] key) {
+        return tree(key, SipTreeHasher.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a new tree hasher, seeded with the provided key and using
+     * the provided chunk size.
+     *
+     * Chunks are hashed on a pool shared by all tree hashers, which has
+     * a parallelism equal to the number of available processors.
+     *
+     * @param key
+     *      the key bytes used to seed the tree hasher.
+     * @param chunkSize
+     *      the size of each chunk, in bytes.
+     * @return
+     *      a {@link SipTreeHasher} instance after initialization.
+     */
+    public static SipTreeHasher tree(byte[] key, int chunkSize) {
+        return tree(key, chunkSize, SipTreeHasher.defaultPool());
+    }
+
+    /**
+     * Creates a new tree hasher, seeded with the provided key and using
+     * the provided chunk size and pool.
+     *
+     * @param key
+     *      the key bytes used to seed the tree hasher.
+     * @param chunkSize
+     *      the size of each chunk, in bytes.
+     * @param pool
+     *      the pool to hash chunks on.
+     * @return
+     *      a {@link SipTreeHasher} instance after initialization.
+     */
+    public static SipTreeHasher tree(byte[] key, int chunkSize, ForkJoinPool pool) {
+        return new SipTreeHasher(key, chunkSize, pool);
     }
 
     /**
@@ -174,10 +483,86 @@ public final class SipHasher {
         return sb.append(hex).toString();
     }
 
+    /**
+     * Feeds the contents of a file through a stream, in mapped windows.
+     *
+     * @param stream
+     *      the stream to update with the file contents.
+     * @param path
+     *      the path of the file to hash.
+     * @param window
+     *      the maximum number of bytes to map at once.
+     * @return
+     *      a long value as the output of the hash.
+     * @throws IOException
+     *      if the file cannot be opened or mapped.
+     */
+    static long hashFile(SipHasherStream stream, Path path, long window) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += window) {
+                long length = Math.min(window, size - position);
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                stream.update(buffer.order(ByteOrder.LITTLE_ENDIAN));
+            }
+        }
+        return stream.digest();
+    }
+
+    /**
+     * Validates that a slice lies within the bounds of an array.
+     *
+     * @param data
+     *      the array being sliced.
+     * @param offset
+     *      the index of the first byte in the slice.
+     * @param length
+     *      the number of bytes in the slice.
+     * @throws IndexOutOfBoundsException
+     *      if the slice is not contained within the array.
+     */
+    static void checkBounds(byte[] data, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new IndexOutOfBoundsException("Slice must be within the bounds of the data!");
+        }
+    }
+
+    /**
+     * Validates that an array can hold a 128-bit output.
+     *
+     * @param out
+     *      the array to write the output to.
+     * @throws IllegalArgumentException
+     *      if the array holds fewer than two elements.
+     */
+    static void checkOutput(long[] out) {
+        if (out.length < 2) {
+            throw new IllegalArgumentException("Output must hold at least 2 longs!");
+        }
+    }
+
+    /**
+     * Validates that an array can hold the output of a batch.
+     *
+     * @param count
+     *      the number of inputs in the batch.
+     * @param out
+     *      the array to write the output to.
+     * @throws IllegalArgumentException
+     *      if the array holds fewer elements than there are inputs.
+     */
+    static void checkBatch(int count, long[] out) {
+        if (out.length < count) {
+            throw new IllegalArgumentException("Output must hold a hash for every input!");
+        }
+    }
+
     /**
      * Converts a chunk of 8 bytes to a number in little endian.
      *
-     * Accepts an offset to determine where the chunk begins.
+     * Accepts an offset to determine where the chunk begins. This will use
+     * a single wide load when available, falling back to the byte-by-byte
+     * implementation in {@link #bytesToLongFallback(byte[], int)}.
      *
      * @param bytes
      *      the byte array containing our bytes to convert.
@@ -187,11 +572,40 @@ public final class SipHasher {
      *      a long representation, in little endian.
      */
     static long bytesToLong(byte[] bytes, int offset) {
-        long m = 0;
-        for (int i = 0; i < 8; i++) {
-            m |= ((((long) bytes[i + offset]) & 0xff) << (8 * i));
+        if (LONG_VIEW == null) {
+            return bytesToLongFallback(bytes, offset);
+        }
+        try {
+            return (long) LONG_VIEW.invokeExact(bytes, offset);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
         }
-        return m;
+    }
+
+    /**
+     * Converts a chunk of 8 bytes to a number in little endian.
+     *
+     * This is the fallback used on runtimes without VarHandle support; the
+     * loads are written out so that they can be scheduled independently.
+     *
+     * @param bytes
+     *      the byte array containing our bytes to convert.
+     * @param offset
+     *      the index to start at when chunking bytes.
+     * @return
+     *      a long representation, in little endian.
+     */
+    static long bytesToLongFallback(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xffL)
+            | (bytes[offset + 1] & 0xffL) << 8
+            | (bytes[offset + 2] & 0xffL) << 16
+            | (bytes[offset + 3] & 0xffL) << 24
+            | (bytes[offset + 4] & 0xffL) << 32
+            | (bytes[offset + 5] & 0xffL) << 40
+            | (bytes[offset + 6] & 0xffL) << 48
+            | (bytes[offset + 7] & 0xffL) << 56;
     }
 
     /**
@@ -201,6 +615,9 @@ public final class SipHasher {
      * compression rounds must also be provided, as nothing will be validated in
      * this layer (such as defaults).
      *
+     * The common SipHash-2-4 and SipHash-1-3 variants are routed to unrolled
+     * implementations, with all other rounds using {@link #hashGeneric}.
+     *
      * @param c
      *      the rounds of C compression to apply.
      * @param d
@@ -215,23 +632,1630 @@ public final class SipHasher {
      *      the seeded initial value of v3.
      * @param data
      *      the input data to hash using the SipHash algorithm.
+     * @param offset
+     *      the index of the first byte to hash.
+     * @param length
+     *      the number of bytes to hash.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    static long hash(int c, int d, long v0, long v1, long v2, long v3, byte[] data, int offset, int length) {
+        if (c == 2 && d == 4) {
+            return hash24(v0, v1, v2, v3, data, offset, length);
+        }
+        if (c == 1 && d == 3) {
+            return hash13(v0, v1, v2, v3, data, offset, length);
+        }
+        return hashGeneric(c, d, v0, v1, v2, v3, data, offset, length);
+    }
+
+    /**
+     * Internal 0A hashing implementation for SipHash-2-4.
+     *
+     * This is identical to {@link #hashGeneric} with C and D fixed, but has
+     * all rounds written out to avoid any loop overhead in the hot path.
+     *
+     * @param v0
+     *      the seeded initial value of v0.
+     * @param v1
+     *      the seeded initial value of v1.
+     * @param v2
+     *      the seeded initial value of v2.
+     * @param v3
+     *      the seeded initial value of v3.
+     * @param data
+     *      the input data to hash using the SipHash algorithm.
+     * @param offset
+     *      the index of the first byte to hash.
+     * @param length
+     *      the number of bytes to hash.
      * @return
      *      a long value as the output of the hash.
      */
-    static long hash(int c, int d, long v0, long v1, long v2, long v3, byte[] data) {
+    static long hash24(long v0, long v1, long v2, long v3, byte[] data, int offset, int length) {
         long m;
-        int last = data.length / 8 * 8;
-        int i = 0;
-        int r;
+        int last = offset + length / 8 * 8;
+        int i = offset;
 
         while (i < last) {
-            m = data[i++] & 0xffL;
-            for (r = 1; r < 8; r++) {
-                m |= (data[i++] & 0xffL) << (r * 8);
-            }
+            m = bytesToLong(data, i);
+            i += 8;
 
             v3 ^= m;
-            for (r = 0; r < c; r++) {
+
+            v0 += v1;
+            v2 += v3;
+            v1 = rotateLeft(v1, 13);
+            v3 = rotateLeft(v3, 16);
+
+            v1 ^= v0;
+            v3 ^= v2;
+            v0 = rotateLeft(v0, 32);
+
+            v2 += v1;
+            v0 += v3;
+            v1 = rotateLeft(v1, 17);
+            v3 = rotateLeft(v3, 21);
+
+            v1 ^= v2;
+            v3 ^= v0;
+            v2 = rotateLeft(v2, 32);
+
+            v0 += v1;
+            v2 += v3;
+            v1 = rotateLeft(v1, 13);
+            v3 = rotateLeft(v3, 16);
+
+            v1 ^= v0;
+            v3 ^= v2;
+            v0 = rotateLeft(v0, 32);
+
+            v2 += v1;
+            v0 += v3;
+            v1 = rotateLeft(v1, 17);
+            v3 = rotateLeft(v3, 21);
+
+            v1 ^= v2;
+            v3 ^= v0;
+            v2 = rotateLeft(v2, 32);
+
+            v0 ^= m;
+        }
+
+        m = 0;
+        for (i = offset + length - 1; i >= last; --i) {
+            m <<= 8;
+            m |= (data[i] & 0xffL);
+        }
+        m |= (long) length << 56;
+
+        v3 ^= m;
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        v0 ^= m;
+
+        v2 ^= 0xff;
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        return v0 ^ v1 ^ v2 ^ v3;
+    }
+
+    /**
+     * Internal 0A hashing implementation for SipHash-1-3.
+     *
+     * This is identical to {@link #hashGeneric} with C and D fixed, but has
+     * all rounds written out to avoid any loop overhead in the hot path.
+     *
+     * @param v0
+     *      the seeded initial value of v0.
+     * @param v1
+     *      the seeded initial value of v1.
+     * @param v2
+     *      the seeded initial value of v2.
+     * @param v3
+     *      the seeded initial value of v3.
+     * @param data
+     *      the input data to hash using the SipHash algorithm.
+     * @param offset
+     *      the index of the first byte to hash.
+     * @param length
+     *      the number of bytes to hash.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    static long hash13(long v0, long v1, long v2, long v3, byte[] data, int offset, int length) {
+        long m;
+        int last = offset + length / 8 * 8;
+        int i = offset;
+
+        while (i < last) {
+            m = bytesToLong(data, i);
+            i += 8;
+
+            v3 ^= m;
+
+            v0 += v1;
+            v2 += v3;
+            v1 = rotateLeft(v1, 13);
+            v3 = rotateLeft(v3, 16);
+
+            v1 ^= v0;
+            v3 ^= v2;
+            v0 = rotateLeft(v0, 32);
+
+            v2 += v1;
+            v0 += v3;
+            v1 = rotateLeft(v1, 17);
+            v3 = rotateLeft(v3, 21);
+
+            v1 ^= v2;
+            v3 ^= v0;
+            v2 = rotateLeft(v2, 32);
+
+            v0 ^= m;
+        }
+
+        m = 0;
+        for (i = offset + length - 1; i >= last; --i) {
+            m <<= 8;
+            m |= (data[i] & 0xffL);
+        }
+        m |= (long) length << 56;
+
+        v3 ^= m;
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        v0 ^= m;
+
+        v2 ^= 0xff;
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        return v0 ^ v1 ^ v2 ^ v3;
+    }
+
+    /**
+     * Internal 0A hashing implementation for arbitrary rounds.
+     *
+     * Requires initial state being manually provided (to avoid allocation). The
+     * compression rounds must also be provided, as nothing will be validated in
+     * this layer (such as defaults).
+     *
+     * @param c
+     *      the rounds of C compression to apply.
+     * @param d
+     *      the rounds of D compression to apply.
+     * @param v0
+     *      the seeded initial value of v0.
+     * @param v1
+     *      the seeded initial value of v1.
+     * @param v2
+     *      the seeded initial value of v2.
+     * @param v3
+     *      the seeded initial value of v3.
+     * @param data
+     *      the input data to hash using the SipHash algorithm.
+     * @param offset
+     *      the index of the first byte to hash.
+     * @param length
+     *      the number of bytes to hash.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    static long hashGeneric(int c, int d, long v0, long v1, long v2, long v3, byte[] data, int offset, int length) {
+        long m;
+        int last = offset + length / 8 * 8;
+        int i = offset;
+        int r;
+
+        while (i < last) {
+            m = bytesToLong(data, i);
+            i += 8;
+
+            v3 ^= m;
+            for (r = 0; r < c; r++) {
+                v0 += v1;
+                v2 += v3;
+                v1 = rotateLeft(v1, 13);
+                v3 = rotateLeft(v3, 16);
+
+                v1 ^= v0;
+                v3 ^= v2;
+                v0 = rotateLeft(v0, 32);
+
+                v2 += v1;
+                v0 += v3;
+                v1 = rotateLeft(v1, 17);
+                v3 = rotateLeft(v3, 21);
+
+                v1 ^= v2;
+                v3 ^= v0;
+                v2 = rotateLeft(v2, 32);
+            }
+            v0 ^= m;
+        }
+
+        m = 0;
+        for (i = offset + length - 1; i >= last; --i) {
+            m <<= 8;
+            m |= (data[i] & 0xffL);
+        }
+        m |= (long) length << 56;
+
+        v3 ^= m;
+        for (r = 0; r < c; r++) {
+            v0 += v1;
+            v2 += v3;
+            v1 = rotateLeft(v1, 13);
+            v3 = rotateLeft(v3, 16);
+
+            v1 ^= v0;
+            v3 ^= v2;
+            v0 = rotateLeft(v0, 32);
+
+            v2 += v1;
+            v0 += v3;
+            v1 = rotateLeft(v1, 17);
+            v3 = rotateLeft(v3, 21);
+
+            v1 ^= v2;
+            v3 ^= v0;
+            v2 = rotateLeft(v2, 32);
+        }
+        v0 ^= m;
+
+        v2 ^= 0xff;
+        for (r = 0; r < d; r++) {
+            v0 += v1;
+            v2 += v3;
+            v1 = rotateLeft(v1, 13);
+            v3 = rotateLeft(v3, 16);
+
+            v1 ^= v0;
+            v3 ^= v2;
+            v0 = rotateLeft(v0, 32);
+
+            v2 += v1;
+            v0 += v3;
+            v1 = rotateLeft(v1, 17);
+            v3 = rotateLeft(v3, 21);
+
+            v1 ^= v2;
+            v3 ^= v0;
+            v2 = rotateLeft(v2, 32);
+        }
+
+        return v0 ^ v1 ^ v2 ^ v3;
+    }
+
+    /**
+     * Internal 0A hashing implementation for a single long.
+     *
+     * This is equivalent to hashing the 8 bytes of the value in little endian,
+     * but avoids any need to write the value to an array first.
+     *
+     * @param c
+     *      the rounds of C compression to apply.
+     * @param d
+     *      the rounds of D compression to apply.
+     * @param v0
+     *      the seeded initial value of v0.
+     * @param v1
+     *      the seeded initial value of v1.
+     * @param v2
+     *      the seeded initial value of v2.
+     * @param v3
+     *      the seeded initial value of v3.
+     * @param a
+     *      the value to hash.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    static long hashLong(int c, int d, long v0, long v1, long v2, long v3, long a) {
+        int r;
+
+        v3 ^= a;
+        for (r = 0; r < c; r++) {
+            v0 += v1;
+            v2 += v3;
+            v1 = rotateLeft(v1, 13);
+            v3 = rotateLeft(v3, 16);
+
+            v1 ^= v0;
+            v3 ^= v2;
+            v0 = rotateLeft(v0, 32);
+
+            v2 += v1;
+            v0 += v3;
+            v1 = rotateLeft(v1, 17);
+            v3 = rotateLeft(v3, 21);
+
+            v1 ^= v2;
+            v3 ^= v0;
+            v2 = rotateLeft(v2, 32);
+        }
+        v0 ^= a;
+
+        return finish(c, d, v0, v1, v2, v3, 8L << 56);
+    }
+
+    /**
+     * Internal 0A hashing implementation for a pair of longs.
+     *
+     * This is equivalent to hashing the 16 bytes of both values in little
+     * endian (the first value followed by the second).
+     *
+     * @param c
+     *      the rounds of C compression to apply.
+     * @param d
+     *      the rounds of D compression to apply.
+     * @param v0
+     *      the seeded initial value of v0.
+     * @param v1
+     *      the seeded initial value of v1.
+     * @param v2
+     *      the seeded initial value of v2.
+     * @param v3
+     *      the seeded initial value of v3.
+     * @param a
+     *      the first value to hash.
+     * @param b
+     *      the second value to hash.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    static long hashLongs(int c, int d, long v0, long v1, long v2, long v3, long a, long b) {
+        int r;
+
+        v3 ^= a;
+        for (r = 0; r < c; r++) {
+            v0 += v1;
+            v2 += v3;
+            v1 = rotateLeft(v1, 13);
+            v3 = rotateLeft(v3, 16);
+
+            v1 ^= v0;
+            v3 ^= v2;
+            v0 = rotateLeft(v0, 32);
+
+            v2 += v1;
+            v0 += v3;
+            v1 = rotateLeft(v1, 17);
+            v3 = rotateLeft(v3, 21);
+
+            v1 ^= v2;
+            v3 ^= v0;
+            v2 = rotateLeft(v2, 32);
+        }
+        v0 ^= a;
+
+        v3 ^= b;
+        for (r = 0; r < c; r++) {
+            v0 += v1;
+            v2 += v3;
+            v1 = rotateLeft(v1, 13);
+            v3 = rotateLeft(v3, 16);
+
+            v1 ^= v0;
+            v3 ^= v2;
+            v0 = rotateLeft(v0, 32);
+
+            v2 += v1;
+            v0 += v3;
+            v1 = rotateLeft(v1, 17);
+            v3 = rotateLeft(v3, 21);
+
+            v1 ^= v2;
+            v3 ^= v0;
+            v2 = rotateLeft(v2, 32);
+        }
+        v0 ^= b;
+
+        return finish(c, d, v0, v1, v2, v3, 16L << 56);
+    }
+
+    /**
+     * Internal 0A hashing implementation for characters.
+     *
+     * This is equivalent to hashing the little endian bytes of each character
+     * (without replacing unpaired surrogates), with 4 characters being packed
+     * into each block.
+     *
+     * @param c
+     *      the rounds of C compression to apply.
+     * @param d
+     *      the rounds of D compression to apply.
+     * @param v0
+     *      the seeded initial value of v0.
+     * @param v1
+     *      the seeded initial value of v1.
+     * @param v2
+     *      the seeded initial value of v2.
+     * @param v3
+     *      the seeded initial value of v3.
+     * @param chars
+     *      the characters to hash.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    static long hashChars(int c, int d, long v0, long v1, long v2, long v3, CharSequence chars) {
+        int length = chars.length();
+        int last = length / 4 * 4;
+        int i = 0;
+        int r;
+        long m;
+
+        while (i < last) {
+            m = chars.charAt(i)
+                | (long) chars.charAt(i + 1) << 16
+                | (long) chars.charAt(i + 2) << 32
+                | (long) chars.charAt(i + 3) << 48;
+            i += 4;
+
+            v3 ^= m;
+            if (c == 2) {
+                v0 += v1;
+                v2 += v3;
+                v1 = rotateLeft(v1, 13);
+                v3 = rotateLeft(v3, 16);
+
+                v1 ^= v0;
+                v3 ^= v2;
+                v0 = rotateLeft(v0, 32);
+
+                v2 += v1;
+                v0 += v3;
+                v1 = rotateLeft(v1, 17);
+                v3 = rotateLeft(v3, 21);
+
+                v1 ^= v2;
+                v3 ^= v0;
+                v2 = rotateLeft(v2, 32);
+
+                v0 += v1;
+                v2 += v3;
+                v1 = rotateLeft(v1, 13);
+                v3 = rotateLeft(v3, 16);
+
+                v1 ^= v0;
+                v3 ^= v2;
+                v0 = rotateLeft(v0, 32);
+
+                v2 += v1;
+                v0 += v3;
+                v1 = rotateLeft(v1, 17);
+                v3 = rotateLeft(v3, 21);
+
+                v1 ^= v2;
+                v3 ^= v0;
+                v2 = rotateLeft(v2, 32);
+            } else {
+                for (r = 0; r < c; r++) {
+                    v0 += v1;
+                    v2 += v3;
+                    v1 = rotateLeft(v1, 13);
+                    v3 = rotateLeft(v3, 16);
+
+                    v1 ^= v0;
+                    v3 ^= v2;
+                    v0 = rotateLeft(v0, 32);
+
+                    v2 += v1;
+                    v0 += v3;
+                    v1 = rotateLeft(v1, 17);
+                    v3 = rotateLeft(v3, 21);
+
+                    v1 ^= v2;
+                    v3 ^= v0;
+                    v2 = rotateLeft(v2, 32);
+                }
+            }
+            v0 ^= m;
+        }
+
+        m = 0;
+        for (i = length - 1; i >= last; --i) {
+            m <<= 16;
+            m |= chars.charAt(i);
+        }
+        m |= (long) length << 57;
+
+        return finish(c, d, v0, v1, v2, v3, m);
+    }
+
+    /**
+     * Internal 0A hashing implementation for UTF-8 encoded characters.
+     *
+     * This is equivalent to hashing the result of encoding the characters
+     * as UTF-8 (including the replacement of malformed surrogates), but the
+     * encoded bytes are packed into blocks directly rather than into an
+     * intermediate array. Runs of ASCII are packed 8 characters at a time,
+     * and compressed directly whenever they start on a block boundary.
+     *
+     * @param c
+     *      the rounds of C compression to apply.
+     * @param d
+     *      the rounds of D compression to apply.
+     * @param v0
+     *      the seeded initial value of v0.
+     * @param v1
+     *      the seeded initial value of v1.
+     * @param v2
+     *      the seeded initial value of v2.
+     * @param v3
+     *      the seeded initial value of v3.
+     * @param chars
+     *      the characters to hash.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    static long hashUtf8(int c, int d, long v0, long v1, long v2, long v3, CharSequence chars) {
+        int length = chars.length();
+        int total = 0;
+        int bits = 0;
+        int i = 0;
+        int count;
+        int r;
+        long value;
+        long m = 0;
+
+        while (i < length) {
+            if (bits == 0) {
+                while (i + 8 <= length && (m = ascii(chars, i)) >= 0) {
+                    i += 8;
+                    total += 8;
+
+                    v3 ^= m;
+                    if (c == 2) {
+                        v0 += v1;
+                        v2 += v3;
+                        v1 = rotateLeft(v1, 13);
+                        v3 = rotateLeft(v3, 16);
+
+                        v1 ^= v0;
+                        v3 ^= v2;
+                        v0 = rotateLeft(v0, 32);
+
+                        v2 += v1;
+                        v0 += v3;
+                        v1 = rotateLeft(v1, 17);
+                        v3 = rotateLeft(v3, 21);
+
+                        v1 ^= v2;
+                        v3 ^= v0;
+                        v2 = rotateLeft(v2, 32);
+
+                        v0 += v1;
+                        v2 += v3;
+                        v1 = rotateLeft(v1, 13);
+                        v3 = rotateLeft(v3, 16);
+
+                        v1 ^= v0;
+                        v3 ^= v2;
+                        v0 = rotateLeft(v0, 32);
+
+                        v2 += v1;
+                        v0 += v3;
+                        v1 = rotateLeft(v1, 17);
+                        v3 = rotateLeft(v3, 21);
+
+                        v1 ^= v2;
+                        v3 ^= v0;
+                        v2 = rotateLeft(v2, 32);
+                    } else {
+                        for (r = 0; r < c; r++) {
+                            v0 += v1;
+                            v2 += v3;
+                            v1 = rotateLeft(v1, 13);
+                            v3 = rotateLeft(v3, 16);
+
+                            v1 ^= v0;
+                            v3 ^= v2;
+                            v0 = rotateLeft(v0, 32);
+
+                            v2 += v1;
+                            v0 += v3;
+                            v1 = rotateLeft(v1, 17);
+                            v3 = rotateLeft(v3, 21);
+
+                            v1 ^= v2;
+                            v3 ^= v0;
+                            v2 = rotateLeft(v2, 32);
+                        }
+                    }
+                    v0 ^= m;
+                }
+
+                m = 0;
+
+                if (i == length) {
+                    break;
+                }
+            }
+
+            if (i + 8 <= length && (value = ascii(chars, i)) >= 0) {
+                count = 8;
+                i += 8;
+            } else {
+                value = utf8(chars, i);
+                count = (int) (value >>> 32);
+                value &= 0xffffffffL;
+                i += count == 4 ? 2 : 1;
+            }
+
+            total += count;
+            m |= value << bits;
+            bits += count * 8;
+
+            if (bits >= 64) {
+                v3 ^= m;
+                if (c == 2) {
+                    v0 += v1;
+                    v2 += v3;
+                    v1 = rotateLeft(v1, 13);
+                    v3 = rotateLeft(v3, 16);
+
+                    v1 ^= v0;
+                    v3 ^= v2;
+                    v0 = rotateLeft(v0, 32);
+
+                    v2 += v1;
+                    v0 += v3;
+                    v1 = rotateLeft(v1, 17);
+                    v3 = rotateLeft(v3, 21);
+
+                    v1 ^= v2;
+                    v3 ^= v0;
+                    v2 = rotateLeft(v2, 32);
+
+                    v0 += v1;
+                    v2 += v3;
+                    v1 = rotateLeft(v1, 13);
+                    v3 = rotateLeft(v3, 16);
+
+                    v1 ^= v0;
+                    v3 ^= v2;
+                    v0 = rotateLeft(v0, 32);
+
+                    v2 += v1;
+                    v0 += v3;
+                    v1 = rotateLeft(v1, 17);
+                    v3 = rotateLeft(v3, 21);
+
+                    v1 ^= v2;
+                    v3 ^= v0;
+                    v2 = rotateLeft(v2, 32);
+                } else {
+                    for (r = 0; r < c; r++) {
+                        v0 += v1;
+                        v2 += v3;
+                        v1 = rotateLeft(v1, 13);
+                        v3 = rotateLeft(v3, 16);
+
+                        v1 ^= v0;
+                        v3 ^= v2;
+                        v0 = rotateLeft(v0, 32);
+
+                        v2 += v1;
+                        v0 += v3;
+                        v1 = rotateLeft(v1, 17);
+                        v3 = rotateLeft(v3, 21);
+
+                        v1 ^= v2;
+                        v3 ^= v0;
+                        v2 = rotateLeft(v2, 32);
+                    }
+                }
+                v0 ^= m;
+
+                bits -= 64;
+                m = bits == 0 ? 0 : value >>> (count * 8 - bits);
+            }
+        }
+
+        return finish(c, d, v0, v1, v2, v3, m | (long) total << 56);
+    }
+
+    /**
+     * Packs 8 ASCII characters into a little endian block.
+     *
+     * @param chars
+     *      the characters to pack.
+     * @param offset
+     *      the index of the first character to pack.
+     * @return
+     *      the packed block, or -1 if any character is not ASCII.
+     */
+    static long ascii(CharSequence chars, int offset) {
+        int c0 = chars.charAt(offset);
+        int c1 = chars.charAt(offset + 1);
+        int c2 = chars.charAt(offset + 2);
+        int c3 = chars.charAt(offset + 3);
+        int c4 = chars.charAt(offset + 4);
+        int c5 = chars.charAt(offset + 5);
+        int c6 = chars.charAt(offset + 6);
+        int c7 = chars.charAt(offset + 7);
+
+        if ((c0 | c1 | c2 | c3 | c4 | c5 | c6 | c7) >= 0x80) {
+            return -1;
+        }
+
+        return (long) (c0 | c1 << 8 | c2 << 16 | c3 << 24) & 0xffffffffL
+            | (long) (c4 | c5 << 8 | c6 << 16 | c7 << 24) << 32;
+    }
+
+    /**
+     * Encodes the code point at an index as UTF-8.
+     *
+     * Unpaired surrogates are encoded as '?', matching the behaviour of
+     * {@link String#getBytes(java.nio.charset.Charset)}. If a surrogate pair
+     * is encoded, the caller must advance past both characters (which will
+     * always be the case when 4 bytes are returned).
+     *
+     * @param chars
+     *      the characters to encode from.
+     * @param offset
+     *      the index of the character to encode.
+     * @return
+     *      the encoded bytes in little endian within the lower 32 bits,
+     *      with the number of bytes stored in the upper 32 bits.
+     */
+    static long utf8(CharSequence chars, int offset) {
+        char ch = chars.charAt(offset);
+
+        if (ch < 0x80) {
+            return 1L << 32 | ch;
+        }
+
+        if (ch < 0x800) {
+            return 2L << 32
+                | (0xc0 | ch >>> 6)
+                | (0x80 | ch & 0x3f) << 8;
+        }
+
+        if (!Character.isSurrogate(ch)) {
+            return 3L << 32
+                | (0xe0 | ch >>> 12)
+                | (0x80 | ch >>> 6 & 0x3f) << 8
+                | (0x80 | ch & 0x3f) << 16;
+        }
+
+        if (Character.isHighSurrogate(ch) && offset + 1 < chars.length()) {
+            char low = chars.charAt(offset + 1);
+            if (Character.isLowSurrogate(low)) {
+                int cp = Character.toCodePoint(ch, low);
+                return 4L << 32
+                    | (0xf0 | cp >>> 18)
+                    | (0x80 | cp >>> 12 & 0x3f) << 8
+                    | (0x80 | cp >>> 6 & 0x3f) << 16
+                    | (long) (0x80 | cp & 0x3f) << 24;
+            }
+        }
+
+        return 1L << 32 | '?';
+    }
+
+    /**
+     * Finalizes a hash by compressing the final block and applying the
+     * D rounds of compression.
+     *
+     * The final block must already contain any trailing bytes of the input,
+     * alongside the input length in the most significant byte.
+     *
+     * @param c
+     *      the rounds of C compression to apply.
+     * @param d
+     *      the rounds of D compression to apply.
+     * @param v0
+     *      the current value of v0.
+     * @param v1
+     *      the current value of v1.
+     * @param v2
+     *      the current value of v2.
+     * @param v3
+     *      the current value of v3.
+     * @param m
+     *      the final block of the input.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    static long finish(int c, int d, long v0, long v1, long v2, long v3, long m) {
+        int r;
+
+        v3 ^= m;
+        for (r = 0; r < c; r++) {
+            v0 += v1;
+            v2 += v3;
+            v1 = rotateLeft(v1, 13);
+            v3 = rotateLeft(v3, 16);
+
+            v1 ^= v0;
+            v3 ^= v2;
+            v0 = rotateLeft(v0, 32);
+
+            v2 += v1;
+            v0 += v3;
+            v1 = rotateLeft(v1, 17);
+            v3 = rotateLeft(v3, 21);
+
+            v1 ^= v2;
+            v3 ^= v0;
+            v2 = rotateLeft(v2, 32);
+        }
+        v0 ^= m;
+
+        v2 ^= 0xff;
+        for (r = 0; r < d; r++) {
+            v0 += v1;
+            v2 += v3;
+            v1 = rotateLeft(v1, 13);
+            v3 = rotateLeft(v3, 16);
+
+            v1 ^= v0;
+            v3 ^= v2;
+            v0 = rotateLeft(v0, 32);
+
+            v2 += v1;
+            v0 += v3;
+            v1 = rotateLeft(v1, 17);
+            v3 = rotateLeft(v3, 21);
+
+            v1 ^= v2;
+            v3 ^= v0;
+            v2 = rotateLeft(v2, 32);
+        }
+
+        return v0 ^ v1 ^ v2 ^ v3;
+    }
+
+    /**
+     * Internal 0A hashing implementation for 128-bit output.
+     *
+     * This is identical to {@link #hashGeneric} aside from finalization,
+     * which runs the D rounds twice in order to produce two output words.
+     * The provided v1 must already be tweaked for 128-bit output.
+     *
+     * @param c
+     *      the rounds of C compression to apply.
+     * @param d
+     *      the rounds of D compression to apply.
+     * @param v0
+     *      the seeded initial value of v0.
+     * @param v1
+     *      the seeded initial value of v1.
+     * @param v2
+     *      the seeded initial value of v2.
+     * @param v3
+     *      the seeded initial value of v3.
+     * @param data
+     *      the input data to hash using the SipHash algorithm.
+     * @param offset
+     *      the index of the first byte to hash.
+     * @param length
+     *      the number of bytes to hash.
+     * @param out
+     *      the array to write the two output words into.
+     * @return
+     *      the provided output array.
+     */
+    static long[] hash128(int c, int d, long v0, long v1, long v2, long v3, byte[] data, int offset, int length, long[] out) {
+        long m;
+        int last = offset + length / 8 * 8;
+        int i = offset;
+        int r;
+
+        while (i < last) {
+            m = bytesToLong(data, i);
+            i += 8;
+
+            v3 ^= m;
+            for (r = 0; r < c; r++) {
+                v0 += v1;
+                v2 += v3;
+                v1 = rotateLeft(v1, 13);
+                v3 = rotateLeft(v3, 16);
+
+                v1 ^= v0;
+                v3 ^= v2;
+                v0 = rotateLeft(v0, 32);
+
+                v2 += v1;
+                v0 += v3;
+                v1 = rotateLeft(v1, 17);
+                v3 = rotateLeft(v3, 21);
+
+                v1 ^= v2;
+                v3 ^= v0;
+                v2 = rotateLeft(v2, 32);
+            }
+            v0 ^= m;
+        }
+
+        m = 0;
+        for (i = offset + length - 1; i >= last; --i) {
+            m <<= 8;
+            m |= (data[i] & 0xffL);
+        }
+        m |= (long) length << 56;
+
+        v3 ^= m;
+        for (r = 0; r < c; r++) {
+            v0 += v1;
+            v2 += v3;
+            v1 = rotateLeft(v1, 13);
+            v3 = rotateLeft(v3, 16);
+
+            v1 ^= v0;
+            v3 ^= v2;
+            v0 = rotateLeft(v0, 32);
+
+            v2 += v1;
+            v0 += v3;
+            v1 = rotateLeft(v1, 17);
+            v3 = rotateLeft(v3, 21);
+
+            v1 ^= v2;
+            v3 ^= v0;
+            v2 = rotateLeft(v2, 32);
+        }
+        v0 ^= m;
+
+        v2 ^= 0xee;
+        for (r = 0; r < d; r++) {
+            v0 += v1;
+            v2 += v3;
+            v1 = rotateLeft(v1, 13);
+            v3 = rotateLeft(v3, 16);
+
+            v1 ^= v0;
+            v3 ^= v2;
+            v0 = rotateLeft(v0, 32);
+
+            v2 += v1;
+            v0 += v3;
+            v1 = rotateLeft(v1, 17);
+            v3 = rotateLeft(v3, 21);
+
+            v1 ^= v2;
+            v3 ^= v0;
+            v2 = rotateLeft(v2, 32);
+        }
+        out[0] = v0 ^ v1 ^ v2 ^ v3;
+
+        v1 ^= 0xdd;
+        for (r = 0; r < d; r++) {
+            v0 += v1;
+            v2 += v3;
+            v1 = rotateLeft(v1, 13);
+            v3 = rotateLeft(v3, 16);
+
+            v1 ^= v0;
+            v3 ^= v2;
+            v0 = rotateLeft(v0, 32);
+
+            v2 += v1;
+            v0 += v3;
+            v1 = rotateLeft(v1, 17);
+            v3 = rotateLeft(v3, 21);
+
+            v1 ^= v2;
+            v3 ^= v0;
+            v2 = rotateLeft(v2, 32);
+        }
+        out[1] = v0 ^ v1 ^ v2 ^ v3;
+
+        return out;
+    }
+
+    /**
+     * Internal 0A hashing implementation for buffers.
+     *
+     * Buffers backed by an accessible array are passed through to the array
+     * implementation. Otherwise, the same kernels as arrays are used (with the
+     * common SipHash-2-4 and SipHash-1-3 variants unrolled), but reading from
+     * the position to the limit of a buffer using absolute reads, so the
+     * buffer is not modified. Blocks are read 8 bytes at a time, swapping the
+     * byte order if necessary.
+     *
+     * @param c
+     *      the rounds of C compression to apply.
+     * @param d
+     *      the rounds of D compression to apply.
+     * @param v0
+     *      the seeded initial value of v0.
+     * @param v1
+     *      the seeded initial value of v1.
+     * @param v2
+     *      the seeded initial value of v2.
+     * @param v3
+     *      the seeded initial value of v3.
+     * @param data
+     *      the input buffer to hash using the SipHash algorithm.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    static long hash(int c, int d, long v0, long v1, long v2, long v3, ByteBuffer data) {
+        if (data.hasArray()) {
+            return hash(
+                c, d, v0, v1, v2, v3,
+                data.array(),
+                data.arrayOffset() + data.position(),
+                data.remaining()
+            );
+        }
+
+        if (c == 2 && d == 4) {
+            return hash24(v0, v1, v2, v3, data);
+        }
+        if (c == 1 && d == 3) {
+            return hash13(v0, v1, v2, v3, data);
+        }
+        return hashGeneric(c, d, v0, v1, v2, v3, data);
+    }
+
+    /**
+     * Internal buffer hashing implementation for SipHash-2-4.
+     *
+     * This is identical to {@link #hash24(long, long, long, long, byte[], int, int)}
+     * but reads directly from the buffer, without moving its position.
+     *
+     * @param v0
+     *      the seeded initial value of v0.
+     * @param v1
+     *      the seeded initial value of v1.
+     * @param v2
+     *      the seeded initial value of v2.
+     * @param v3
+     *      the seeded initial value of v3.
+     * @param data
+     *      the input buffer to hash using the SipHash algorithm.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    static long hash24(long v0, long v1, long v2, long v3, ByteBuffer data) {
+        boolean swap = data.order() == ByteOrder.BIG_ENDIAN;
+        int start = data.position();
+        int limit = data.limit();
+        int length = limit - start;
+        int last = start + length / 8 * 8;
+        int i = start;
+        long m;
+
+        while (i < last) {
+            m = data.getLong(i);
+            if (swap) {
+                m = Long.reverseBytes(m);
+            }
+            i += 8;
+
+            v3 ^= m;
+
+            v0 += v1;
+            v2 += v3;
+            v1 = rotateLeft(v1, 13);
+            v3 = rotateLeft(v3, 16);
+
+            v1 ^= v0;
+            v3 ^= v2;
+            v0 = rotateLeft(v0, 32);
+
+            v2 += v1;
+            v0 += v3;
+            v1 = rotateLeft(v1, 17);
+            v3 = rotateLeft(v3, 21);
+
+            v1 ^= v2;
+            v3 ^= v0;
+            v2 = rotateLeft(v2, 32);
+
+            v0 += v1;
+            v2 += v3;
+            v1 = rotateLeft(v1, 13);
+            v3 = rotateLeft(v3, 16);
+
+            v1 ^= v0;
+            v3 ^= v2;
+            v0 = rotateLeft(v0, 32);
+
+            v2 += v1;
+            v0 += v3;
+            v1 = rotateLeft(v1, 17);
+            v3 = rotateLeft(v3, 21);
+
+            v1 ^= v2;
+            v3 ^= v0;
+            v2 = rotateLeft(v2, 32);
+
+            v0 ^= m;
+        }
+
+        m = 0;
+        for (i = limit - 1; i >= last; --i) {
+            m <<= 8;
+            m |= (data.get(i) & 0xffL);
+        }
+        m |= (long) length << 56;
+
+        v3 ^= m;
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        v0 ^= m;
+
+        v2 ^= 0xff;
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        return v0 ^ v1 ^ v2 ^ v3;
+    }
+
+    /**
+     * Internal buffer hashing implementation for SipHash-1-3.
+     *
+     * This is identical to {@link #hash13(long, long, long, long, byte[], int, int)}
+     * but reads directly from the buffer, without moving its position.
+     *
+     * @param v0
+     *      the seeded initial value of v0.
+     * @param v1
+     *      the seeded initial value of v1.
+     * @param v2
+     *      the seeded initial value of v2.
+     * @param v3
+     *      the seeded initial value of v3.
+     * @param data
+     *      the input buffer to hash using the SipHash algorithm.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    static long hash13(long v0, long v1, long v2, long v3, ByteBuffer data) {
+        boolean swap = data.order() == ByteOrder.BIG_ENDIAN;
+        int start = data.position();
+        int limit = data.limit();
+        int length = limit - start;
+        int last = start + length / 8 * 8;
+        int i = start;
+        long m;
+
+        while (i < last) {
+            m = data.getLong(i);
+            if (swap) {
+                m = Long.reverseBytes(m);
+            }
+            i += 8;
+
+            v3 ^= m;
+
+            v0 += v1;
+            v2 += v3;
+            v1 = rotateLeft(v1, 13);
+            v3 = rotateLeft(v3, 16);
+
+            v1 ^= v0;
+            v3 ^= v2;
+            v0 = rotateLeft(v0, 32);
+
+            v2 += v1;
+            v0 += v3;
+            v1 = rotateLeft(v1, 17);
+            v3 = rotateLeft(v3, 21);
+
+            v1 ^= v2;
+            v3 ^= v0;
+            v2 = rotateLeft(v2, 32);
+
+            v0 ^= m;
+        }
+
+        m = 0;
+        for (i = limit - 1; i >= last; --i) {
+            m <<= 8;
+            m |= (data.get(i) & 0xffL);
+        }
+        m |= (long) length << 56;
+
+        v3 ^= m;
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        v0 ^= m;
+
+        v2 ^= 0xff;
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        v0 += v1;
+        v2 += v3;
+        v1 = rotateLeft(v1, 13);
+        v3 = rotateLeft(v3, 16);
+
+        v1 ^= v0;
+        v3 ^= v2;
+        v0 = rotateLeft(v0, 32);
+
+        v2 += v1;
+        v0 += v3;
+        v1 = rotateLeft(v1, 17);
+        v3 = rotateLeft(v3, 21);
+
+        v1 ^= v2;
+        v3 ^= v0;
+        v2 = rotateLeft(v2, 32);
+
+        return v0 ^ v1 ^ v2 ^ v3;
+    }
+
+    /**
+     * Internal buffer hashing implementation for arbitrary rounds.
+     *
+     * This is identical to {@link #hashGeneric(int, int, long, long, long, long, byte[], int, int)}
+     * but reads directly from the buffer, without moving its position.
+     *
+     * @param c
+     *      the rounds of C compression to apply.
+     * @param d
+     *      the rounds of D compression to apply.
+     * @param v0
+     *      the seeded initial value of v0.
+     * @param v1
+     *      the seeded initial value of v1.
+     * @param v2
+     *      the seeded initial value of v2.
+     * @param v3
+     *      the seeded initial value of v3.
+     * @param data
+     *      the input buffer to hash using the SipHash algorithm.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    static long hashGeneric(int c, int d, long v0, long v1, long v2, long v3, ByteBuffer data) {
+        boolean swap = data.order() == ByteOrder.BIG_ENDIAN;
+        int start = data.position();
+        int limit = data.limit();
+        int length = limit - start;
+        int last = start + length / 8 * 8;
+        int i = start;
+        int r;
+        long m;
+
+        while (i < last) {
+            m = data.getLong(i);
+            if (swap) {
+                m = Long.reverseBytes(m);
+            }
+            i += 8;
+
+            v3 ^= m;
+            for (r = 0; r < c; r++) {
                 v0 += v1;
                 v2 += v3;
                 v1 = rotateLeft(v1, 13);
@@ -254,11 +2278,11 @@ public final class SipHasher {
         }
 
         m = 0;
-        for (i = data.length - 1; i >= last; --i) {
+        for (i = limit - 1; i >= last; --i) {
             m <<= 8;
-            m |= (data[i] & 0xffL);
+            m |= (data.get(i) & 0xffL);
         }
-        m |= (long) data.length << 56;
+        m |= (long) length << 56;
 
         v3 ^= m;
         for (r = 0; r < c; r++) {
@@ -325,4 +2349,31 @@ public final class SipHasher {
     static long rotateLeft(long value, int shift) {
         return (value << shift) | value >>> (64 - shift);
     }
+
+    /**
+     * Looks up a handle to read little endian longs from byte arrays.
+     *
+     * This is done reflectively, as the VarHandle API is only available
+     * on Java 9+ and this library must remain compatible with Java 7.
+     *
+     * @return
+     *      a {@link MethodHandle} of type (byte[], int) to long, or null
+     *      if the running JVM does not support VarHandles.
+     */
+    private static MethodHandle longView() {
+        try {
+            Class<?> handle = Class.forName("java.lang.invoke.VarHandle");
+            Class<?> mode = Class.forName("java.lang.invoke.VarHandle$AccessMode");
+
+            Object view = MethodHandles.class
+                .getMethod("byteArrayViewVarHandle", Class.class, ByteOrder.class)
+                .invoke(null, long[].class, ByteOrder.LITTLE_ENDIAN);
+
+            return (MethodHandle) handle
+                .getMethod("toMethodHandle", mode)
+                .invoke(view, mode.getField("GET").get(null));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
 }
@@ -1,5 +1,7 @@
 package io.whitfin.siphash;
 
+import java.nio.ByteBuffer;
+
 import static io.whitfin.siphash.SipHasher.*;
 
 /**
@@ -8,6 +10,13 @@ import static io.whitfin.siphash.SipHasher.*;
  * This will keep a constant key and seeded v* values for use across many
  * hashes. As such, this avoids a small amount of overhead on each hash which
  * might prove useful in the case you have constant keys (hash tables, etc).
+ *
+ * Primitive values can be hashed directly via methods such as {@link #hashLong(long)},
+ * which produce the same output as hashing the little endian bytes of the values
+ * without having to allocate an array to write them into. Characters can also be
+ * hashed without allocation via {@link #hashUtf8(CharSequence)}, which matches
+ * hashing the UTF-8 bytes, or via {@link #hashChars(CharSequence)}, which skips
+ * encoding entirely by hashing the raw UTF-16LE form.
  */
 public final class SipHasherContainer {
 
@@ -76,6 +85,68 @@ public final class SipHasherContainer {
      *      a long value as the output of the hash.
      */
     public final long hash(byte[] data, int c, int d) {
+        return hash(data, 0, data.length, c, d);
+    }
+
+    /**
+     * Hashes a slice of input data using the preconfigured state.
+     *
+     * The slice is hashed in place, avoiding the need to copy the range
+     * into a new array before hashing.
+     *
+     * @param data
+     *      the array containing the data to hash and digest.
+     * @param offset
+     *      the index of the first byte to hash.
+     * @param length
+     *      the number of bytes to hash.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hash(byte[] data, int offset, int length, int c, int d) {
+        checkBounds(data, offset, length);
+        return SipHasher.hash(
+            c, d,
+            this.v0,
+            this.v1,
+            this.v2,
+            this.v3,
+            data, offset, length
+        );
+    }
+
+    /**
+     * Hashes the remaining bytes of a buffer using the preconfigured state.
+     *
+     * @param data
+     *      the buffer containing the data to hash and digest.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hash(ByteBuffer data) {
+        return hash(data, DEFAULT_C, DEFAULT_D);
+    }
+
+    /**
+     * Hashes the remaining bytes of a buffer using the preconfigured state.
+     *
+     * The buffer is hashed in place from position to limit, and the
+     * position of the buffer is not modified.
+     *
+     * @param data
+     *      the buffer containing the data to hash and digest.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hash(ByteBuffer data, int c, int d) {
         return SipHasher.hash(
             c, d,
             this.v0,
@@ -85,4 +156,488 @@ public final class SipHasherContainer {
             data
         );
     }
+
+    /**
+     * Hashes input data using the preconfigured state, producing a
+     * 128-bit output.
+     *
+     * @param data
+     *      the data to hash and digest.
+     * @param out
+     *      the array to write the two 64-bit halves of the output into.
+     * @return
+     *      the provided output array, for convenience.
+     */
+    public final long[] hash128(byte[] data, long[] out) {
+        return hash128(data, DEFAULT_C, DEFAULT_D, out);
+    }
+
+    /**
+     * Hashes input data using the preconfigured state, producing a
+     * 128-bit output.
+     *
+     * @param data
+     *      the data to hash and digest.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @param out
+     *      the array to write the two 64-bit halves of the output into.
+     * @return
+     *      the provided output array, for convenience.
+     */
+    public final long[] hash128(byte[] data, int c, int d, long[] out) {
+        checkOutput(out);
+        return SipHasher.hash128(
+            c, d,
+            this.v0,
+            this.v1 ^ 0xee,
+            this.v2,
+            this.v3,
+            data, 0, data.length,
+            out
+        );
+    }
+
+    /**
+     * Hashes a batch of inputs using the preconfigured state.
+     *
+     * @param inputs
+     *      the inputs to hash.
+     * @param out
+     *      the array to write the hash of each input into.
+     * @return
+     *      the provided output array, for convenience.
+     */
+    public final long[] hashAll(byte[][] inputs, long[] out) {
+        return hashAll(inputs, DEFAULT_C, DEFAULT_D, out);
+    }
+
+    /**
+     * Hashes a batch of inputs using the preconfigured state.
+     *
+     * The hash of {@code inputs[i]} is written to {@code out[i]}, and is
+     * identical to the result of {@link #hash(byte[], int, int)}. The output
+     * array may be re-used across batches to avoid allocation.
+     *
+     * Long runs of consecutive inputs sharing a length are hashed together
+     * in SIMD lanes on runtimes able to vectorize them, so batches of equal
+     * length inputs (or inputs sorted by length) hash considerably faster.
+     *
+     * @param inputs
+     *      the inputs to hash.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @param out
+     *      the array to write the hash of each input into.
+     * @return
+     *      the provided output array, for convenience.
+     */
+    public final long[] hashAll(byte[][] inputs, int c, int d, long[] out) {
+        checkBatch(inputs.length, out);
+
+        SipHasherLanes lanes = null;
+
+        for (int i = 0, j; i < inputs.length; i = j) {
+            int length = inputs[i].length;
+
+            j = i + 1;
+            while (j < inputs.length && inputs[j].length == length) {
+                j++;
+            }
+
+            if (SipHasherLanes.ENABLED && j - i >= SipHasherLanes.MIN_LANES) {
+                if (lanes == null) {
+                    lanes = SipHasherLanes.cached(c, d);
+                }
+                lanes.hash(this.v0, this.v1, this.v2, this.v3, inputs, i, j, out);
+                continue;
+            }
+
+            for (int k = i; k < j; k++) {
+                out[k] = SipHasher.hash(
+                    c, d,
+                    this.v0,
+                    this.v1,
+                    this.v2,
+                    this.v3,
+                    inputs[k], 0, length
+                );
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Hashes a batch of slices of data using the preconfigured state.
+     *
+     * @param data
+     *      the data containing each input.
+     * @param offsets
+     *      the index of the first byte of each input.
+     * @param lengths
+     *      the number of bytes in each input.
+     * @param out
+     *      the array to write the hash of each input into.
+     * @return
+     *      the provided output array, for convenience.
+     */
+    public final long[] hashAll(byte[] data, int[] offsets, int[] lengths, long[] out) {
+        return hashAll(data, offsets, lengths, DEFAULT_C, DEFAULT_D, out);
+    }
+
+    /**
+     * Hashes a batch of slices of data using the preconfigured state.
+     *
+     * This allows many small inputs packed into a single array to be hashed
+     * without copying each into an array of its own. The hash of the slice
+     * at {@code offsets[i]} of {@code lengths[i]} bytes is written to
+     * {@code out[i]}. All slices are validated before any are hashed, and
+     * runs of equal length slices are hashed in SIMD lanes where supported
+     * as in {@link #hashAll(byte[][], int, int, long[])}.
+     *
+     * @param data
+     *      the data containing each input.
+     * @param offsets
+     *      the index of the first byte of each input.
+     * @param lengths
+     *      the number of bytes in each input.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @param out
+     *      the array to write the hash of each input into.
+     * @return
+     *      the provided output array, for convenience.
+     */
+    public final long[] hashAll(byte[] data, int[] offsets, int[] lengths, int c, int d, long[] out) {
+        if (offsets.length != lengths.length) {
+            throw new IllegalArgumentException("Offsets and lengths must be of equal size!");
+        }
+
+        checkBatch(offsets.length, out);
+
+        for (int i = 0; i < offsets.length; i++) {
+            checkBounds(data, offsets[i], lengths[i]);
+        }
+
+        SipHasherLanes lanes = null;
+
+        for (int i = 0, j; i < lengths.length; i = j) {
+            int length = lengths[i];
+
+            j = i + 1;
+            while (j < lengths.length && lengths[j] == length) {
+                j++;
+            }
+
+            if (SipHasherLanes.ENABLED && j - i >= SipHasherLanes.MIN_LANES) {
+                if (lanes == null) {
+                    lanes = SipHasherLanes.cached(c, d);
+                }
+                lanes.hash(this.v0, this.v1, this.v2, this.v3, data, offsets, length, i, j, out);
+                continue;
+            }
+
+            for (int k = i; k < j; k++) {
+                out[k] = SipHasher.hash(
+                    c, d,
+                    this.v0,
+                    this.v1,
+                    this.v2,
+                    this.v3,
+                    data, offsets[k], length
+                );
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Creates a streaming hash seeded with the preconfigured state.
+     *
+     * @return
+     *      a {@link SipHasherStream} instance after initialization.
+     */
+    public final SipHasherStream stream() {
+        return stream(DEFAULT_C, DEFAULT_D);
+    }
+
+    /**
+     * Creates a streaming hash seeded with the preconfigured state.
+     *
+     * This is equivalent to {@link SipHasher#init(byte[], int, int)} with
+     * the key of this container, but avoids parsing the key again.
+     *
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @return
+     *      a {@link SipHasherStream} instance after initialization.
+     */
+    public final SipHasherStream stream(int c, int d) {
+        return new SipHasherStream(this.v0, this.v1, this.v2, this.v3, c, d, false);
+    }
+
+    /**
+     * Creates a 128-bit streaming hash seeded with the preconfigured state.
+     *
+     * @return
+     *      a {@link SipHasherStream} instance after initialization.
+     */
+    public final SipHasherStream stream128() {
+        return stream128(DEFAULT_C, DEFAULT_D);
+    }
+
+    /**
+     * Creates a 128-bit streaming hash seeded with the preconfigured state.
+     *
+     * This is equivalent to {@link SipHasher#init128(byte[], int, int)} with
+     * the key of this container, but avoids parsing the key again.
+     *
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @return
+     *      a {@link SipHasherStream} instance after initialization.
+     */
+    public final SipHasherStream stream128(int c, int d) {
+        return new SipHasherStream(this.v0, this.v1, this.v2, this.v3, c, d, true);
+    }
+
+    /**
+     * Hashes the 4 little endian bytes of an int using the preconfigured state.
+     *
+     * @param value
+     *      the value to hash.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hashInt(int value) {
+        return hashInt(value, DEFAULT_C, DEFAULT_D);
+    }
+
+    /**
+     * Hashes the 4 little endian bytes of an int using the preconfigured state.
+     *
+     * @param value
+     *      the value to hash.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hashInt(int value, int c, int d) {
+        return finish(
+            c, d,
+            this.v0,
+            this.v1,
+            this.v2,
+            this.v3,
+            (value & 0xffffffffL) | 4L << 56
+        );
+    }
+
+    /**
+     * Hashes the 8 little endian bytes of a long using the preconfigured state.
+     *
+     * @param value
+     *      the value to hash.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hashLong(long value) {
+        return hashLong(value, DEFAULT_C, DEFAULT_D);
+    }
+
+    /**
+     * Hashes the 8 little endian bytes of a long using the preconfigured state.
+     *
+     * @param value
+     *      the value to hash.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hashLong(long value, int c, int d) {
+        return SipHasher.hashLong(
+            c, d,
+            this.v0,
+            this.v1,
+            this.v2,
+            this.v3,
+            value
+        );
+    }
+
+    /**
+     * Hashes the 16 little endian bytes of two longs using the preconfigured state.
+     *
+     * This can be used to hash values such as a {@link java.util.UUID}, by
+     * providing the most and least significant bits.
+     *
+     * @param a
+     *      the first value to hash.
+     * @param b
+     *      the second value to hash.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hashLongs(long a, long b) {
+        return hashLongs(a, b, DEFAULT_C, DEFAULT_D);
+    }
+
+    /**
+     * Hashes the 16 little endian bytes of two longs using the preconfigured state.
+     *
+     * This can be used to hash values such as a {@link java.util.UUID}, by
+     * providing the most and least significant bits.
+     *
+     * @param a
+     *      the first value to hash.
+     * @param b
+     *      the second value to hash.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hashLongs(long a, long b, int c, int d) {
+        return SipHasher.hashLongs(
+            c, d,
+            this.v0,
+            this.v1,
+            this.v2,
+            this.v3,
+            a, b
+        );
+    }
+
+    /**
+     * Hashes the UTF-8 encoding of characters using the preconfigured state.
+     *
+     * This is identical to {@link #hashUtf8(CharSequence)}, and is provided
+     * to mirror {@link SipHasherStream#update(CharSequence)}.
+     *
+     * @param chars
+     *      the characters to hash.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hash(CharSequence chars) {
+        return hashUtf8(chars, DEFAULT_C, DEFAULT_D);
+    }
+
+    /**
+     * Hashes the UTF-8 encoding of characters using the preconfigured state.
+     *
+     * This is identical to {@link #hashUtf8(CharSequence, int, int)}, and is
+     * provided to mirror {@link SipHasherStream#update(CharSequence)}.
+     *
+     * @param chars
+     *      the characters to hash.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hash(CharSequence chars, int c, int d) {
+        return hashUtf8(chars, c, d);
+    }
+
+    /**
+     * Hashes the UTF-8 encoding of characters using the preconfigured state.
+     *
+     * @param chars
+     *      the characters to hash.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hashUtf8(CharSequence chars) {
+        return hashUtf8(chars, DEFAULT_C, DEFAULT_D);
+    }
+
+    /**
+     * Hashes the UTF-8 encoding of characters using the preconfigured state.
+     *
+     * Characters are encoded directly into blocks without an intermediate
+     * array, and the output is identical to hashing the UTF-8 bytes of
+     * {@code chars}. ASCII characters are packed 8 at a time.
+     *
+     * @param chars
+     *      the characters to hash.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hashUtf8(CharSequence chars, int c, int d) {
+        return SipHasher.hashUtf8(
+            c, d,
+            this.v0,
+            this.v1,
+            this.v2,
+            this.v3,
+            chars
+        );
+    }
+
+    /**
+     * Hashes the raw UTF-16LE form of characters using the preconfigured state.
+     *
+     * @param chars
+     *      the characters to hash.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hashChars(CharSequence chars) {
+        return hashChars(chars, DEFAULT_C, DEFAULT_D);
+    }
+
+    /**
+     * Hashes the raw UTF-16LE form of characters using the preconfigured state.
+     *
+     * No encoding takes place, so this is the fastest way to hash characters
+     * when the hash does not need to match a specific byte encoding. The output
+     * is identical to hashing the little endian bytes of each character, which
+     * is UTF-16LE except that unpaired surrogates are not replaced.
+     *
+     * @param chars
+     *      the characters to hash.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hashChars(CharSequence chars, int c, int d) {
+        return SipHasher.hashChars(
+            c, d,
+            this.v0,
+            this.v1,
+            this.v2,
+            this.v3,
+            chars
+        );
+    }
 }
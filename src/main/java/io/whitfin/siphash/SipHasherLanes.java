@@ -0,0 +1,534 @@
+package io.whitfin.siphash;
+
+import static io.whitfin.siphash.SipHasher.*;
+
+/**
+ * Multi-lane SipHash engine for batches of equal length inputs.
+ *
+ * Rather than hashing one input at a time, this keeps the state of a group of
+ * inputs in parallel arrays (one array per state word) and runs each round
+ * across every lane in a single tight loop. Loops of this shape are vectorized
+ * by the JIT on CPUs with wide enough SIMD support, allowing several inputs to
+ * move through each round in the same instructions.
+ *
+ * This is only used internally by {@link SipHasherContainer#hashAll}, which
+ * routes long runs of equal length inputs here (when {@link #ENABLED}) and
+ * hashes all others directly using the scalar kernels.
+ */
+final class SipHasherLanes {
+
+    /**
+     * The maximum number of inputs hashed together as a group.
+     */
+    static final int LANES = 256;
+
+    /**
+     * The minimum number of equal length inputs worth grouping.
+     *
+     * Below this the vectorized loops spend most of their time in the scalar
+     * pre and post loops generated around them, which is slower than hashing
+     * each input directly.
+     */
+    static final int MIN_LANES = 64;
+
+    /**
+     * Whether the lane engine should be used for batches.
+     *
+     * The engine relies on the JIT vectorizing 64-bit rotations, which is only
+     * supported by HotSpot on Java 16+ (on x86_64 and aarch64). Elsewhere the
+     * loops would run as scalar code, which is slower than hashing each input
+     * directly, so batches fall back to the scalar kernels. This can be forced
+     * either way via the {@code io.whitfin.siphash.lanes} system property.
+     */
+    static final boolean ENABLED = enabled();
+
+    /**
+     * The engine of each thread, re-used across batches.
+     */
+    private static final ThreadLocal<SipHasherLanes> CACHE = new ThreadLocal<>();
+
+    /**
+     * The lane values of the current message block.
+     */
+    private final long[] m;
+
+    /**
+     * The lane values of v0.
+     */
+    private final long[] v0;
+
+    /**
+     * The lane values of v1.
+     */
+    private final long[] v1;
+
+    /**
+     * The lane values of v2.
+     */
+    private final long[] v2;
+
+    /**
+     * The lane values of v3.
+     */
+    private final long[] v3;
+
+    /**
+     * The rounds of C compression to apply.
+     */
+    private final int c;
+
+    /**
+     * The rounds of D compression to apply.
+     */
+    private final int d;
+
+    /**
+     * The number of lanes available in each group.
+     */
+    private final int lanes;
+
+    /**
+     * Initializes a new engine for a number of rounds.
+     *
+     * @param c
+     *      the rounds of C compression to apply.
+     * @param d
+     *      the rounds of D compression to apply.
+     * @param count
+     *      the number of inputs in the batch, used to bound the lane count.
+     */
+    SipHasherLanes(int c, int d, int count) {
+        this.c = c;
+        this.d = d;
+        this.lanes = Math.min(LANES, count);
+        this.m = new long[this.lanes];
+        this.v0 = new long[this.lanes];
+        this.v1 = new long[this.lanes];
+        this.v2 = new long[this.lanes];
+        this.v3 = new long[this.lanes];
+    }
+
+    /**
+     * Retrieves the engine of the current thread for a number of rounds.
+     *
+     * Engines hold no state between runs, so a single full size engine is
+     * kept per thread and only replaced when the rounds change. This keeps
+     * the lane arrays off the allocation path of every batch.
+     *
+     * @param c
+     *      the rounds of C compression to apply.
+     * @param d
+     *      the rounds of D compression to apply.
+     * @return
+     *      a {@link SipHasherLanes} instance for the current thread.
+     */
+    static SipHasherLanes cached(int c, int d) {
+        SipHasherLanes lanes = CACHE.get();
+        if (lanes == null || lanes.c != c || lanes.d != d) {
+            lanes = new SipHasherLanes(c, d, LANES);
+            CACHE.set(lanes);
+        }
+        return lanes;
+    }
+
+    /**
+     * Hashes a run of equal length inputs.
+     *
+     * @param k0
+     *      the seeded initial value of v0.
+     * @param k1
+     *      the seeded initial value of v1.
+     * @param k2
+     *      the seeded initial value of v2.
+     * @param k3
+     *      the seeded initial value of v3.
+     * @param inputs
+     *      the inputs to hash, all of which must share a length.
+     * @param from
+     *      the index of the first input to hash.
+     * @param to
+     *      the index after the last input to hash.
+     * @param out
+     *      the array to write each hash into, at the index of its input.
+     */
+    void hash(long k0, long k1, long k2, long k3, byte[][] inputs, int from, int to, long[] out) {
+        int length = inputs[from].length;
+        int last = length / 8 * 8;
+
+        for (int base = from; base < to; base += this.lanes) {
+            int n = Math.min(this.lanes, to - base);
+            init(k0, k1, k2, k3, n);
+
+            for (int i = 0; i < last; i += 8) {
+                for (int l = 0; l < n; l++) {
+                    this.m[l] = bytesToLong(inputs[base + l], i);
+                }
+                compress(n);
+            }
+
+            for (int l = 0; l < n; l++) {
+                this.m[l] = block(inputs[base + l], last, length, length);
+            }
+            compress(n);
+            finish(out, base, n);
+        }
+    }
+
+    /**
+     * Hashes a run of equal length slices of a single array.
+     *
+     * @param k0
+     *      the seeded initial value of v0.
+     * @param k1
+     *      the seeded initial value of v1.
+     * @param k2
+     *      the seeded initial value of v2.
+     * @param k3
+     *      the seeded initial value of v3.
+     * @param data
+     *      the data containing each input.
+     * @param offsets
+     *      the index of the first byte of each input.
+     * @param length
+     *      the number of bytes in every input being hashed.
+     * @param from
+     *      the index of the first input to hash.
+     * @param to
+     *      the index after the last input to hash.
+     * @param out
+     *      the array to write each hash into, at the index of its input.
+     */
+    void hash(long k0, long k1, long k2, long k3, byte[] data, int[] offsets, int length, int from, int to, long[] out) {
+        int last = length / 8 * 8;
+
+        for (int base = from; base < to; base += this.lanes) {
+            int n = Math.min(this.lanes, to - base);
+            init(k0, k1, k2, k3, n);
+
+            for (int i = 0; i < last; i += 8) {
+                for (int l = 0; l < n; l++) {
+                    this.m[l] = bytesToLong(data, offsets[base + l] + i);
+                }
+                compress(n);
+            }
+
+            for (int l = 0; l < n; l++) {
+                int offset = offsets[base + l];
+                this.m[l] = block(data, offset + last, offset + length, length);
+            }
+            compress(n);
+            finish(out, base, n);
+        }
+    }
+
+    /**
+     * Seeds the state of a group of lanes.
+     *
+     * @param k0
+     *      the seeded initial value of v0.
+     * @param k1
+     *      the seeded initial value of v1.
+     * @param k2
+     *      the seeded initial value of v2.
+     * @param k3
+     *      the seeded initial value of v3.
+     * @param n
+     *      the number of lanes in the group.
+     */
+    private void init(long k0, long k1, long k2, long k3, int n) {
+        for (int l = 0; l < n; l++) {
+            this.v0[l] = k0;
+            this.v1[l] = k1;
+            this.v2[l] = k2;
+            this.v3[l] = k3;
+        }
+    }
+
+    /**
+     * Compresses the current message block into each lane.
+     *
+     * Two rounds of compression are fused into a single pass over the lanes,
+     * as this is by far the most common case. Other round counts make one
+     * pass per round.
+     *
+     * @param n
+     *      the number of lanes in the group.
+     */
+    private void compress(int n) {
+        long[] m = this.m;
+        long[] s0 = this.v0;
+        long[] s1 = this.v1;
+        long[] s2 = this.v2;
+        long[] s3 = this.v3;
+
+        if (this.c == 2) {
+            for (int l = 0; l < n; l++) {
+                long v0 = s0[l];
+                long v1 = s1[l];
+                long v2 = s2[l];
+                long v3 = s3[l] ^ m[l];
+
+                v0 += v1;
+                v2 += v3;
+                v1 = rotateLeft(v1, 13);
+                v3 = rotateLeft(v3, 16);
+
+                v1 ^= v0;
+                v3 ^= v2;
+                v0 = rotateLeft(v0, 32);
+
+                v2 += v1;
+                v0 += v3;
+                v1 = rotateLeft(v1, 17);
+                v3 = rotateLeft(v3, 21);
+
+                v1 ^= v2;
+                v3 ^= v0;
+                v2 = rotateLeft(v2, 32);
+
+                v0 += v1;
+                v2 += v3;
+                v1 = rotateLeft(v1, 13);
+                v3 = rotateLeft(v3, 16);
+
+                v1 ^= v0;
+                v3 ^= v2;
+                v0 = rotateLeft(v0, 32);
+
+                v2 += v1;
+                v0 += v3;
+                v1 = rotateLeft(v1, 17);
+                v3 = rotateLeft(v3, 21);
+
+                v1 ^= v2;
+                v3 ^= v0;
+                v2 = rotateLeft(v2, 32);
+
+                s0[l] = v0 ^ m[l];
+                s1[l] = v1;
+                s2[l] = v2;
+                s3[l] = v3;
+            }
+            return;
+        }
+
+        for (int l = 0; l < n; l++) {
+            s3[l] ^= m[l];
+        }
+
+        for (int r = 0; r < this.c; r++) {
+            round(n);
+        }
+
+        for (int l = 0; l < n; l++) {
+            s0[l] ^= m[l];
+        }
+    }
+
+    /**
+     * Finalizes each lane and writes the output.
+     *
+     * As with compression, four rounds of finalization are fused into a
+     * single pass over the lanes, whereas other round counts are not.
+     *
+     * @param out
+     *      the array to write each hash into.
+     * @param index
+     *      the index to write the hash of the first lane to.
+     * @param n
+     *      the number of lanes in the group.
+     */
+    private void finish(long[] out, int index, int n) {
+        long[] s0 = this.v0;
+        long[] s1 = this.v1;
+        long[] s2 = this.v2;
+        long[] s3 = this.v3;
+
+        if (this.d == 4) {
+            for (int l = 0; l < n; l++) {
+                long v0 = s0[l];
+                long v1 = s1[l];
+                long v2 = s2[l] ^ 0xff;
+                long v3 = s3[l];
+
+                v0 += v1;
+                v2 += v3;
+                v1 = rotateLeft(v1, 13);
+                v3 = rotateLeft(v3, 16);
+
+                v1 ^= v0;
+                v3 ^= v2;
+                v0 = rotateLeft(v0, 32);
+
+                v2 += v1;
+                v0 += v3;
+                v1 = rotateLeft(v1, 17);
+                v3 = rotateLeft(v3, 21);
+
+                v1 ^= v2;
+                v3 ^= v0;
+                v2 = rotateLeft(v2, 32);
+
+                v0 += v1;
+                v2 += v3;
+                v1 = rotateLeft(v1, 13);
+                v3 = rotateLeft(v3, 16);
+
+                v1 ^= v0;
+                v3 ^= v2;
+                v0 = rotateLeft(v0, 32);
+
+                v2 += v1;
+                v0 += v3;
+                v1 = rotateLeft(v1, 17);
+                v3 = rotateLeft(v3, 21);
+
+                v1 ^= v2;
+                v3 ^= v0;
+                v2 = rotateLeft(v2, 32);
+
+                v0 += v1;
+                v2 += v3;
+                v1 = rotateLeft(v1, 13);
+                v3 = rotateLeft(v3, 16);
+
+                v1 ^= v0;
+                v3 ^= v2;
+                v0 = rotateLeft(v0, 32);
+
+                v2 += v1;
+                v0 += v3;
+                v1 = rotateLeft(v1, 17);
+                v3 = rotateLeft(v3, 21);
+
+                v1 ^= v2;
+                v3 ^= v0;
+                v2 = rotateLeft(v2, 32);
+
+                v0 += v1;
+                v2 += v3;
+                v1 = rotateLeft(v1, 13);
+                v3 = rotateLeft(v3, 16);
+
+                v1 ^= v0;
+                v3 ^= v2;
+                v0 = rotateLeft(v0, 32);
+
+                v2 += v1;
+                v0 += v3;
+                v1 = rotateLeft(v1, 17);
+                v3 = rotateLeft(v3, 21);
+
+                v1 ^= v2;
+                v3 ^= v0;
+                v2 = rotateLeft(v2, 32);
+
+                out[index + l] = v0 ^ v1 ^ v2 ^ v3;
+            }
+            return;
+        }
+
+        for (int l = 0; l < n; l++) {
+            s2[l] ^= 0xff;
+        }
+
+        for (int r = 0; r < this.d; r++) {
+            round(n);
+        }
+
+        for (int l = 0; l < n; l++) {
+            out[index + l] = s0[l] ^ s1[l] ^ s2[l] ^ s3[l];
+        }
+    }
+
+    /**
+     * Applies a single round to every lane in a group.
+     *
+     * @param n
+     *      the number of lanes in the group.
+     */
+    private void round(int n) {
+        long[] s0 = this.v0;
+        long[] s1 = this.v1;
+        long[] s2 = this.v2;
+        long[] s3 = this.v3;
+
+        for (int l = 0; l < n; l++) {
+            long v0 = s0[l];
+            long v1 = s1[l];
+            long v2 = s2[l];
+            long v3 = s3[l];
+
+            v0 += v1;
+            v2 += v3;
+            v1 = rotateLeft(v1, 13);
+            v3 = rotateLeft(v3, 16);
+
+            v1 ^= v0;
+            v3 ^= v2;
+            v0 = rotateLeft(v0, 32);
+
+            v2 += v1;
+            v0 += v3;
+            v1 = rotateLeft(v1, 17);
+            v3 = rotateLeft(v3, 21);
+
+            v1 ^= v2;
+            v3 ^= v0;
+            v2 = rotateLeft(v2, 32);
+
+            s0[l] = v0;
+            s1[l] = v1;
+            s2[l] = v2;
+            s3[l] = v3;
+        }
+    }
+
+    /**
+     * Creates the final block of an input from its trailing bytes.
+     *
+     * @param data
+     *      the data to read from.
+     * @param offset
+     *      the index of the first trailing byte.
+     * @param end
+     *      the index after the last trailing byte.
+     * @param length
+     *      the total length of the input.
+     * @return
+     *      the trailing bytes in little endian, with the length in the top byte.
+     */
+    private static long block(byte[] data, int offset, int end, int length) {
+        long m = 0;
+        for (int i = end - 1; i >= offset; --i) {
+            m <<= 8;
+            m |= (data[i] & 0xffL);
+        }
+        return m | (long) length << 56;
+    }
+
+    /**
+     * Determines whether the lane engine should be enabled.
+     *
+     * @return
+     *      true if the runtime is able to vectorize the lane loops.
+     */
+    private static boolean enabled() {
+        try {
+            String property = System.getProperty("io.whitfin.siphash.lanes");
+            if (property != null) {
+                return Boolean.parseBoolean(property);
+            }
+
+            String arch = System.getProperty("os.arch");
+            if (!"amd64".equals(arch) && !"x86_64".equals(arch) && !"aarch64".equals(arch)) {
+                return false;
+            }
+
+            String version = System.getProperty("java.specification.version");
+            return !version.startsWith("1.") && Integer.parseInt(version) >= 16;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
@@ -1,21 +1,36 @@
 package io.whitfin.siphash;
 
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import static io.whitfin.siphash.SipHasher.*;
 
 /**
  * Streaming implementation of the SipHash algorithm.
  *
  * This implementation is slower than the 0A implementation, but allows for
- * unknown input this.lengths to enable hashing as more data is received. Chunks
- * are processed in 8-byte blocks in the SipHash algorithms, so if you're
- * using huge input, you should expect slowness.
+ * unknown input lengths to enable hashing as more data is received. Arrays
+ * are compressed directly in 8-byte blocks, with only a partial block being
+ * buffered between updates, so large chunks should hash at close to the speed
+ * of the 0A implementation. Updating a byte at a time is much slower.
  *
  * Although this implementation requires an initial allocation, there are
  * no further allocations - so memory should prove similar to the non-streaming
- * implementation.
+ * implementation. Streams can also be re-used via {@link #reset()}, and created
+ * from a {@link SipHasherContainer} to avoid parsing the key on each creation.
+ *
+ * Input shared by many messages (such as a common header) can be hashed once
+ * and then branched using {@link #copy()}, or saved and restored as primitives
+ * using {@link #exportState(long[])} and {@link #importState(long[])}.
  */
 public final class SipHasherStream {
 
+    /**
+     * The number of longs required to hold an exported stream state.
+     */
+    public static final int STATE_LENGTH = 6;
+
     /**
      * The specified rounds of C compression.
      */
@@ -27,14 +42,37 @@ public final class SipHasherStream {
     private final int d;
 
     /**
-     * Counter to keep track of the input
+     * Whether this stream produces a 128-bit output.
+     */
+    private final boolean wide;
+
+    /**
+     * The seeded value of v0, restored on reset.
      */
-    private byte len;
+    private final long s0;
 
     /**
-     * Index to keep track of chunk positioning.
+     * The seeded value of v1, restored on reset.
      */
-    private int m_idx;
+    private final long s1;
+
+    /**
+     * The seeded value of v2, restored on reset.
+     */
+    private final long s2;
+
+    /**
+     * The seeded value of v3, restored on reset.
+     */
+    private final long s3;
+
+    /**
+     * The number of bytes provided to the stream so far.
+     *
+     * The index into the current block is always the lower 3 bits of this,
+     * and the lower 8 bits are written into the final block when padding.
+     */
+    private long len;
 
     /**
      * The current value for the m number.
@@ -70,8 +108,10 @@ public final class SipHasherStream {
      *      the desired rounds of C compression.
      * @param d
      *      the desired rounds of D compression.
+     * @param wide
+     *      whether to produce a 128-bit output.
      */
-    SipHasherStream(byte[] key, int c, int d) {
+    SipHasherStream(byte[] key, int c, int d, boolean wide) {
         if (key.length != 16) {
             throw new IllegalArgumentException("Key must be exactly 16 bytes!");
         }
@@ -79,17 +119,180 @@ public final class SipHasherStream {
         long k0 = bytesToLong(key, 0);
         long k1 = bytesToLong(key, 8);
 
-        this.v0 = INITIAL_V0 ^ k0;
-        this.v1 = INITIAL_V1 ^ k1;
-        this.v2 = INITIAL_V2 ^ k0;
-        this.v3 = INITIAL_V3 ^ k1;
+        this.s0 = INITIAL_V0 ^ k0;
+        this.s1 = INITIAL_V1 ^ k1 ^ (wide ? 0xee : 0);
+        this.s2 = INITIAL_V2 ^ k0;
+        this.s3 = INITIAL_V3 ^ k1;
 
         this.c = c;
         this.d = d;
+        this.wide = wide;
+
+        reset();
+    }
+
+    /**
+     * Initializes a streaming digest using a seeded state and compression rounds.
+     *
+     * This allows a container to create streams without having to parse the
+     * key again, as the seeded values can be passed through directly.
+     *
+     * @param v0
+     *      the seeded initial value of v0.
+     * @param v1
+     *      the seeded initial value of v1.
+     * @param v2
+     *      the seeded initial value of v2.
+     * @param v3
+     *      the seeded initial value of v3.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @param wide
+     *      whether to produce a 128-bit output.
+     */
+    SipHasherStream(long v0, long v1, long v2, long v3, int c, int d, boolean wide) {
+        this.s0 = v0;
+        this.s1 = v1 ^ (wide ? 0xee : 0);
+        this.s2 = v2;
+        this.s3 = v3;
+
+        this.c = c;
+        this.d = d;
+        this.wide = wide;
+
+        reset();
+    }
+
+    /**
+     * Initializes a streaming digest as a copy of another stream.
+     *
+     * @param stream
+     *      the stream to copy the configuration and state of.
+     */
+    private SipHasherStream(SipHasherStream stream) {
+        this.s0 = stream.s0;
+        this.s1 = stream.s1;
+        this.s2 = stream.s2;
+        this.s3 = stream.s3;
+
+        this.c = stream.c;
+        this.d = stream.d;
+        this.wide = stream.wide;
+
+        this.v0 = stream.v0;
+        this.v1 = stream.v1;
+        this.v2 = stream.v2;
+        this.v3 = stream.v3;
+
+        this.m = stream.m;
+        this.len = stream.len;
+    }
+
+    /**
+     * Creates an independent copy of this stream.
+     *
+     * The copy has the same key, rounds and output width, and has consumed
+     * exactly the same input. This allows a common prefix to be hashed once
+     * and then copied for each message which shares it, rather than hashing
+     * the prefix again for every message. Updating either stream afterwards
+     * has no effect on the other.
+     *
+     * @return
+     *      a new {@link SipHasherStream} with the same state.
+     */
+    public final SipHasherStream copy() {
+        return new SipHasherStream(this);
+    }
+
+    /**
+     * Exports the current state of this stream into an array.
+     *
+     * The state is written as {@link #STATE_LENGTH} longs, in the order of
+     * v0, v1, v2, v3, the current partial block, and the length. This state
+     * can be stored anywhere (such as off-heap) and later restored into a
+     * stream via {@link #importState(long[])} without re-hashing any input.
+     *
+     * @param out
+     *      the array to write the state into.
+     * @return
+     *      the provided output array, for convenience.
+     * @throws IllegalArgumentException
+     *      if the array is too small to hold the state.
+     */
+    public final long[] exportState(long[] out) {
+        checkState(out);
+
+        out[0] = this.v0;
+        out[1] = this.v1;
+        out[2] = this.v2;
+        out[3] = this.v3;
+        out[4] = this.m;
+        out[5] = this.len;
+
+        return out;
+    }
+
+    /**
+     * Imports a state previously exported via {@link #exportState(long[])}.
+     *
+     * This replaces any input consumed by this stream with the input consumed
+     * by the exporting stream. The state is only meaningful if this stream was
+     * created with the same key, rounds and output width as the stream which
+     * exported it. Resetting will still return to the seeded state of this
+     * stream, rather than the imported state.
+     *
+     * @param state
+     *      the array to read the state from.
+     * @return
+     *      the same {@link SipHasherStream} for chaining.
+     * @throws IllegalArgumentException
+     *      if the array is too small to hold the state, the length is
+     *      negative, or the partial block has bits set beyond the bytes
+     *      consumed so far (neither of which an exported state can have).
+     */
+    public final SipHasherStream importState(long[] state) {
+        checkState(state);
+
+        long len = state[5];
+        long m = state[4];
+        int filled = (int) (len & 7) * 8;
+
+        if (len < 0 || (filled == 0 ? m != 0 : m >>> filled != 0)) {
+            throw new IllegalArgumentException("State must hold a valid length and partial block!");
+        }
+
+        this.v0 = state[0];
+        this.v1 = state[1];
+        this.v2 = state[2];
+        this.v3 = state[3];
+        this.m = m;
+        this.len = len;
+
+        return this;
+    }
+
+    /**
+     * Resets the stream back to its freshly seeded state.
+     *
+     * This discards any input provided so far, allowing a single stream to be
+     * re-used for many hashes (for example, one per thread) rather than having
+     * to allocate a new stream per hash. Streams may be reset at any time,
+     * including before or after finalization.
+     *
+     * @return
+     *      the same {@link SipHasherStream} for chaining.
+     */
+    public final SipHasherStream reset() {
+        this.v0 = this.s0;
+        this.v1 = this.s1;
+        this.v2 = this.s2;
+        this.v3 = this.s3;
 
         this.m = 0;
         this.len = 0;
-        this.m_idx = 0;
+        return this;
     }
 
     /**
@@ -104,17 +307,14 @@ public final class SipHasherStream {
      *      the same {@link SipHasherStream} for chaining.
      */
     public final SipHasherStream update(byte b) {
-        this.len++;
-        this.m |= (((long) b & 0xff) << (this.m_idx++ * 8));
-        if (this.m_idx < 8) {
+        int index = (int) this.len++ & 7;
+        this.m |= (((long) b & 0xff) << (index * 8));
+        if (index < 7) {
             return this;
         }
         this.v3 ^= this.m;
-        for (int i = 0; i < this.c; i++) {
-            round();
-        }
+        rounds(this.c);
         this.v0 ^= this.m;
-        this.m_idx = 0;
         this.m = 0;
         return this;
     }
@@ -128,12 +328,164 @@ public final class SipHasherStream {
      *      the same {@link SipHasherStream} for chaining.
      */
     public final SipHasherStream update(byte[] bytes) {
-        for (byte b : bytes) {
-            update(b);
+        return update(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Updates the hash with a slice of an array of bytes.
+     *
+     * Any partially filled block is completed first, before all full blocks
+     * are compressed directly from the array. Only the remaining tail bytes
+     * are buffered until the next update.
+     *
+     * @param bytes
+     *      the array containing the bytes being added to the digest.
+     * @param offset
+     *      the index of the first byte to add.
+     * @param length
+     *      the number of bytes to add.
+     * @return
+     *      the same {@link SipHasherStream} for chaining.
+     */
+    public final SipHasherStream update(byte[] bytes, int offset, int length) {
+        checkBounds(bytes, offset, length);
+
+        int i = offset;
+        int end = offset + length;
+
+        while ((this.len & 7) != 0 && i < end) {
+            update(bytes[i++]);
+        }
+
+        int last = i + (end - i) / 8 * 8;
+        if (i < last) {
+            compress(bytes, i, last);
+            i = last;
+        }
+
+        while (i < end) {
+            update(bytes[i++]);
+        }
+        return this;
+    }
+
+    /**
+     * Updates the hash with the remaining bytes of a buffer.
+     *
+     * Bytes are read from the position of the buffer through to the limit,
+     * with the position being advanced to the limit (just as the buffer was
+     * consumed by a channel). Full 8-byte blocks are read directly from the
+     * buffer, so no copy is made regardless of the buffer type.
+     *
+     * @param buffer
+     *      the buffer containing bytes being added to the digest.
+     * @return
+     *      the same {@link SipHasherStream} for chaining.
+     */
+    public final SipHasherStream update(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            int position = buffer.position();
+            int remaining = buffer.remaining();
+            update(buffer.array(), buffer.arrayOffset() + position, remaining);
+            ((Buffer) buffer).position(position + remaining);
+            return this;
+        }
+
+        while ((this.len & 7) != 0 && buffer.hasRemaining()) {
+            update(buffer.get());
+        }
+
+        int position = buffer.position();
+        int last = position + buffer.remaining() / 8 * 8;
+        if (position < last) {
+            compress(buffer, position, last);
+            ((Buffer) buffer).position(last);
+        }
+
+        while (buffer.hasRemaining()) {
+            update(buffer.get());
         }
         return this;
     }
 
+    /**
+     * Updates the hash with the UTF-8 encoding of characters.
+     *
+     * This matches {@link SipHasherContainer#hashUtf8(CharSequence)}, in that
+     * it's equivalent to updating with the UTF-8 bytes of the characters. Each
+     * call is encoded separately, so a surrogate pair split across two calls
+     * is treated as two unpaired surrogates.
+     *
+     * @param chars
+     *      the characters being added to the digest.
+     * @return
+     *      the same {@link SipHasherStream} for chaining.
+     */
+    public final SipHasherStream update(CharSequence chars) {
+        int length = chars.length();
+        int i = 0;
+        long value;
+
+        while (i < length) {
+            if (i + 8 <= length && (value = ascii(chars, i)) >= 0) {
+                append(value, 8);
+                i += 8;
+            } else {
+                value = utf8(chars, i);
+                int count = (int) (value >>> 32);
+                append(value & 0xffffffffL, count);
+                i += count == 4 ? 2 : 1;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Updates the hash with the raw UTF-16LE form of characters.
+     *
+     * This matches {@link SipHasherContainer#hashChars(CharSequence)}, in that
+     * it's equivalent to updating with the little endian bytes of each character.
+     *
+     * @param chars
+     *      the characters being added to the digest.
+     * @return
+     *      the same {@link SipHasherStream} for chaining.
+     */
+    public final SipHasherStream updateChars(CharSequence chars) {
+        int length = chars.length();
+        int last = length / 4 * 4;
+        int i = 0;
+
+        while (i < last) {
+            append(
+                chars.charAt(i)
+                    | (long) chars.charAt(i + 1) << 16
+                    | (long) chars.charAt(i + 2) << 32
+                    | (long) chars.charAt(i + 3) << 48,
+                8
+            );
+            i += 4;
+        }
+
+        while (i < length) {
+            append(chars.charAt(i++), 2);
+        }
+        return this;
+    }
+
+    /**
+     * Retrieves the number of bytes provided to the stream so far.
+     *
+     * This counts every byte passed to any of the update methods since the
+     * stream was created (or last reset), and is not limited to 255 bytes.
+     *
+     * @return
+     *      the number of bytes provided to the stream.
+     */
+    public final long length() {
+        return this.len;
+    }
+
     /**
      * Finalizes the digest and returns the hash.
      *
@@ -141,23 +493,388 @@ public final class SipHasherStream {
      * the compression rounds once more - but this time using D rounds
      * of compression rather than C.
      *
+     * Finalization does not modify the stream, so it's possible to take
+     * the hash of all input so far and then continue to update the stream.
+     * This only costs the finalization rounds, rather than re-hashing the
+     * input (or copying the stream) to take a checkpoint.
+     *
      * @return
      *      the final result of the hash as a long.
+     * @throws IllegalStateException
+     *      if this stream was initialized for 128-bit output.
      */
     public final long digest() {
-        byte msgLenMod256 = this.len;
-
-        while (this.m_idx < 7) {
-            update((byte) 0);
+        if (this.wide) {
+            throw new IllegalStateException("Stream must be finalized using digest128!");
         }
-        update(msgLenMod256);
+
+        long v0 = this.v0;
+        long v1 = this.v1;
+        long v2 = this.v2;
+        long v3 = this.v3;
+
+        pad();
 
         this.v2 ^= 0xff;
-        for (int i = 0; i < this.d; i++) {
-            round();
+        rounds(this.d);
+
+        long hash = this.v0 ^ this.v1 ^ this.v2 ^ this.v3;
+
+        this.v0 = v0;
+        this.v1 = v1;
+        this.v2 = v2;
+        this.v3 = v3;
+
+        return hash;
+    }
+
+    /**
+     * Finalizes the digest and writes the 128-bit hash.
+     *
+     * This works the same way as {@link #digest()}, except that the D rounds
+     * of compression are applied twice to produce the two output words.
+     * As with {@link #digest()}, the stream can continue to be updated.
+     *
+     * @param out
+     *      the array to write the two 64-bit halves of the output into.
+     * @return
+     *      the provided output array, for convenience.
+     * @throws IllegalStateException
+     *      if this stream was not initialized for 128-bit output.
+     */
+    public final long[] digest128(long[] out) {
+        if (!this.wide) {
+            throw new IllegalStateException("Stream must be finalized using digest!");
+        }
+
+        checkOutput(out);
+
+        long v0 = this.v0;
+        long v1 = this.v1;
+        long v2 = this.v2;
+        long v3 = this.v3;
+
+        pad();
+
+        this.v2 ^= 0xee;
+        rounds(this.d);
+        out[0] = this.v0 ^ this.v1 ^ this.v2 ^ this.v3;
+
+        this.v1 ^= 0xdd;
+        rounds(this.d);
+        out[1] = this.v0 ^ this.v1 ^ this.v2 ^ this.v3;
+
+        this.v0 = v0;
+        this.v1 = v1;
+        this.v2 = v2;
+        this.v3 = v3;
+
+        return out;
+    }
+
+    /**
+     * Appends up to 8 little endian bytes to the current block.
+     *
+     * If the block is filled, it's compressed into the state and any bytes
+     * which did not fit are carried over into the next block.
+     *
+     * @param value
+     *      the bytes to append, in little endian.
+     * @param count
+     *      the number of bytes to append, between 1 and 8.
+     */
+    private void append(long value, int count) {
+        int index = (int) this.len & 7;
+
+        this.m |= value << (index * 8);
+        this.len += count;
+
+        index += count;
+        if (index < 8) {
+            return;
         }
 
-        return this.v0 ^ this.v1 ^ this.v2 ^ this.v3;
+        this.v3 ^= this.m;
+        rounds(this.c);
+        this.v0 ^= this.m;
+
+        index -= 8;
+        this.m = index == 0 ? 0 : value >>> ((count - index) * 8);
+    }
+
+    /**
+     * Validates that an array can hold an exported state.
+     *
+     * @param state
+     *      the array holding the state.
+     * @throws IllegalArgumentException
+     *      if the array holds fewer than {@link #STATE_LENGTH} elements.
+     */
+    private static void checkState(long[] state) {
+        if (state.length < STATE_LENGTH) {
+            throw new IllegalArgumentException("State must hold at least 6 longs!");
+        }
+    }
+
+    /**
+     * Pads the input to the next 8-byte block, ending with the length.
+     *
+     * As any unused bytes of the current block are always zero, the final
+     * block is formed by writing the length into the top byte directly.
+     */
+    private void pad() {
+        long b = this.m | this.len << 56;
+
+        this.v3 ^= b;
+        rounds(this.c);
+        this.v0 ^= b;
+    }
+
+    /**
+     * Compresses full 8-byte blocks from an array into the current state.
+     *
+     * The state is held in locals for the duration of the loop, rather than
+     * being written back to fields after every round. The default of 2 rounds
+     * of C compression has the rounds written out, as in the 0A implementation.
+     *
+     * @param bytes
+     *      the array containing the blocks to compress.
+     * @param offset
+     *      the index of the first block.
+     * @param last
+     *      the index after the final block; must be a multiple of 8 from offset.
+     */
+    private void compress(byte[] bytes, int offset, int last) {
+        long v0 = this.v0;
+        long v1 = this.v1;
+        long v2 = this.v2;
+        long v3 = this.v3;
+        int c = this.c;
+        long m;
+        int r;
+
+        if (c == 2) {
+            for (int i = offset; i < last; i += 8) {
+                m = bytesToLong(bytes, i);
+
+                v3 ^= m;
+
+                v0 += v1;
+                v2 += v3;
+                v1 = rotateLeft(v1, 13);
+                v3 = rotateLeft(v3, 16);
+
+                v1 ^= v0;
+                v3 ^= v2;
+                v0 = rotateLeft(v0, 32);
+
+                v2 += v1;
+                v0 += v3;
+                v1 = rotateLeft(v1, 17);
+                v3 = rotateLeft(v3, 21);
+
+                v1 ^= v2;
+                v3 ^= v0;
+                v2 = rotateLeft(v2, 32);
+
+                v0 += v1;
+                v2 += v3;
+                v1 = rotateLeft(v1, 13);
+                v3 = rotateLeft(v3, 16);
+
+                v1 ^= v0;
+                v3 ^= v2;
+                v0 = rotateLeft(v0, 32);
+
+                v2 += v1;
+                v0 += v3;
+                v1 = rotateLeft(v1, 17);
+                v3 = rotateLeft(v3, 21);
+
+                v1 ^= v2;
+                v3 ^= v0;
+                v2 = rotateLeft(v2, 32);
+
+                v0 ^= m;
+            }
+        } else {
+            for (int i = offset; i < last; i += 8) {
+                m = bytesToLong(bytes, i);
+
+                v3 ^= m;
+                for (r = 0; r < c; r++) {
+                    v0 += v1;
+                    v2 += v3;
+                    v1 = rotateLeft(v1, 13);
+                    v3 = rotateLeft(v3, 16);
+
+                    v1 ^= v0;
+                    v3 ^= v2;
+                    v0 = rotateLeft(v0, 32);
+
+                    v2 += v1;
+                    v0 += v3;
+                    v1 = rotateLeft(v1, 17);
+                    v3 = rotateLeft(v3, 21);
+
+                    v1 ^= v2;
+                    v3 ^= v0;
+                    v2 = rotateLeft(v2, 32);
+                }
+                v0 ^= m;
+            }
+        }
+
+        this.v0 = v0;
+        this.v1 = v1;
+        this.v2 = v2;
+        this.v3 = v3;
+        this.len += last - offset;
+    }
+
+    /**
+     * Compresses full 8-byte blocks from a buffer into the current state.
+     *
+     * This is the buffer equivalent of {@link #compress(byte[], int, int)},
+     * using absolute reads and swapping the byte order where necessary. The
+     * position of the buffer is not modified.
+     *
+     * @param buffer
+     *      the buffer containing the blocks to compress.
+     * @param offset
+     *      the index of the first block.
+     * @param last
+     *      the index after the final block; must be a multiple of 8 from offset.
+     */
+    private void compress(ByteBuffer buffer, int offset, int last) {
+        boolean swap = buffer.order() == ByteOrder.BIG_ENDIAN;
+        long v0 = this.v0;
+        long v1 = this.v1;
+        long v2 = this.v2;
+        long v3 = this.v3;
+        int c = this.c;
+        long m;
+        int r;
+
+        if (c == 2) {
+            for (int i = offset; i < last; i += 8) {
+                m = buffer.getLong(i);
+                if (swap) {
+                    m = Long.reverseBytes(m);
+                }
+
+                v3 ^= m;
+
+                v0 += v1;
+                v2 += v3;
+                v1 = rotateLeft(v1, 13);
+                v3 = rotateLeft(v3, 16);
+
+                v1 ^= v0;
+                v3 ^= v2;
+                v0 = rotateLeft(v0, 32);
+
+                v2 += v1;
+                v0 += v3;
+                v1 = rotateLeft(v1, 17);
+                v3 = rotateLeft(v3, 21);
+
+                v1 ^= v2;
+                v3 ^= v0;
+                v2 = rotateLeft(v2, 32);
+
+                v0 += v1;
+                v2 += v3;
+                v1 = rotateLeft(v1, 13);
+                v3 = rotateLeft(v3, 16);
+
+                v1 ^= v0;
+                v3 ^= v2;
+                v0 = rotateLeft(v0, 32);
+
+                v2 += v1;
+                v0 += v3;
+                v1 = rotateLeft(v1, 17);
+                v3 = rotateLeft(v3, 21);
+
+                v1 ^= v2;
+                v3 ^= v0;
+                v2 = rotateLeft(v2, 32);
+
+                v0 ^= m;
+            }
+        } else {
+            for (int i = offset; i < last; i += 8) {
+                m = buffer.getLong(i);
+                if (swap) {
+                    m = Long.reverseBytes(m);
+                }
+
+                v3 ^= m;
+                for (r = 0; r < c; r++) {
+                    v0 += v1;
+                    v2 += v3;
+                    v1 = rotateLeft(v1, 13);
+                    v3 = rotateLeft(v3, 16);
+
+                    v1 ^= v0;
+                    v3 ^= v2;
+                    v0 = rotateLeft(v0, 32);
+
+                    v2 += v1;
+                    v0 += v3;
+                    v1 = rotateLeft(v1, 17);
+                    v3 = rotateLeft(v3, 21);
+
+                    v1 ^= v2;
+                    v3 ^= v0;
+                    v2 = rotateLeft(v2, 32);
+                }
+                v0 ^= m;
+            }
+        }
+
+        this.v0 = v0;
+        this.v1 = v1;
+        this.v2 = v2;
+        this.v3 = v3;
+        this.len += last - offset;
+    }
+
+    /**
+     * Applies a number of SipRounds to the current state.
+     *
+     * Round counts up to 4 (which covers both SipHash-2-4 and SipHash-1-3)
+     * are written out directly, rather than going through a loop.
+     *
+     * @param n
+     *      the number of rounds to apply.
+     */
+    private void rounds(int n) {
+        switch (n) {
+            case 1:
+                round();
+                break;
+            case 2:
+                round();
+                round();
+                break;
+            case 3:
+                round();
+                round();
+                round();
+                break;
+            case 4:
+                round();
+                round();
+                round();
+                round();
+                break;
+            default:
+                for (int i = 0; i < n; i++) {
+                    round();
+                }
+        }
     }
 
     /**
@@ -0,0 +1,654 @@
+package io.whitfin.siphash;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Keyed HyperLogLog++ sketch for estimating the number of distinct elements.
+ *
+ * Each element is hashed using SipHash-1-3 under the key of the sketch, so
+ * the hashes (and therefore the estimate) cannot be skewed by an attacker who
+ * doesn't know the key. Hashing elements does not allocate.
+ *
+ * Following HyperLogLog++, a sketch starts in a sparse representation which
+ * records hashes at a precision of 25 bits, as a sorted array of integers.
+ * This is both smaller and far more accurate than the dense registers while
+ * only a few elements have been added, which matters when many sketches are
+ * kept at once. New entries are appended to a small unsorted buffer, which is
+ * sorted and merged into the sparse array whenever it fills, so each addition
+ * costs amortized O(log n) rather than shifting the sparse array. Once the
+ * sparse form would be larger than the dense form, it is converted into 2^p
+ * registers of 6 bits each, packed 10 to a long.
+ *
+ * Dense estimates use linear counting up to 2.5 times the register count (as
+ * in the original HyperLogLog), and the raw HyperLogLog estimate beyond it.
+ * The empirical bias correction tables of HyperLogLog++ are not included, so
+ * estimates between roughly 2.5 and 5 times the register count carry a small
+ * positive bias.
+ *
+ * Sketches created with the same key and precision can be merged, including
+ * after being written to a {@link DataOutput} and read on another node. The
+ * serialized form records a key id (a hash of a fixed message under the key),
+ * so sketches created with different keys are rejected. This class is not
+ * thread safe.
+ */
+public final class SipHyperLogLog {
+
+    /**
+     * The smallest supported precision.
+     */
+    public static final int MINIMUM_PRECISION = 4;
+
+    /**
+     * The largest supported precision.
+     */
+    public static final int MAXIMUM_PRECISION = 18;
+
+    /**
+     * The precision of the sparse representation.
+     */
+    private static final int SPARSE_PRECISION = 25;
+
+    /**
+     * The number of registers packed into each long.
+     */
+    private static final int REGISTERS_PER_WORD = 10;
+
+    /**
+     * The mask of a single register.
+     */
+    private static final long REGISTER_MASK = 0x3f;
+
+    /**
+     * The version of the serialized form.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The message hashed to create the key id of a sketch.
+     */
+    private static final String KEY_ID_MESSAGE = "io.whitfin.siphash.SipHyperLogLog";
+
+    /**
+     * The container used to hash all elements of this sketch.
+     */
+    private final SipHasherContainer container;
+
+    /**
+     * The identifier of the key of this sketch.
+     */
+    private final long keyId;
+
+    /**
+     * The precision of the dense registers.
+     */
+    private final int precision;
+
+    /**
+     * The sorted sparse entries, or null once dense.
+     */
+    private int[] sparse;
+
+    /**
+     * The number of sparse entries in use.
+     */
+    private int size;
+
+    /**
+     * The unsorted entries not yet merged into the sparse entries.
+     */
+    private int[] pending;
+
+    /**
+     * The number of unsorted entries in use.
+     */
+    private int count;
+
+    /**
+     * The packed dense registers, or null while sparse.
+     */
+    private long[] registers;
+
+    /**
+     * Initializes an empty sketch with a precision.
+     *
+     * The standard error of the estimate is roughly 1.04 / sqrt(2^precision),
+     * and the dense form uses 0.75 * 2^precision bytes.
+     *
+     * @param key
+     *      the key used to hash elements.
+     * @param precision
+     *      the precision, between 4 and 18.
+     * @throws IllegalArgumentException
+     *      if the key is not 16 bytes, or the precision is invalid.
+     */
+    public SipHyperLogLog(byte[] key, int precision) {
+        if (precision < MINIMUM_PRECISION || precision > MAXIMUM_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between 4 and 18!");
+        }
+
+        this.container = SipHasher.container(key);
+        this.keyId = this.container.hashUtf8(KEY_ID_MESSAGE, 1, 3);
+        this.precision = precision;
+        this.sparse = new int[4];
+        this.pending = new int[4];
+    }
+
+    /**
+     * Reads a sketch previously written via {@link #writeTo(DataOutput)}.
+     *
+     * @param key
+     *      the key the sketch was created with.
+     * @param in
+     *      the input to read the sketch from.
+     * @return
+     *      a new {@link SipHyperLogLog} instance.
+     * @throws IOException
+     *      if the sketch cannot be read.
+     * @throws IllegalArgumentException
+     *      if the sketch was created with a different key, or the
+     *      serialized form is invalid.
+     */
+    public static SipHyperLogLog readFrom(byte[] key, DataInput in) throws IOException {
+        if (in.readUnsignedByte() != VERSION) {
+            throw new IllegalArgumentException("Sketch must be serialized using version 1!");
+        }
+
+        long keyId = in.readLong();
+        SipHyperLogLog sketch = new SipHyperLogLog(key, in.readUnsignedByte());
+
+        if (sketch.keyId != keyId) {
+            throw new IllegalArgumentException("Sketch must be created with the same key!");
+        }
+
+        if (in.readBoolean()) {
+            sketch.dense();
+            for (int i = 0; i < sketch.registers.length; i++) {
+                sketch.registers[i] = in.readLong();
+            }
+            for (int i = 0, m = 1 << sketch.precision; i < m; i++) {
+                if (sketch.get(i) > 64 - sketch.precision + 1) {
+                    throw new IllegalArgumentException("Sketch must only contain valid register ranks!");
+                }
+            }
+            return sketch;
+        }
+
+        int size = in.readInt();
+        if (size < 0 || size > sketch.limit()) {
+            throw new IllegalArgumentException("Sketch must not exceed the sparse limit!");
+        }
+
+        int[] sparse = new int[Math.max(4, size)];
+        long entry = 0;
+
+        for (int i = 0, previous = -1; i < size; i++) {
+            entry += readVarInt(in) & 0xffffffffL;
+
+            if (entry >= 1L << (SPARSE_PRECISION + 6)) {
+                throw new IllegalArgumentException("Sketch must only contain valid sparse indices!");
+            }
+
+            int index = (int) (entry >>> 6);
+            int rank = (int) (entry & REGISTER_MASK);
+
+            if (index <= previous) {
+                throw new IllegalArgumentException("Sketch must contain strictly increasing sparse indices!");
+            }
+
+            if (rank < 1 || rank > 64 - SPARSE_PRECISION + 1) {
+                throw new IllegalArgumentException("Sketch must only contain valid sparse ranks!");
+            }
+
+            sparse[i] = (int) entry;
+            previous = index;
+        }
+
+        sketch.sparse = sparse;
+        sketch.size = size;
+
+        return sketch;
+    }
+
+    /**
+     * Retrieves the precision of the sketch.
+     *
+     * @return
+     *      the precision of the dense registers.
+     */
+    public final int precision() {
+        return this.precision;
+    }
+
+    /**
+     * Retrieves the identifier of the key of the sketch.
+     *
+     * @return
+     *      the key id, equal for all sketches using the same key.
+     */
+    public final long keyId() {
+        return this.keyId;
+    }
+
+    /**
+     * Adds an element to the sketch.
+     *
+     * @param element
+     *      the element to add.
+     */
+    public final void add(byte[] element) {
+        addHash(this.container.hash(element, 1, 3));
+    }
+
+    /**
+     * Adds an element to the sketch.
+     *
+     * @param element
+     *      the element to add, as UTF-8.
+     */
+    public final void add(CharSequence element) {
+        addHash(this.container.hashUtf8(element, 1, 3));
+    }
+
+    /**
+     * Adds an element to the sketch.
+     *
+     * @param element
+     *      the element to add, as 8 little endian bytes.
+     */
+    public final void add(long element) {
+        addHash(this.container.hashLong(element, 1, 3));
+    }
+
+    /**
+     * Estimates the number of distinct elements added to the sketch.
+     *
+     * @return
+     *      the estimated cardinality.
+     */
+    public final long cardinality() {
+        flush();
+
+        if (this.registers == null) {
+            return Math.round(linear(1 << SPARSE_PRECISION, (1 << SPARSE_PRECISION) - this.size));
+        }
+
+        int m = 1 << this.precision;
+        double sum = 0;
+        int zeros = 0;
+
+        for (int i = 0; i < m; i++) {
+            int value = get(i);
+            if (value == 0) {
+                zeros++;
+            }
+            sum += Double.longBitsToDouble((1023L - value) << 52);
+        }
+
+        double estimate = alpha(m) * m * m / sum;
+        if (zeros != 0 && estimate <= 2.5 * m) {
+            estimate = linear(m, zeros);
+        }
+
+        return Math.round(estimate);
+    }
+
+    /**
+     * Merges another sketch into this sketch, so that it estimates the
+     * number of distinct elements added to either sketch.
+     *
+     * @param sketch
+     *      the sketch to merge into this sketch.
+     * @throws IllegalArgumentException
+     *      if the sketch has a different key or precision.
+     */
+    public final void merge(SipHyperLogLog sketch) {
+        if (sketch.keyId != this.keyId || sketch.precision != this.precision) {
+            throw new IllegalArgumentException("Sketches must share the same key and precision!");
+        }
+
+        if (sketch.registers == null) {
+            for (int i = 0; i < sketch.size; i++) {
+                addEntry(sketch.sparse[i]);
+            }
+            for (int i = 0; i < sketch.count; i++) {
+                addEntry(sketch.pending[i]);
+            }
+            return;
+        }
+
+        if (this.registers == null) {
+            dense();
+        }
+
+        for (int i = 0; i < this.registers.length; i++) {
+            long merged = 0;
+            for (int j = 0; j < REGISTERS_PER_WORD; j++) {
+                int shift = j * 6;
+                long a = this.registers[i] >>> shift & REGISTER_MASK;
+                long b = sketch.registers[i] >>> shift & REGISTER_MASK;
+                merged |= Math.max(a, b) << shift;
+            }
+            this.registers[i] = merged;
+        }
+    }
+
+    /**
+     * Writes the sketch to an output, to be read via {@link #readFrom(byte[], DataInput)}.
+     *
+     * The serialized form is a version byte, the key id, the precision as a
+     * byte, and a flag for the dense form. Dense sketches then write their
+     * packed registers, and sparse sketches write the number of entries and
+     * then each entry as a variable length delta from the previous entry.
+     *
+     * @param out
+     *      the output to write the sketch to.
+     * @throws IOException
+     *      if the sketch cannot be written.
+     */
+    public final void writeTo(DataOutput out) throws IOException {
+        flush();
+
+        out.writeByte(VERSION);
+        out.writeLong(this.keyId);
+        out.writeByte(this.precision);
+        out.writeBoolean(this.registers != null);
+
+        if (this.registers != null) {
+            for (long word : this.registers) {
+                out.writeLong(word);
+            }
+            return;
+        }
+
+        out.writeInt(this.size);
+        for (int i = 0, previous = 0; i < this.size; i++) {
+            writeVarInt(out, this.sparse[i] - previous);
+            previous = this.sparse[i];
+        }
+    }
+
+    /**
+     * Determines whether the sketch is using the sparse representation.
+     *
+     * @return
+     *      true if the sketch is sparse.
+     */
+    final boolean isSparse() {
+        flush();
+        return this.registers == null;
+    }
+
+    /**
+     * Adds the hash of an element to the sketch.
+     *
+     * @param hash
+     *      the hash of the element.
+     */
+    private void addHash(long hash) {
+        if (this.registers != null) {
+            int index = (int) (hash >>> (64 - this.precision));
+            int rank = Long.numberOfLeadingZeros(hash << this.precision | 1L << (this.precision - 1)) + 1;
+            if (rank > get(index)) {
+                set(index, rank);
+            }
+            return;
+        }
+
+        int index = (int) (hash >>> (64 - SPARSE_PRECISION));
+        int rank = Long.numberOfLeadingZeros(hash << SPARSE_PRECISION | 1L << (SPARSE_PRECISION - 1)) + 1;
+
+        addEntry(index << 6 | rank);
+    }
+
+    /**
+     * Adds a sparse entry, buffering it until the next merge.
+     *
+     * @param entry
+     *      the index and rank of the entry, encoded as {@code index << 6 | rank}.
+     */
+    private void addEntry(int entry) {
+        if (this.registers != null) {
+            addDense(entry);
+            return;
+        }
+
+        if (this.count == this.pending.length) {
+            if (this.count < pendingLimit()) {
+                this.pending = Arrays.copyOf(this.pending, Math.min(pendingLimit(), this.count * 2));
+            } else {
+                flush();
+                if (this.registers != null) {
+                    addDense(entry);
+                    return;
+                }
+            }
+        }
+
+        this.pending[this.count++] = entry;
+    }
+
+    /**
+     * Merges the buffered entries into the sparse entries, converting to the
+     * dense form if the merged entries exceed the sparse limit.
+     *
+     * Entries are kept sorted by index, with only the highest rank kept for
+     * each index; as the rank is held in the low bits, this is the same as
+     * sorting the encoded entries. The buffer is sorted and then merged from
+     * the back of the sparse array, so no entries are shifted more than once.
+     */
+    private void flush() {
+        int count = this.count;
+        if (count == 0 || this.registers != null) {
+            return;
+        }
+
+        int[] pending = this.pending;
+        int end = this.size + count;
+
+        Arrays.sort(pending, 0, count);
+
+        if (this.sparse.length < end) {
+            int capacity = Math.max(end, Math.min(this.limit() + pendingLimit(), this.sparse.length * 2));
+            this.sparse = Arrays.copyOf(this.sparse, capacity);
+        }
+
+        int[] sparse = this.sparse;
+        int i = this.size - 1;
+        int j = count - 1;
+        int k = end;
+
+        while (j >= 0) {
+            int next = i >= 0 && sparse[i] > pending[j] ? sparse[i--] : pending[j--];
+            if (k == end || sparse[k] >>> 6 != next >>> 6) {
+                sparse[--k] = next;
+            }
+        }
+
+        if (i >= 0 && k < end && sparse[i] >>> 6 == sparse[k] >>> 6) {
+            i--;
+        }
+
+        System.arraycopy(sparse, k, sparse, i + 1, end - k);
+
+        this.size = i + 1 + end - k;
+        this.count = 0;
+
+        if (this.size > this.limit()) {
+            dense();
+        }
+    }
+
+    /**
+     * Adds a sparse entry to the dense registers.
+     *
+     * The dense index is the top bits of the sparse index. If the remaining
+     * bits of the sparse index are zero, the rank continues into the sparse
+     * rank; otherwise the rank is found within those remaining bits.
+     *
+     * @param entry
+     *      the index and rank of the entry, encoded as {@code index << 6 | rank}.
+     */
+    private void addDense(int entry) {
+        int extra = SPARSE_PRECISION - this.precision;
+        int sparseIndex = entry >>> 6;
+        int index = sparseIndex >>> extra;
+        int remainder = sparseIndex & ((1 << extra) - 1);
+
+        int rank = remainder == 0
+            ? extra + (entry & (int) REGISTER_MASK)
+            : Integer.numberOfLeadingZeros(remainder) - (32 - extra) + 1;
+
+        if (rank > get(index)) {
+            set(index, rank);
+        }
+    }
+
+    /**
+     * Converts the sketch from the sparse to the dense form.
+     */
+    private void dense() {
+        int[] sparse = this.sparse;
+        int[] pending = this.pending;
+        int size = this.size;
+        int count = this.count;
+
+        int m = 1 << this.precision;
+        this.registers = new long[(m + REGISTERS_PER_WORD - 1) / REGISTERS_PER_WORD];
+        this.sparse = null;
+        this.pending = null;
+        this.size = 0;
+        this.count = 0;
+
+        for (int i = 0; i < size; i++) {
+            addDense(sparse[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            addDense(pending[i]);
+        }
+    }
+
+    /**
+     * Retrieves the number of sparse entries allowed before converting to
+     * the dense form, at which point the two forms are of similar size.
+     *
+     * @return
+     *      the maximum number of sparse entries.
+     */
+    private int limit() {
+        return (1 << this.precision) * 3 / 16;
+    }
+
+    /**
+     * Retrieves the number of unsorted entries buffered before a merge.
+     *
+     * @return
+     *      the maximum number of buffered entries.
+     */
+    private int pendingLimit() {
+        return Math.max(4, this.limit() / 8);
+    }
+
+    /**
+     * Retrieves the value of a dense register.
+     *
+     * @param index
+     *      the index of the register.
+     * @return
+     *      the value of the register.
+     */
+    private int get(int index) {
+        return (int) (this.registers[index / REGISTERS_PER_WORD] >>> (index % REGISTERS_PER_WORD * 6) & REGISTER_MASK);
+    }
+
+    /**
+     * Sets the value of a dense register.
+     *
+     * @param index
+     *      the index of the register.
+     * @param value
+     *      the value of the register.
+     */
+    private void set(int index, int value) {
+        int word = index / REGISTERS_PER_WORD;
+        int shift = index % REGISTERS_PER_WORD * 6;
+        this.registers[word] = this.registers[word] & ~(REGISTER_MASK << shift) | (long) value << shift;
+    }
+
+    /**
+     * Calculates the linear counting estimate for a number of registers.
+     *
+     * @param m
+     *      the number of registers.
+     * @param zeros
+     *      the number of registers which are zero.
+     * @return
+     *      the estimated cardinality.
+     */
+    private static double linear(int m, int zeros) {
+        return m * Math.log((double) m / zeros);
+    }
+
+    /**
+     * Calculates the bias correction constant for a number of registers.
+     *
+     * @param m
+     *      the number of registers.
+     * @return
+     *      the bias correction constant.
+     */
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    /**
+     * Writes an unsigned variable length integer, 7 bits per byte.
+     *
+     * @param out
+     *      the output to write to.
+     * @param value
+     *      the value to write.
+     * @throws IOException
+     *      if the value cannot be written.
+     */
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte(value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Reads an unsigned variable length integer, 7 bits per byte.
+     *
+     * @param in
+     *      the input to read from.
+     * @return
+     *      the value read.
+     * @throws IOException
+     *      if the value cannot be read.
+     */
+    private static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Variable length integer must fit within 5 bytes!");
+    }
+}
@@ -0,0 +1,447 @@
+package io.whitfin.siphash;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static io.whitfin.siphash.SipHasher.*;
+
+/**
+ * Keyed tree hashing mode for very large inputs.
+ *
+ * Input is split into fixed size chunks, each of which is hashed using SipHash
+ * in parallel on a {@link ForkJoinPool}. The digests of each chunk (the leaves)
+ * are then combined using an outer SipHash, allowing large inputs to be hashed
+ * using all available cores rather than one.
+ *
+ * The output is defined as follows, where all values are written as 8 byte
+ * little endian integers and every hash uses the same key and rounds:
+ *
+ * <pre>
+ *   leaf[i] = SipHash(chunk[i]), with v1 ^= 0x01 after keying
+ *   tree    = SipHash(chunkSize || leaf[0] || ... || leaf[n - 1] || length), with v1 ^= 0x02 after keying
+ * </pre>
+ *
+ * The flags separate leaves, roots and plain hashes in the same way that the
+ * 128-bit output flags v1 with {@code 0xee}. A tree hash is therefore never
+ * equal to a plain {@link SipHasher#hash(byte[], byte[])} of any message under
+ * the same key, and a root can't be passed off as a leaf (or vice versa).
+ *
+ * Every chunk is exactly {@code chunkSize} bytes aside from the last, which
+ * holds the remaining bytes (empty input has no chunks at all). The output only
+ * depends on the key, the rounds, the chunk size and the input, so it's stable
+ * across runs, machines and pool sizes. Fingerprints must always be compared
+ * using the same chunk size, so it's recommended to stick to the default of
+ * {@link #DEFAULT_CHUNK_SIZE} unless there's good reason not to.
+ */
+public final class SipTreeHasher {
+
+    /**
+     * The default size of each chunk, in bytes (1 MiB).
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * The flag applied to v1 when hashing a leaf.
+     */
+    private static final long LEAF_FLAG = 0x01;
+
+    /**
+     * The flag applied to v1 when hashing the root.
+     */
+    private static final long ROOT_FLAG = 0x02;
+
+    /**
+     * The seeded value for the magic v0 number.
+     */
+    private final long v0;
+
+    /**
+     * The seeded value for the magic v1 number.
+     */
+    private final long v1;
+
+    /**
+     * The seeded value for the magic v2 number.
+     */
+    private final long v2;
+
+    /**
+     * The seeded value for the magic v3 number.
+     */
+    private final long v3;
+
+    /**
+     * The size of each chunk, in bytes.
+     */
+    private final int chunkSize;
+
+    /**
+     * The pool used to hash chunks in parallel.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Initializes a tree hasher from a key, chunk size and pool.
+     *
+     * @param key
+     *      the key to use when hashing.
+     * @param chunkSize
+     *      the size of each chunk, in bytes.
+     * @param pool
+     *      the pool to hash chunks on.
+     */
+    SipTreeHasher(byte[] key, int chunkSize, ForkJoinPool pool) {
+        if (key.length != 16) {
+            throw new IllegalArgumentException("Key must be exactly 16 bytes!");
+        }
+
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive!");
+        }
+
+        long k0 = bytesToLong(key, 0);
+        long k1 = bytesToLong(key, 8);
+
+        this.v0 = INITIAL_V0 ^ k0;
+        this.v1 = INITIAL_V1 ^ k1;
+        this.v2 = INITIAL_V2 ^ k0;
+        this.v3 = INITIAL_V3 ^ k1;
+
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+    }
+
+    /**
+     * Retrieves the size of each chunk, in bytes.
+     *
+     * @return
+     *      the size of each chunk.
+     */
+    public final int chunkSize() {
+        return this.chunkSize;
+    }
+
+    /**
+     * Hashes input data as a tree using the preconfigured state.
+     *
+     * @param data
+     *      the data to hash and digest.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hash(byte[] data) {
+        return hash(data, DEFAULT_C, DEFAULT_D);
+    }
+
+    /**
+     * Hashes input data as a tree using the preconfigured state.
+     *
+     * @param data
+     *      the data to hash and digest.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    public final long hash(byte[] data, int c, int d) {
+        long[] leaves = new long[chunks(data.length)];
+        leaves(new Leaves(c, d, data, null, 0, 0, leaves.length, leaves));
+        return root(c, d, leaves, data.length);
+    }
+
+    /**
+     * Hashes the contents of a file as a tree using the preconfigured state.
+     *
+     * @param path
+     *      the path of the file to hash.
+     * @return
+     *      a long value as the output of the hash.
+     * @throws IOException
+     *      if the file cannot be opened or mapped.
+     */
+    public final long hashFile(Path path) throws IOException {
+        return hashFile(path, DEFAULT_C, DEFAULT_D);
+    }
+
+    /**
+     * Hashes the contents of a file as a tree using the preconfigured state.
+     *
+     * The file is memory mapped in windows of roughly 1 GiB (rounded down to
+     * a whole number of chunks), and the chunks of each window are hashed in
+     * parallel without copying to the heap. The result is identical to hashing
+     * the contents of the file as an array.
+     *
+     * @param path
+     *      the path of the file to hash.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @return
+     *      a long value as the output of the hash.
+     * @throws IOException
+     *      if the file cannot be opened or mapped.
+     */
+    public final long hashFile(Path path, int c, int d) throws IOException {
+        return hashFile(path, c, d, Math.max(1, MAP_WINDOW / this.chunkSize) * this.chunkSize);
+    }
+
+    /**
+     * Hashes the contents of a file as a tree, mapping windows of a given size.
+     *
+     * @param path
+     *      the path of the file to hash.
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @param window
+     *      the size of each mapped window, which must be a multiple of the
+     *      chunk size.
+     * @return
+     *      a long value as the output of the hash.
+     * @throws IOException
+     *      if the file cannot be opened or mapped.
+     */
+    long hashFile(Path path, int c, int d, long window) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] leaves = new long[chunks(size)];
+
+            for (long position = 0; position < size; position += window) {
+                long length = Math.min(window, size - position);
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                int from = (int) (position / this.chunkSize);
+                int to = from + chunks(length);
+
+                leaves(new Leaves(c, d, null, buffer.order(ByteOrder.LITTLE_ENDIAN), from, from, to, leaves));
+            }
+
+            return root(c, d, leaves, size);
+        }
+    }
+
+    /**
+     * Retrieves the pool shared by tree hashers without a pool of their own.
+     *
+     * @return
+     *      the shared {@link ForkJoinPool} instance.
+     */
+    static ForkJoinPool defaultPool() {
+        return DefaultPool.INSTANCE;
+    }
+
+    /**
+     * Calculates the number of chunks in an input of a given length.
+     *
+     * @param length
+     *      the length of the input.
+     * @return
+     *      the number of chunks required to hold the input.
+     * @throws IllegalArgumentException
+     *      if the input has too many chunks to be hashed.
+     */
+    private int chunks(long length) {
+        long chunks = (length + this.chunkSize - 1) / this.chunkSize;
+        if (chunks > Integer.MAX_VALUE / 8 - 2) {
+            throw new IllegalArgumentException("Input must fit within 2^28 chunks!");
+        }
+        return (int) chunks;
+    }
+
+    /**
+     * Hashes a set of leaves, using the pool when there is more than one.
+     *
+     * @param task
+     *      the task used to hash the leaves.
+     */
+    private void leaves(Leaves task) {
+        if (task.to - task.from > 1) {
+            this.pool.invoke(task);
+        } else {
+            task.compute();
+        }
+    }
+
+    /**
+     * Combines the leaves of a tree into the final hash.
+     *
+     * @param c
+     *      the desired rounds of C compression.
+     * @param d
+     *      the desired rounds of D compression.
+     * @param leaves
+     *      the digest of every chunk of the input.
+     * @param length
+     *      the total length of the input.
+     * @return
+     *      a long value as the output of the hash.
+     */
+    private long root(int c, int d, long[] leaves, long length) {
+        ByteBuffer message = ByteBuffer
+            .allocate(8 * (leaves.length + 2))
+            .order(ByteOrder.LITTLE_ENDIAN);
+
+        message.putLong(this.chunkSize);
+        for (long leaf : leaves) {
+            message.putLong(leaf);
+        }
+        message.putLong(length);
+
+        return SipHasher.hash(
+            c, d,
+            this.v0,
+            this.v1 ^ ROOT_FLAG,
+            this.v2,
+            this.v3,
+            message.array(), 0, message.capacity()
+        );
+    }
+
+    /**
+     * Holder of the shared pool, so that it's only created when first used.
+     */
+    private static final class DefaultPool {
+
+        /**
+         * The shared pool, with a parallelism of the available processors.
+         */
+        private static final ForkJoinPool INSTANCE = new ForkJoinPool();
+    }
+
+    /**
+     * Recursive task used to hash a range of leaves in parallel.
+     *
+     * Input is either an array (covering the entire input) or a mapped buffer
+     * (covering the leaves starting from {@link #base}). Ranges are split in
+     * half until a single leaf remains, which is then hashed directly.
+     */
+    private final class Leaves extends RecursiveAction {
+
+        /**
+         * Serialization version, as required by {@link RecursiveAction}.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The rounds of C compression to apply.
+         */
+        private final int c;
+
+        /**
+         * The rounds of D compression to apply.
+         */
+        private final int d;
+
+        /**
+         * The input array, or null if hashing a buffer.
+         */
+        private final byte[] array;
+
+        /**
+         * The input buffer, or null if hashing an array.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * The index of the leaf at the start of the input.
+         */
+        private final int base;
+
+        /**
+         * The index of the first leaf to hash.
+         */
+        private final int from;
+
+        /**
+         * The index after the last leaf to hash.
+         */
+        private final int to;
+
+        /**
+         * The array to write the digest of each leaf into.
+         */
+        private final long[] leaves;
+
+        /**
+         * Initializes a task to hash a range of leaves.
+         *
+         * @param c
+         *      the rounds of C compression to apply.
+         * @param d
+         *      the rounds of D compression to apply.
+         * @param array
+         *      the input array, or null if hashing a buffer.
+         * @param buffer
+         *      the input buffer, or null if hashing an array.
+         * @param base
+         *      the index of the leaf at the start of the input.
+         * @param from
+         *      the index of the first leaf to hash.
+         * @param to
+         *      the index after the last leaf to hash.
+         * @param leaves
+         *      the array to write the digest of each leaf into.
+         */
+        Leaves(int c, int d, byte[] array, ByteBuffer buffer, int base, int from, int to, long[] leaves) {
+            this.c = c;
+            this.d = d;
+            this.array = array;
+            this.buffer = buffer;
+            this.base = base;
+            this.from = from;
+            this.to = to;
+            this.leaves = leaves;
+        }
+
+        /**
+         * Hashes the range of leaves, splitting it if necessary.
+         */
+        @Override
+        protected void compute() {
+            if (this.to - this.from > 1) {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(
+                    new Leaves(this.c, this.d, this.array, this.buffer, this.base, this.from, middle, this.leaves),
+                    new Leaves(this.c, this.d, this.array, this.buffer, this.base, middle, this.to, this.leaves)
+                );
+                return;
+            }
+
+            if (this.from == this.to) {
+                return;
+            }
+
+            int size = SipTreeHasher.this.chunkSize;
+            long v0 = SipTreeHasher.this.v0;
+            long v1 = SipTreeHasher.this.v1 ^ LEAF_FLAG;
+            long v2 = SipTreeHasher.this.v2;
+            long v3 = SipTreeHasher.this.v3;
+
+            if (this.array != null) {
+                int offset = this.from * size;
+                int length = Math.min(size, this.array.length - offset);
+                this.leaves[this.from] = SipHasher.hash(this.c, this.d, v0, v1, v2, v3, this.array, offset, length);
+                return;
+            }
+
+            int offset = (this.from - this.base) * size;
+            int length = Math.min(size, this.buffer.limit() - offset);
+
+            ByteBuffer chunk = this.buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            ((Buffer) chunk).limit(offset + length).position(offset);
+
+            this.leaves[this.from] = SipHasher.hash(this.c, this.d, v0, v1, v2, v3, chunk);
+        }
+    }
+}
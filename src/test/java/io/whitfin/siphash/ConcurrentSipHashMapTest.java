@@ -0,0 +1,149 @@
+package io.whitfin.siphash;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Test cases for the {@link ConcurrentSipHashMap} class.
+ */
+public class ConcurrentSipHashMapTest {
+
+    /**
+     * Tests invalid capacity exceptions are thrown.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidCapacity() {
+        new ConcurrentSipHashMap<String>(-1, 16);
+    }
+
+    /**
+     * Tests invalid concurrency exceptions are thrown.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidConcurrency() {
+        new ConcurrentSipHashMap<String>(16, 0);
+    }
+
+    /**
+     * Tests null values are rejected.
+     */
+    @Test(expectedExceptions = NullPointerException.class)
+    public void testExceptionOnNullValue() {
+        new ConcurrentSipHashMap<String>().put("key", null);
+    }
+
+    /**
+     * Tests the map behaves the same as a reference map under random use.
+     */
+    @Test
+    public void testMatchesReferenceMap() {
+        Random random = new Random(0);
+
+        for (int concurrency : new int[] { 1, 3, 64 }) {
+            ConcurrentSipHashMap<Integer> map = new ConcurrentSipHashMap<>(0, concurrency);
+            Map<String, Integer> reference = new HashMap<>();
+
+            for (int i = 0; i < 20000; i++) {
+                String key = "key-" + random.nextInt(500);
+                byte[] bytes = key.getBytes(Charset.forName("UTF-8"));
+
+                switch (random.nextInt(5)) {
+                    case 0:
+                        Assert.assertEquals(map.put(key, i), reference.put(key, i));
+                        break;
+                    case 1:
+                        Assert.assertEquals(map.put(bytes, i), reference.put(key, i));
+                        break;
+                    case 2:
+                        Integer existing = reference.get(key);
+                        if (existing == null) {
+                            reference.put(key, i);
+                        }
+                        Assert.assertEquals(random.nextBoolean() ? map.putIfAbsent(key, i) : map.putIfAbsent(bytes, i), existing);
+                        break;
+                    case 3:
+                        Assert.assertEquals(random.nextBoolean() ? map.remove(key) : map.remove(bytes), reference.remove(key));
+                        break;
+                    default:
+                        Assert.assertEquals(map.get(key), reference.get(key));
+                        Assert.assertEquals(map.get(bytes), reference.get(key));
+                        Assert.assertEquals(map.containsKey(key), reference.containsKey(key));
+                        Assert.assertEquals(map.containsKey(bytes), reference.containsKey(key));
+                }
+
+                Assert.assertEquals(map.size(), reference.size());
+            }
+
+            for (Map.Entry<String, Integer> entry : reference.entrySet()) {
+                Assert.assertEquals(map.get(entry.getKey()), entry.getValue());
+            }
+
+            map.clear();
+
+            Assert.assertTrue(map.isEmpty());
+            Assert.assertNull(map.get("key-0"));
+        }
+    }
+
+    /**
+     * Tests concurrent writers and lock-free readers never observe wrong values.
+     */
+    @Test
+    public void testConcurrentAccess() throws InterruptedException {
+        final ConcurrentSipHashMap<String> map = new ConcurrentSipHashMap<>(0, 4);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final int threads = 8;
+        final int keys = 5000;
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Random random = new Random(id);
+                        for (int i = 0; i < keys; i++) {
+                            String own = id + "-" + i;
+                            Assert.assertNull(map.put(own, own));
+
+                            String other = random.nextInt(threads) + "-" + random.nextInt(keys);
+                            String value = map.get(other);
+                            if (value != null) {
+                                Assert.assertEquals(value, other);
+                            }
+
+                            if (i % 3 == 0) {
+                                Assert.assertEquals(map.remove(own), own);
+                                Assert.assertNull(map.putIfAbsent(own, own));
+                                Assert.assertEquals(map.putIfAbsent(own, "other"), own);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Assert.assertNull(failure.get());
+        Assert.assertEquals(map.size(), threads * keys);
+
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < keys; i++) {
+                Assert.assertEquals(map.get(t + "-" + i), t + "-" + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.whitfin.siphash;
+
+import org.testng.annotations.Test;
+
+/**
+ * Test cases for the {@link HalfSipHasherContainer} class.
+ */
+public class HalfSipHasherContainerTest extends HalfSipHasherTest {
+
+    /**
+     * Tests invalid key exceptions are thrown.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidKey() {
+        HalfSipHasher.container(new byte[0]).hash(new byte[0]);
+    }
+
+    /**
+     * Tests all vectors using the container hash implementation.
+     */
+    @Test
+    public void testVectorsForContainerHash() {
+        testVectors(new Hasher() {
+            @Override
+            public int hash(byte[] key, byte[] data) {
+                return HalfSipHasher.container(key).hash(data);
+            }
+
+            @Override
+            public long hash64(byte[] key, byte[] data) {
+                return HalfSipHasher.container(key).hash64(data);
+            }
+        });
+    }
+
+    /**
+     * Tests all vectors using the container slice hash implementation.
+     */
+    @Test
+    public void testVectorsForContainerSliceHash() {
+        testVectors(new Hasher() {
+            @Override
+            public int hash(byte[] key, byte[] data) {
+                return HalfSipHasher.container(key).hash(SipHasherTest.pad(data), 3, data.length, 2, 4);
+            }
+
+            @Override
+            public long hash64(byte[] key, byte[] data) {
+                return HalfSipHasher.container(key).hash64(SipHasherTest.pad(data), 3, data.length, 2, 4);
+            }
+        });
+    }
+}
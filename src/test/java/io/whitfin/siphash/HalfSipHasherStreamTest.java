@@ -0,0 +1,131 @@
+package io.whitfin.siphash;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+/**
+ * Test cases for the {@link HalfSipHasherStream} class.
+ */
+public class HalfSipHasherStreamTest extends HalfSipHasherTest {
+
+    /**
+     * Tests invalid key exceptions are thrown.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidKey() {
+        HalfSipHasher.init(new byte[0]);
+    }
+
+    /**
+     * Tests all vectors using the streaming hash implementation.
+     */
+    @Test
+    public void testVectorsForStreamHash() {
+        testVectors(new Hasher() {
+            @Override
+            public int hash(byte[] key, byte[] data) {
+                return HalfSipHasher.init(key).update(data).digest();
+            }
+
+            @Override
+            public long hash64(byte[] key, byte[] data) {
+                return HalfSipHasher.init64(key).update(data).digest64();
+            }
+        });
+    }
+
+    /**
+     * Tests all vectors when streamed in chunks of varying sizes.
+     */
+    @Test
+    public void testVectorsForChunkedStreamHash() {
+        testVectors(new Hasher() {
+            @Override
+            public int hash(byte[] key, byte[] data) {
+                HalfSipHasherStream stream = HalfSipHasher.init(key);
+                for (int i = 0, chunk = 1; i < data.length; i += chunk++) {
+                    stream.update(data, i, Math.min(chunk, data.length - i));
+                }
+                return stream.digest();
+            }
+
+            @Override
+            public long hash64(byte[] key, byte[] data) {
+                HalfSipHasherStream stream = HalfSipHasher.init64(key);
+                for (int i = 0, chunk = 1; i < data.length; i += chunk++) {
+                    stream.update(SipHasherTest.pad(data), i + 3, Math.min(chunk, data.length - i));
+                }
+                return stream.digest64();
+            }
+        });
+    }
+
+    /**
+     * Tests 32-bit streams cannot be finalized as 64-bit.
+     */
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testExceptionOnNarrowDigest64() {
+        HalfSipHasher.init(new byte[8]).digest64();
+    }
+
+    /**
+     * Tests 64-bit streams cannot be finalized as 32-bit.
+     */
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testExceptionOnWideDigest() {
+        HalfSipHasher.init64(new byte[8]).digest();
+    }
+
+    /**
+     * Tests the stream length is tracked beyond 255 bytes.
+     */
+    @Test
+    public void testLengthTracksAllInput() {
+        byte[] key = new byte[8];
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        for (int length = 250; length <= data.length; length += 7) {
+            HalfSipHasherStream stream = HalfSipHasher.init(key);
+
+            stream.update(data[0]);
+            stream.update(data, 1, length - 1);
+
+            Assert.assertEquals(stream.length(), length);
+            Assert.assertEquals(stream.digest(), HalfSipHasher.hash(key, Arrays.copyOf(data, length)));
+        }
+    }
+
+    /**
+     * Tests digests can be taken without finalizing the stream.
+     */
+    @Test
+    public void testDigestsCanBeCheckpointed() {
+        byte[] key = new byte[8];
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        HalfSipHasherStream stream = HalfSipHasher.init(key);
+        HalfSipHasherStream wide = HalfSipHasher.init64(key);
+
+        for (int i = 0, chunk = 1; i < data.length; i += chunk++) {
+            int length = Math.min(chunk, data.length - i);
+            byte[] prefix = Arrays.copyOf(data, i + length);
+
+            stream.update(data, i, length);
+            wide.update(data, i, length);
+
+            int expected = HalfSipHasher.hash(key, prefix);
+
+            Assert.assertEquals(stream.digest(), expected);
+            Assert.assertEquals(stream.digest(), expected);
+            Assert.assertEquals(wide.digest64(), HalfSipHasher.hash64(key, prefix));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package io.whitfin.siphash;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test cases for the {@link HalfSipHasher} class.
+ *
+ * This also contains reference methods which can be used by other
+ * implementations in order to make sure of the same vector bootstrap.
+ */
+public class HalfSipHasherTest {
+
+    // test vectors via https://github.com/veorq/SipHash/blob/master/vectors.h
+    private static final int[] EXPECTED_32 = new int[] {
+        0x5b9f35a9, 0xb85a4727, 0x03a662fa, 0x04e7fe8a, 0x89466e2a, 0x69b6fac5, 0x23fc6358, 0xc563cf8b,
+        0x8f84b8d0, 0x79e706f8, 0x3479b094, 0x50300808, 0x2f87f057, 0xff63e677, 0x7cf8ffd6, 0x972bfe74,
+        0x84acb5d9, 0x5b6474c4, 0x9b8d5b46, 0x87e3ef7b, 0x45104de3, 0xb3623f61, 0xfe67f370, 0xbdb8ade6,
+        0x630c4027, 0x75787826, 0x5f7b564f, 0x69e6b03a, 0x004064b0, 0xb40f67ff, 0x8b339e50, 0x1a9f585d,
+        0x1221e7fe, 0x59327533, 0x8c4f436a, 0x29b728fe, 0xecc65ce7, 0x548d7e69, 0x0f8b6863, 0xb4620b65,
+        0x4018bcb6, 0x0545075d, 0x2efd4224, 0x3a86b77b, 0x48d50577, 0xb10852d7, 0xc899d4b6, 0x2e209208,
+        0xe32ce169, 0xe580b58d, 0xc6649736, 0x04026e01, 0xd4f3853b, 0xbe66dbfe, 0x3a2a691e, 0xc08489c6,
+        0x40b9c5a5, 0x8ce8e99b, 0x4081bc7d, 0xc58e077c, 0x736ce7d4, 0xb9cb8f42, 0x7a9983bd, 0x744aea59
+    };
+
+    // test vectors via https://github.com/veorq/SipHash/blob/master/vectors.h
+    private static final long[] EXPECTED_64 = new long[] {
+        0xc83cb8b9591f8d21L, 0x157338f8122455beL, 0x57eb507cef394f06L, 0x790606f7451a0fceL,
+        0xa12ee55b178ae7d5L, 0x80b53d2f3f7c9dcbL, 0x25bca28a35913eceL, 0x84c67bb0282720ffL,
+        0x8c85e4bc20e8feedL, 0x07838813cccc515bL, 0xeef2a6069f46b095L, 0x48cddd94393326aeL,
+        0x99c7f5ae9f1fc77bL, 0x44370c5ad752235aL, 0x58e6e8ea70a8b13bL, 0x02c9814ecb0b7d21L,
+        0xb5f37b5fd2aa3673L, 0x6a4f4c1c64c0ad37L, 0xf9423e9a2bdbb2c9L, 0x3c36ab2080e410f9L,
+        0xdba7ee6f0a2bf51bL, 0xefb3e869c21d7400L, 0xef76a71bfa0301e2L, 0x731d684be510224cL,
+        0xf1a63fae45107470L, 0x384071393740860cL, 0xf0232911d89e890dL, 0xb8e11eb8faf56b22L,
+        0xb516001efb5f922dL, 0xf110ee2cd5581936L, 0x9d17984886af1a29L, 0x7c11345c157f3c86L,
+        0x6c6211d8469d7028L, 0x9cf8281d68778424L, 0x30988f52d7e42483L, 0xd86bea3ae1d4eff9L,
+        0xdc7642ec407ad686L, 0x357ea9ccec92623fL, 0x0921d424e72ed9cbL, 0x793d408d80f68d36L,
+        0x4caec8671cc8385bL, 0xb3ac39d48971ab95L, 0x24703225c0521aa9L, 0xeaac2895c687005bL,
+        0x5ab1dc27adf3301eL, 0xd44e32909a5c7f69L, 0x38dc5755990f5c49L, 0x4df9293c2a202794L,
+        0x3e3ea94bc0a8eaa9L, 0x1812017d73c1a4eeL, 0x495af6d88f562d91L, 0x975cffb096959156L,
+        0xe150f598795a4402L, 0xb21f1de76c46ec86L, 0xbce389d2e7699535L, 0x967cbb62ca051b87L,
+        0x1d5ff142f992a4a1L, 0x6e5b09f67f26ec12L, 0x9dd831b2a15e1b5dL, 0x54ee923f45b4cfd8L,
+        0x60e426bf902876d6L, 0xf35cedb7a4633531L, 0x9366d472b53a0bf9L, 0x876032bf713ca62eL
+    };
+
+    /**
+     * Tests constructor usage to suppress Jacoco.
+     */
+    @Test
+    public void testConstructorUsage() {
+        new HalfSipHasher();
+    }
+
+    /**
+     * Tests all vectors using the 0A hash implementation.
+     */
+    @Test
+    public void testVectorsForZeroAllocHash() {
+        testVectors(new Hasher() {
+            @Override
+            public int hash(byte[] key, byte[] data) {
+                return HalfSipHasher.hash(key, data);
+            }
+
+            @Override
+            public long hash64(byte[] key, byte[] data) {
+                return HalfSipHasher.hash64(key, data);
+            }
+        });
+    }
+
+    /**
+     * Tests invalid key exceptions are thrown.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidKey() {
+        HalfSipHasher.hash(new byte[0], new byte[0]);
+    }
+
+    /**
+     * Tests all implementations agree when using other rounds.
+     */
+    @Test
+    public void testRoundsMatchAcrossImplementations() {
+        byte[] key = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            key[i] = (byte) i;
+        }
+
+        int[][] rounds = new int[][] { { 1, 3 }, { 4, 8 } };
+
+        for (int[] round : rounds) {
+            for (int i = 0; i < 32; i++) {
+                byte[] data = new byte[i];
+                for (int j = 0; j < i; j++) {
+                    data[j] = (byte) j;
+                }
+
+                int c = round[0];
+                int d = round[1];
+
+                int hash = HalfSipHasher.hash(key, data, c, d);
+                long hash64 = HalfSipHasher.hash64(key, data, c, d);
+
+                Assert.assertEquals(HalfSipHasher.container(key).hash(data, c, d), hash);
+                Assert.assertEquals(HalfSipHasher.init(key, c, d).update(data).digest(), hash);
+
+                Assert.assertEquals(HalfSipHasher.container(key).hash64(data, c, d), hash64);
+                Assert.assertEquals(HalfSipHasher.init64(key, c, d).update(data).digest64(), hash64);
+            }
+        }
+    }
+
+    /**
+     * Tests the unrolled kernels match the generic rounds implementation.
+     */
+    @Test
+    public void testUnrolledRoundsMatchGeneric() {
+        int[][] rounds = new int[][] { { 2, 4 }, { 1, 3 } };
+
+        for (int[] round : rounds) {
+            for (int i = 0; i < 32; i++) {
+                byte[] data = new byte[i];
+                for (int j = 0; j < i; j++) {
+                    data[j] = (byte) j;
+                }
+
+                for (boolean wide : new boolean[] { false, true }) {
+                    Assert.assertEquals(
+                        HalfSipHasher.hash(round[0], round[1], 1, 2, 3, 4, data, 0, i, wide),
+                        HalfSipHasher.hashGeneric(round[0], round[1], 1, 2, 3, 4, data, 0, i, wide)
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * Vector test implementation to allow passing a hasher
+     * to avoid vector boilerplate.
+     *
+     * @param hasher
+     *      the hasher implementation used to generate a hash.
+     */
+    void testVectors(Hasher hasher) {
+        byte[] key = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            key[i] = (byte) i;
+        }
+
+        for (int i = 0; i < EXPECTED_32.length; i++) {
+            byte[] data = new byte[i];
+            for (int j = 0; j < i; j++) {
+                data[j] = (byte) j;
+            }
+
+            Assert.assertEquals(hasher.hash(key, data), EXPECTED_32[i]);
+            Assert.assertEquals(hasher.hash64(key, data), EXPECTED_64[i]);
+        }
+    }
+
+    /**
+     * Simple interface for use with {@link #testVectors(Hasher)}.
+     */
+    interface Hasher {
+
+        /**
+         * Given a key and input data, return a 32-bit hash.
+         *
+         * @param key
+         *      the key to seed the hash with.
+         * @param data
+         *      the data being hashed.
+         * @return
+         *      an int representation of a hash.
+         */
+        int hash(byte[] key, byte[] data);
+
+        /**
+         * Given a key and input data, return a 64-bit hash.
+         *
+         * @param key
+         *      the key to seed the hash with.
+         * @param data
+         *      the data being hashed.
+         * @return
+         *      a long representation of a hash.
+         */
+        long hash64(byte[] key, byte[] data);
+    }
+}
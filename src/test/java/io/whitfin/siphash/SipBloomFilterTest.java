@@ -0,0 +1,254 @@
+package io.whitfin.siphash;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.whitfin.siphash.SipHasherTest.input;
+import static io.whitfin.siphash.SipHasherTest.key;
+
+/**
+ * Test cases for the {@link SipBloomFilter} class.
+ */
+public class SipBloomFilterTest {
+
+    /**
+     * Tests invalid key exceptions are thrown.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidKey() {
+        new SipBloomFilter(new byte[0], 1024, 3);
+    }
+
+    /**
+     * Tests invalid bit count exceptions are thrown.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidBits() {
+        new SipBloomFilter(new byte[16], 0, 3);
+    }
+
+    /**
+     * Tests invalid hash count exceptions are thrown.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidHashes() {
+        new SipBloomFilter(new byte[16], 1024, 0);
+    }
+
+    /**
+     * Tests invalid false positive rate exceptions are thrown.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidRate() {
+        SipBloomFilter.create(new byte[16], 1000, 1);
+    }
+
+    /**
+     * Tests filters are sized as powers of two.
+     */
+    @Test
+    public void testFilterSizing() {
+        Assert.assertEquals(new SipBloomFilter(new byte[16], 1, 1).bitSize(), 64);
+        Assert.assertEquals(new SipBloomFilter(new byte[16], 1000, 1).bitSize(), 1024);
+        Assert.assertEquals(new SipBloomFilter(new byte[16], 1024, 1).bitSize(), 1024);
+
+        SipBloomFilter filter = SipBloomFilter.create(new byte[16], 1000, 0.01);
+
+        Assert.assertEquals(filter.bitSize(), 16384);
+        Assert.assertEquals(filter.hashCount(), 11);
+    }
+
+    /**
+     * Tests added elements are always found, and others are rarely found.
+     */
+    @Test
+    public void testFalsePositiveRate() {
+        Charset utf8 = Charset.forName("UTF-8");
+        SipBloomFilter filter = SipBloomFilter.create(key(), 10000, 0.01);
+
+        for (int i = 0; i < 10000; i++) {
+            if (i % 2 == 0) {
+                filter.add("element-" + i);
+            } else {
+                filter.add(("element-" + i).getBytes(utf8));
+            }
+        }
+
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertTrue(filter.mightContain("element-" + i));
+            Assert.assertTrue(filter.mightContain(("element-" + i).getBytes(utf8)));
+            Assert.assertFalse(filter.add("element-" + i));
+        }
+
+        int positives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain("missing-" + i)) {
+                positives++;
+            }
+        }
+
+        Assert.assertTrue(positives < 1000, "Too many false positives: " + positives);
+    }
+
+    /**
+     * Tests merged filters contain the elements of both filters.
+     */
+    @Test
+    public void testMergedFiltersContainBoth() {
+        SipBloomFilter left = new SipBloomFilter(key(), 8192, 5);
+        SipBloomFilter right = new SipBloomFilter(key(), 8192, 5);
+
+        for (int i = 0; i < 500; i++) {
+            left.add("left-" + i);
+            right.add("right-" + i);
+        }
+
+        left.merge(right);
+
+        for (int i = 0; i < 500; i++) {
+            Assert.assertTrue(left.mightContain("left-" + i));
+            Assert.assertTrue(left.mightContain("right-" + i));
+        }
+    }
+
+    /**
+     * Tests filters using different keys cannot be merged.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnMergeWithDifferentKey() {
+        new SipBloomFilter(key(), 8192, 5).merge(new SipBloomFilter(new byte[16], 8192, 5));
+    }
+
+    /**
+     * Tests filters of different sizes cannot be merged.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnMergeWithDifferentSize() {
+        new SipBloomFilter(key(), 8192, 5).merge(new SipBloomFilter(key(), 4096, 5));
+    }
+
+    /**
+     * Tests filters can be serialized and read back with the same key.
+     */
+    @Test
+    public void testSerializedFilterRoundTrip() throws IOException {
+        SipBloomFilter filter = new SipBloomFilter(key(), 4096, 4);
+        for (int i = 0; i < 200; i++) {
+            filter.add("element-" + i);
+        }
+
+        SipBloomFilter copy = SipBloomFilter.readFrom(key(), input(output(filter)));
+
+        Assert.assertEquals(copy.keyId(), filter.keyId());
+        Assert.assertEquals(copy.bitSize(), filter.bitSize());
+        Assert.assertEquals(copy.hashCount(), filter.hashCount());
+        Assert.assertEquals(output(copy), output(filter));
+
+        for (int i = 0; i < 200; i++) {
+            Assert.assertTrue(copy.mightContain("element-" + i));
+        }
+    }
+
+    /**
+     * Tests serialized filters cannot be read with a different key.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnReadWithDifferentKey() throws IOException {
+        SipBloomFilter.readFrom(new byte[16], input(output(new SipBloomFilter(key(), 4096, 4))));
+    }
+
+    /**
+     * Tests the key is checked before a filter is allocated.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnReadWithDifferentKeyBeforeAllocating() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeByte(1);
+        out.writeLong(new SipBloomFilter(new byte[16], 64, 1).keyId());
+        out.writeByte(4);
+        out.writeInt(1 << 30);
+
+        SipBloomFilter.readFrom(key(), input(bytes.toByteArray()));
+    }
+
+    /**
+     * Tests headers declaring more words than the input holds are rejected
+     * without allocating the declared size.
+     */
+    @Test(expectedExceptions = EOFException.class)
+    public void testExceptionOnReadWithTruncatedWords() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeByte(1);
+        out.writeLong(new SipBloomFilter(key(), 64, 1).keyId());
+        out.writeByte(4);
+        out.writeInt(1 << 30);
+        out.writeLong(-1);
+
+        SipBloomFilter.readFrom(key(), input(bytes.toByteArray()));
+    }
+
+    /**
+     * Tests concurrent additions are never lost.
+     */
+    @Test
+    public void testConcurrentAdditions() throws InterruptedException {
+        final SipBloomFilter filter = new SipBloomFilter(key(), 1 << 16, 7);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread[] workers = new Thread[4];
+        for (int t = 0; t < workers.length; t++) {
+            final int id = t;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 2000; i++) {
+                            filter.add(id + "-" + i);
+                            Assert.assertTrue(filter.mightContain(id + "-" + i));
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Assert.assertNull(failure.get());
+
+        for (int t = 0; t < workers.length; t++) {
+            for (int i = 0; i < 2000; i++) {
+                Assert.assertTrue(filter.mightContain(t + "-" + i));
+            }
+        }
+    }
+
+    /**
+     * Serializes a filter into an array.
+     *
+     * @param filter
+     *      the filter to serialize.
+     * @return
+     *      the serialized form of the filter.
+     */
+    private static byte[] output(SipBloomFilter filter) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,194 @@
+package io.whitfin.siphash;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.whitfin.siphash.SipHasherTest.key;
+
+/**
+ * Test cases for the {@link SipCountMinSketch} class.
+ */
+public class SipCountMinSketchTest {
+
+    /**
+     * Tests invalid key exceptions are thrown.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidKey() {
+        new SipCountMinSketch(new byte[0], 4, 1024);
+    }
+
+    /**
+     * Tests invalid depth exceptions are thrown.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidDepth() {
+        new SipCountMinSketch(new byte[16], 0, 1024);
+    }
+
+    /**
+     * Tests invalid width exceptions are thrown.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidWidth() {
+        new SipCountMinSketch(new byte[16], 4, 0);
+    }
+
+    /**
+     * Tests negative count exceptions are thrown.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnNegativeCount() {
+        new SipCountMinSketch(new byte[16], 4, 1024).add("element", -1);
+    }
+
+    /**
+     * Tests sketches are sized from their error bounds.
+     */
+    @Test
+    public void testSketchSizing() {
+        SipCountMinSketch sketch = SipCountMinSketch.create(key(), 0.001, 0.01);
+
+        Assert.assertEquals(sketch.width(), 4096);
+        Assert.assertEquals(sketch.depth(), 5);
+        Assert.assertEquals(new SipCountMinSketch(key(), 1, 1).width(), 2);
+    }
+
+    /**
+     * Tests estimates are never below, and rarely far above, the true count.
+     */
+    @Test
+    public void testEstimatesAreBounded() {
+        for (boolean concurrent : new boolean[] { false, true }) {
+            SipCountMinSketch sketch = new SipCountMinSketch(key(), 5, 1024, concurrent);
+            Random random = new Random(0);
+            long[] counts = new long[5000];
+
+            for (int i = 0; i < 100000; i++) {
+                int element = (int) Math.min(counts.length - 1, Math.abs(random.nextGaussian()) * 300);
+                long estimate = sketch.add(element, 1);
+
+                counts[element]++;
+
+                Assert.assertTrue(estimate >= counts[element]);
+            }
+
+            Assert.assertEquals(sketch.total(), 100000);
+
+            int outside = 0;
+            for (int i = 0; i < counts.length; i++) {
+                long estimate = sketch.estimate(i);
+                Assert.assertTrue(estimate >= counts[i]);
+                if (estimate - counts[i] > Math.E / 1024 * sketch.total()) {
+                    outside++;
+                }
+            }
+
+            Assert.assertTrue(outside < counts.length / 100, "Too many estimates out of bounds: " + outside);
+        }
+    }
+
+    /**
+     * Tests every element type hashes as its bytes.
+     */
+    @Test
+    public void testElementsMatchBytes() {
+        Charset utf8 = Charset.forName("UTF-8");
+        SipCountMinSketch sketch = new SipCountMinSketch(key(), 4, 256);
+
+        for (int i = 0; i < 100; i++) {
+            byte[] bytes = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, i).array();
+
+            sketch.add("element-" + i, i);
+            sketch.add(bytes, i);
+
+            Assert.assertEquals(sketch.estimate(("element-" + i).getBytes(utf8)), sketch.estimate("element-" + i));
+            Assert.assertEquals(sketch.estimate(bytes), sketch.estimate(i));
+            Assert.assertTrue(sketch.estimate(i) >= i);
+        }
+    }
+
+    /**
+     * Tests merged sketches estimate the elements of both sketches.
+     */
+    @Test
+    public void testMergedSketchesCoverBoth() {
+        SipCountMinSketch left = new SipCountMinSketch(key(), 4, 4096);
+        SipCountMinSketch right = new SipCountMinSketch(key(), 4, 4096, true);
+
+        for (int i = 0; i < 100; i++) {
+            left.add("shared-" + i, 2);
+            right.add("shared-" + i, 3);
+            right.add("right-" + i, 5);
+        }
+
+        left.merge(right);
+
+        Assert.assertEquals(left.total(), 1000);
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(left.estimate("shared-" + i) >= 5);
+            Assert.assertTrue(left.estimate("right-" + i) >= 5);
+        }
+    }
+
+    /**
+     * Tests sketches using different keys cannot be merged.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnMergeWithDifferentKey() {
+        new SipCountMinSketch(key(), 4, 1024).merge(new SipCountMinSketch(new byte[16], 4, 1024));
+    }
+
+    /**
+     * Tests sketches of different sizes cannot be merged.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnMergeWithDifferentWidth() {
+        new SipCountMinSketch(key(), 4, 1024).merge(new SipCountMinSketch(key(), 4, 2048));
+    }
+
+    /**
+     * Tests concurrent additions never lose counts.
+     */
+    @Test
+    public void testConcurrentAdditions() throws InterruptedException {
+        final SipCountMinSketch sketch = new SipCountMinSketch(key(), 4, 64, true);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final int additions = 20000;
+
+        Thread[] workers = new Thread[4];
+        for (int t = 0; t < workers.length; t++) {
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < additions; i++) {
+                            sketch.add(i % 100, 1);
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Assert.assertNull(failure.get());
+        Assert.assertEquals(sketch.total(), workers.length * additions);
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(sketch.estimate(i) >= workers.length * additions / 100);
+        }
+    }
+}
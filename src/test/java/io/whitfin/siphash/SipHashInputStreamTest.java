@@ -0,0 +1,87 @@
+package io.whitfin.siphash;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Test cases for the {@link SipHashInputStream} class.
+ */
+public class SipHashInputStreamTest {
+
+    /**
+     * Tests bytes read in any way are hashed and passed through.
+     */
+    @Test
+    public void testReadsAreHashed() throws IOException {
+        byte[] key = new byte[16];
+        byte[] data = data(10000);
+
+        SipHashInputStream stream = new SipHashInputStream(new ByteArrayInputStream(data), SipHasher.init(key));
+        byte[] copy = new byte[data.length];
+
+        int offset = 0;
+        for (int chunk = 0; offset < data.length; chunk++) {
+            if (chunk % 3 == 0) {
+                copy[offset++] = (byte) stream.read();
+                continue;
+            }
+            int read = stream.read(copy, offset, Math.min(chunk, data.length - offset));
+            Assert.assertEquals(stream.digest(), SipHasher.hash(key, Arrays.copyOf(data, offset + read)));
+            offset += read;
+        }
+
+        Assert.assertEquals(stream.read(), -1);
+        Assert.assertEquals(stream.read(copy, 0, 8), -1);
+        Assert.assertEquals(copy, data);
+        Assert.assertEquals(stream.hasher().length(), data.length);
+        Assert.assertEquals(stream.digest(), SipHasher.hash(key, data));
+    }
+
+    /**
+     * Tests skipped bytes are still included in the hash.
+     */
+    @Test
+    public void testSkippedBytesAreHashed() throws IOException {
+        byte[] key = new byte[16];
+        byte[] data = data(10000);
+
+        SipHashInputStream stream = new SipHashInputStream(new ByteArrayInputStream(data), SipHasher.init128(key));
+
+        Assert.assertEquals(stream.skip(0), 0);
+        Assert.assertEquals(stream.skip(5000), 5000);
+        Assert.assertEquals(stream.read(new byte[10]), 10);
+        Assert.assertEquals(stream.skip(10000), 4990);
+        Assert.assertEquals(stream.digest128(new long[2]), SipHasher.hash128(key, data, new long[2]));
+    }
+
+    /**
+     * Tests marking is not supported.
+     */
+    @Test(expectedExceptions = IOException.class)
+    public void testExceptionOnReset() throws IOException {
+        SipHashInputStream stream = new SipHashInputStream(new ByteArrayInputStream(new byte[8]), SipHasher.init(new byte[16]));
+        Assert.assertFalse(stream.markSupported());
+        stream.mark(8);
+        stream.reset();
+    }
+
+    /**
+     * Creates an array of sequential bytes.
+     *
+     * @param length
+     *      the length of the array.
+     * @return
+     *      an array of sequential bytes.
+     */
+    static byte[] data(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+}
@@ -0,0 +1,194 @@
+package io.whitfin.siphash;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.GeneralSecurityException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Test cases for the {@link SipHashMac} class.
+ */
+public class SipHashMacTest extends SipHasherTest {
+
+    /**
+     * The provider used to create all MAC instances.
+     */
+    private static final SipHashProvider PROVIDER = new SipHashProvider();
+
+    /**
+     * Tests all vectors using the MAC implementation.
+     */
+    @Test
+    public void testVectorsForMacHash() {
+        testVectors(new Hasher() {
+            @Override
+            public long hash(byte[] key, byte[] data) {
+                Mac mac = mac("SipHash-2-4", key);
+                Assert.assertEquals(mac.getMacLength(), 8);
+
+                for (byte b : data) {
+                    mac.update(b);
+                }
+
+                long hash = read(mac.doFinal(), 0);
+                Assert.assertEquals(read(mac.doFinal(data), 0), hash);
+                return hash;
+            }
+        });
+    }
+
+    /**
+     * Tests all 128-bit vectors using the MAC implementation.
+     */
+    @Test
+    public void testVectorsForMacHash128() {
+        testVectors128(new Hasher128() {
+            @Override
+            public void hash(byte[] key, byte[] data, long[] out) {
+                Mac mac = mac("SipHash-2-4-128", key);
+                Assert.assertEquals(mac.getMacLength(), 16);
+
+                byte[] hash = mac.doFinal(data);
+
+                out[0] = read(hash, 0);
+                out[1] = read(hash, 8);
+            }
+        });
+    }
+
+    /**
+     * Tests all vectors using the MAC buffer implementation.
+     */
+    @Test
+    public void testVectorsForMacBufferHash() {
+        testBufferVectors(new BufferHasher() {
+            @Override
+            public long hash(byte[] key, ByteBuffer data) {
+                int limit = data.limit();
+                Mac mac = mac("SipHash-2-4", key);
+                mac.update(data);
+                Assert.assertEquals(data.position(), limit);
+                return read(mac.doFinal(), 0);
+            }
+        });
+    }
+
+    /**
+     * Tests the MAC matches the zero allocation hash for all rounds.
+     */
+    @Test
+    public void testMacMatchesZeroAllocHash() {
+        byte[] key = new byte[16];
+        byte[] data = new byte[100];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        long[] out = new long[2];
+        for (int i = 0; i < data.length; i++) {
+            byte[] slice = new byte[i];
+            System.arraycopy(data, 0, slice, 0, i);
+
+            SipHasher.hash128(key, slice, 1, 3, out);
+
+            Assert.assertEquals(read(mac("SipHash-1-3", key).doFinal(slice), 0), SipHasher.hash(key, slice, 1, 3));
+            Assert.assertEquals(read(mac("SipHash-1-3-128", key).doFinal(slice), 0), out[0]);
+            Assert.assertEquals(read(mac("SipHash-1-3-128", key).doFinal(slice), 8), out[1]);
+        }
+    }
+
+    /**
+     * Tests cloned MACs continue independently from the same state.
+     */
+    @Test
+    public void testClonedMacsAreIndependent() throws CloneNotSupportedException {
+        byte[] key = new byte[16];
+        byte[] data = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+
+        Mac mac = mac("SipHash-2-4-128", key);
+        mac.update(data, 0, 4);
+
+        Mac clone = (Mac) mac.clone();
+        clone.update(data, 4, 5);
+        mac.update(data, 4, 5);
+
+        byte[] expected = mac("SipHash-2-4-128", key).doFinal(data);
+
+        Assert.assertEquals(clone.doFinal(), expected);
+        Assert.assertEquals(mac.doFinal(), expected);
+    }
+
+    /**
+     * Tests resetting a MAC discards any input received.
+     */
+    @Test
+    public void testResetDiscardsInput() {
+        byte[] key = new byte[16];
+
+        Mac mac = mac("SipHash-2-4", key);
+        mac.update(new byte[] { 1, 2, 3 });
+        mac.reset();
+
+        Assert.assertEquals(read(mac.doFinal(), 0), SipHasher.hash(key, new byte[0]));
+    }
+
+    /**
+     * Tests invalid keys are rejected on initialization.
+     */
+    @Test(expectedExceptions = InvalidKeyException.class)
+    public void testExceptionOnInvalidMacKey() throws GeneralSecurityException {
+        Mac.getInstance("SipHash-2-4", PROVIDER).init(new SecretKeySpec(new byte[8], "SipHash"));
+    }
+
+    /**
+     * Tests algorithm parameters are rejected on initialization.
+     */
+    @Test(expectedExceptions = InvalidAlgorithmParameterException.class)
+    public void testExceptionOnMacParameters() throws GeneralSecurityException {
+        Mac.getInstance("SipHash-2-4", PROVIDER).init(
+            new SecretKeySpec(new byte[16], "SipHash"),
+            new IvParameterSpec(new byte[16])
+        );
+    }
+
+    /**
+     * Creates an initialized MAC from the provider.
+     *
+     * @param algorithm
+     *      the name of the algorithm to create.
+     * @param key
+     *      the key to initialize the MAC with.
+     * @return
+     *      an initialized {@link Mac} instance.
+     */
+    static Mac mac(String algorithm, byte[] key) {
+        try {
+            Mac mac = Mac.getInstance(algorithm, PROVIDER);
+            mac.init(new SecretKeySpec(key, "SipHash"));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Reads a little endian long from an array.
+     *
+     * @param bytes
+     *      the array to read from.
+     * @param offset
+     *      the offset to read at.
+     * @return
+     *      the long value at the offset.
+     */
+    static long read(byte[] bytes, int offset) {
+        return ByteBuffer.wrap(bytes, offset, 8).order(ByteOrder.LITTLE_ENDIAN).getLong();
+    }
+}
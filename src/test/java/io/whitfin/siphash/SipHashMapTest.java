@@ -0,0 +1,125 @@
+package io.whitfin.siphash;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Test cases for the {@link SipHashMap} class.
+ */
+public class SipHashMapTest {
+
+    /**
+     * Tests invalid capacity exceptions are thrown.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidCapacity() {
+        new SipHashMap<String>(-1);
+    }
+
+    /**
+     * Tests the map behaves the same as a reference map under random use.
+     */
+    @Test
+    public void testMatchesReferenceMap() {
+        Random random = new Random(0);
+
+        for (int capacity : new int[] { 0, 1, 16, 1000 }) {
+            SipHashMap<Integer> map = new SipHashMap<>(capacity);
+            Map<String, Integer> reference = new HashMap<>();
+
+            for (int i = 0; i < 20000; i++) {
+                String key = "key-" + random.nextInt(500);
+                byte[] bytes = key.getBytes(Charset.forName("UTF-8"));
+
+                switch (random.nextInt(4)) {
+                    case 0:
+                        Assert.assertEquals(map.put(key, i), reference.put(key, i));
+                        break;
+                    case 1:
+                        Assert.assertEquals(map.put(bytes, i), reference.put(key, i));
+                        break;
+                    case 2:
+                        Assert.assertEquals(random.nextBoolean() ? map.remove(key) : map.remove(bytes), reference.remove(key));
+                        break;
+                    default:
+                        Assert.assertEquals(map.get(key), reference.get(key));
+                        Assert.assertEquals(map.get(bytes), reference.get(key));
+                        Assert.assertEquals(map.containsKey(key), reference.containsKey(key));
+                        Assert.assertEquals(map.containsKey(bytes), reference.containsKey(key));
+                }
+
+                Assert.assertEquals(map.size(), reference.size());
+            }
+
+            for (Map.Entry<String, Integer> entry : reference.entrySet()) {
+                Assert.assertEquals(map.get(entry.getKey()), entry.getValue());
+            }
+
+            map.clear();
+
+            Assert.assertTrue(map.isEmpty());
+            Assert.assertNull(map.get("key-0"));
+        }
+    }
+
+    /**
+     * Tests character keys are equal to their UTF-8 encoding.
+     */
+    @Test
+    public void testCharsMatchEncodedKeys() {
+        Charset utf8 = Charset.forName("UTF-8");
+        SipHashMap<String> map = new SipHashMap<>();
+
+        for (String string : SipHasherTest.strings()) {
+            map.put(string.getBytes(utf8), string);
+        }
+
+        for (String string : SipHasherTest.strings()) {
+            byte[] bytes = string.getBytes(utf8);
+
+            Assert.assertTrue(SipHashMap.equals(string, bytes));
+            Assert.assertTrue(SipHashMap.equals(new StringBuilder(string), bytes));
+            Assert.assertFalse(SipHashMap.equals(string + "a", bytes));
+            Assert.assertFalse(SipHashMap.equals(string + "\u00e9", bytes));
+
+            Assert.assertTrue(map.containsKey(string));
+            Assert.assertEquals(map.get(new String(bytes, utf8)), map.get(bytes));
+        }
+    }
+
+    /**
+     * Tests keys are copied on insertion.
+     */
+    @Test
+    public void testKeysAreCopied() {
+        SipHashMap<String> map = new SipHashMap<>();
+        byte[] key = new byte[] { 1, 2, 3 };
+
+        map.put(key, "value");
+        key[0] = 4;
+
+        Assert.assertNull(map.get(key));
+        Assert.assertEquals(map.get(new byte[] { 1, 2, 3 }), "value");
+    }
+
+    /**
+     * Tests entries are not shared between maps using the same key.
+     */
+    @Test
+    public void testMapsAreIndependent() {
+        byte[] data = new byte[] { 1, 2, 3 };
+
+        SipHashMap<String> map1 = new SipHashMap<>(16, new byte[16]);
+        SipHashMap<String> map2 = new SipHashMap<>(16, new byte[16]);
+
+        Assert.assertEquals(map1.put(data, "a"), null);
+        Assert.assertEquals(map2.put(data, "b"), null);
+        Assert.assertEquals(map1.get(data), "a");
+        Assert.assertEquals(map2.get(data), "b");
+    }
+}
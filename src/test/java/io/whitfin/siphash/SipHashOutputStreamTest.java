@@ -0,0 +1,57 @@
+package io.whitfin.siphash;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static io.whitfin.siphash.SipHashInputStreamTest.data;
+
+/**
+ * Test cases for the {@link SipHashOutputStream} class.
+ */
+public class SipHashOutputStreamTest {
+
+    /**
+     * Tests bytes written in any way are hashed and passed through.
+     */
+    @Test
+    public void testWritesAreHashed() throws IOException {
+        byte[] key = new byte[16];
+        byte[] data = data(10000);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SipHashOutputStream stream = new SipHashOutputStream(output, SipHasher.init(key));
+
+        int offset = 0;
+        for (int chunk = 0; offset < data.length; chunk++) {
+            if (chunk % 3 == 0) {
+                stream.write(data[offset++]);
+                continue;
+            }
+            int length = Math.min(chunk, data.length - offset);
+            stream.write(data, offset, length);
+            offset += length;
+        }
+        stream.close();
+
+        Assert.assertEquals(output.toByteArray(), data);
+        Assert.assertEquals(stream.hasher().length(), data.length);
+        Assert.assertEquals(stream.digest(), SipHasher.hash(key, data));
+    }
+
+    /**
+     * Tests 128-bit hashes can be retrieved from the stream.
+     */
+    @Test
+    public void testWritesAreHashed128() throws IOException {
+        byte[] key = new byte[16];
+        byte[] data = data(1000);
+
+        SipHashOutputStream stream = new SipHashOutputStream(new ByteArrayOutputStream(), SipHasher.init128(key));
+        stream.write(data);
+
+        Assert.assertEquals(stream.digest128(new long[2]), SipHasher.hash128(key, data, new long[2]));
+    }
+}
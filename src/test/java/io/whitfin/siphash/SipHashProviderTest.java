@@ -0,0 +1,60 @@
+package io.whitfin.siphash;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.security.GeneralSecurityException;
+import java.security.Security;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Test cases for the {@link SipHashProvider} class.
+ */
+public class SipHashProviderTest {
+
+    /**
+     * Tests all algorithms and aliases are registered.
+     */
+    @Test
+    public void testAlgorithmsAreRegistered() throws GeneralSecurityException {
+        SipHashProvider provider = new SipHashProvider();
+        String[][] algorithms = new String[][] {
+            { "SipHash-2-4", "SipHash-2-4" },
+            { "SipHash", "SipHash-2-4" },
+            { "SipHash-1-3", "SipHash-1-3" },
+            { "SipHash-2-4-128", "SipHash-2-4-128" },
+            { "SipHash-128", "SipHash-2-4-128" },
+            { "SipHash-1-3-128", "SipHash-1-3-128" }
+        };
+
+        Assert.assertEquals(provider.getName(), SipHashProvider.NAME);
+
+        for (String[] algorithm : algorithms) {
+            Mac mac = Mac.getInstance(algorithm[0], provider);
+            Mac base = Mac.getInstance(algorithm[1], provider);
+
+            Assert.assertSame(mac.getProvider(), provider);
+            Assert.assertEquals(mac.getMacLength(), base.getMacLength());
+        }
+    }
+
+    /**
+     * Tests algorithms can be located once the provider is installed.
+     */
+    @Test
+    public void testProviderCanBeInstalled() throws GeneralSecurityException {
+        Security.addProvider(new SipHashProvider());
+        try {
+            byte[] key = new byte[16];
+            byte[] data = new byte[] { 1, 2, 3 };
+
+            Mac mac = Mac.getInstance("SipHash-1-3");
+            mac.init(new SecretKeySpec(key, "SipHash"));
+
+            Assert.assertEquals(SipHashMacTest.read(mac.doFinal(data), 0), SipHasher.hash(key, data, 1, 3));
+        } finally {
+            Security.removeProvider(SipHashProvider.NAME);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package io.whitfin.siphash;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+import static io.whitfin.siphash.SipHashInputStreamTest.data;
+
+/**
+ * Test cases for the {@link SipHashReadableChannel} class.
+ */
+public class SipHashReadableChannelTest {
+
+    /**
+     * Tests bytes read into any buffer type are hashed and passed through.
+     */
+    @Test
+    public void testReadsAreHashed() throws IOException {
+        byte[] key = new byte[16];
+        byte[] data = data(10000);
+
+        ByteBuffer[] buffers = new ByteBuffer[] { ByteBuffer.allocate(37), ByteBuffer.allocateDirect(64) };
+
+        for (ByteBuffer buffer : buffers) {
+            SipHashReadableChannel channel = new SipHashReadableChannel(
+                Channels.newChannel(new ByteArrayInputStream(data)),
+                SipHasher.init(key)
+            );
+
+            ByteBuffer copy = ByteBuffer.allocate(data.length);
+
+            buffer.clear().position(3);
+            while (channel.read(buffer) >= 0) {
+                Assert.assertEquals(buffer.limit(), buffer.capacity());
+
+                buffer.flip().position(3);
+                copy.put(buffer);
+                buffer.clear().position(3);
+            }
+
+            Assert.assertTrue(channel.isOpen());
+            channel.close();
+            Assert.assertFalse(channel.isOpen());
+
+            Assert.assertEquals(copy.array(), data);
+            Assert.assertEquals(channel.digest(), SipHasher.hash(key, data));
+        }
+    }
+
+    /**
+     * Tests 128-bit hashes can be retrieved from the channel.
+     */
+    @Test
+    public void testReadsAreHashed128() throws IOException {
+        byte[] key = new byte[16];
+        byte[] data = data(1000);
+
+        SipHashReadableChannel channel = new SipHashReadableChannel(
+            Channels.newChannel(new ByteArrayInputStream(data)),
+            SipHasher.init128(key)
+        );
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        while (buffer.hasRemaining()) {
+            channel.read(buffer);
+        }
+
+        Assert.assertEquals(channel.digest128(new long[2]), SipHasher.hash128(key, data, new long[2]));
+    }
+}
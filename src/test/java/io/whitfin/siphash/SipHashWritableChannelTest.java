@@ -0,0 +1,93 @@
+package io.whitfin.siphash;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import static io.whitfin.siphash.SipHashInputStreamTest.data;
+
+/**
+ * Test cases for the {@link SipHashWritableChannel} class.
+ */
+public class SipHashWritableChannelTest {
+
+    /**
+     * Tests only the bytes accepted by partial writes are hashed.
+     */
+    @Test
+    public void testPartialWritesAreHashed() throws IOException {
+        byte[] key = new byte[16];
+        byte[] data = data(10000);
+
+        ByteBuffer[] buffers = new ByteBuffer[] {
+            ByteBuffer.wrap(data),
+            ByteBuffer.allocateDirect(data.length).put(data)
+        };
+
+        for (ByteBuffer buffer : buffers) {
+            Partial partial = new Partial();
+            SipHashWritableChannel channel = new SipHashWritableChannel(partial, SipHasher.init(key));
+
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+                Assert.assertEquals(buffer.limit(), data.length);
+                Assert.assertEquals(channel.hasher().length(), buffer.position());
+            }
+
+            channel.close();
+
+            Assert.assertFalse(channel.isOpen());
+            Assert.assertEquals(partial.output.toByteArray(), data);
+            Assert.assertEquals(channel.digest(), SipHasher.hash(key, data));
+        }
+    }
+
+    /**
+     * Channel which accepts at most 13 bytes on each write.
+     */
+    private static final class Partial implements WritableByteChannel {
+
+        /**
+         * The bytes written to the channel.
+         */
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        /**
+         * Whether the channel is open.
+         */
+        private boolean open = true;
+
+        /**
+         * Writes up to 13 bytes from the buffer.
+         */
+        @Override
+        public int write(ByteBuffer src) {
+            int count = Math.min(13, src.remaining());
+            for (int i = 0; i < count; i++) {
+                this.output.write(src.get());
+            }
+            return count;
+        }
+
+        /**
+         * Determines whether the channel is open.
+         */
+        @Override
+        public boolean isOpen() {
+            return this.open;
+        }
+
+        /**
+         * Marks the channel as closed.
+         */
+        @Override
+        public void close() {
+            this.open = false;
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package io.whitfin.siphash;
 
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+
 /**
  * Test cases for the {@link SipHasherContainer} class.
  */
@@ -27,4 +34,281 @@ public class SipHasherContainerTest extends SipHasherTest {
             }
         });
     }
+
+    /**
+     * Tests all 128-bit vectors using the container hash implementation.
+     */
+    @Test
+    public void testVectorsForContainerHash128() {
+        testVectors128(new Hasher128() {
+            @Override
+            public void hash(byte[] key, byte[] data, long[] out) {
+                SipHasher.container(key).hash128(data, out);
+            }
+        });
+    }
+
+    /**
+     * Tests all vectors using the container slice hash implementation.
+     */
+    @Test
+    public void testVectorsForContainerSliceHash() {
+        testVectors(new Hasher() {
+            @Override
+            public long hash(byte[] key, byte[] data) {
+                return SipHasher.container(key).hash(pad(data), 3, data.length, 2, 4);
+            }
+        });
+    }
+
+    /**
+     * Tests out of bounds slices are rejected.
+     */
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void testExceptionOnInvalidContainerSlice() {
+        SipHasher.container(new byte[16]).hash(new byte[8], 4, 5, 2, 4);
+    }
+
+    /**
+     * Tests all vectors using the container buffer hash implementation.
+     */
+    @Test
+    public void testVectorsForContainerBufferHash() {
+        testBufferVectors(new BufferHasher() {
+            @Override
+            public long hash(byte[] key, ByteBuffer data) {
+                int position = data.position();
+                long hash = SipHasher.container(key).hash(data);
+                Assert.assertEquals(data.position(), position);
+                return hash;
+            }
+        });
+    }
+
+    /**
+     * Tests primitive hashing matches hashing the little endian bytes.
+     */
+    @Test
+    public void testPrimitivesMatchByteHash() {
+        Random random = new Random(0);
+        byte[] key = new byte[16];
+        random.nextBytes(key);
+
+        SipHasherContainer container = SipHasher.container(key);
+        int[][] rounds = new int[][] { { 2, 4 }, { 1, 3 }, { 3, 5 } };
+
+        for (int i = 0; i < 256; i++) {
+            int value = random.nextInt();
+            long a = random.nextLong();
+            long b = random.nextLong();
+
+            ByteBuffer buffer = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+
+            byte[] intBytes = buffer.putInt(0, value).array().clone();
+            byte[] longBytes = buffer.putLong(0, a).array().clone();
+            byte[] longsBytes = buffer.putLong(8, b).array().clone();
+
+            Assert.assertEquals(container.hashInt(value), container.hash(Arrays.copyOf(intBytes, 4)));
+            Assert.assertEquals(container.hashLong(a), container.hash(Arrays.copyOf(longBytes, 8)));
+            Assert.assertEquals(container.hashLongs(a, b), container.hash(longsBytes));
+
+            for (int[] round : rounds) {
+                int c = round[0];
+                int d = round[1];
+
+                Assert.assertEquals(container.hashInt(value, c, d), container.hash(Arrays.copyOf(intBytes, 4), c, d));
+                Assert.assertEquals(container.hashLong(a, c, d), container.hash(Arrays.copyOf(longBytes, 8), c, d));
+                Assert.assertEquals(container.hashLongs(a, b, c, d), container.hash(longsBytes, c, d));
+            }
+        }
+    }
+
+    /**
+     * Tests character hashing matches hashing the encoded bytes.
+     */
+    @Test
+    public void testCharsMatchEncodedHash() {
+        Charset utf8 = Charset.forName("UTF-8");
+
+        byte[] key = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            key[i] = (byte) i;
+        }
+
+        SipHasherContainer container = SipHasher.container(key);
+        int[][] rounds = new int[][] { { 1, 3 }, { 2, 4 }, { 3, 5 } };
+
+        for (String string : strings()) {
+            StringBuilder builder = new StringBuilder(string);
+
+            Assert.assertEquals(container.hashChars(string), container.hash(chars(string)));
+            Assert.assertEquals(container.hashChars(builder), container.hash(chars(string)));
+            Assert.assertEquals(container.hashUtf8(string), container.hash(string.getBytes(utf8)));
+            Assert.assertEquals(container.hashUtf8(builder), container.hash(string.getBytes(utf8)));
+            Assert.assertEquals(container.hash(builder), container.hash(string.getBytes(utf8)));
+
+            for (int[] round : rounds) {
+                int c = round[0];
+                int d = round[1];
+
+                Assert.assertEquals(container.hashChars(string, c, d), container.hash(chars(string), c, d));
+                Assert.assertEquals(container.hashUtf8(string, c, d), container.hash(string.getBytes(utf8), c, d));
+                Assert.assertEquals(container.hash(builder, c, d), container.hash(string.getBytes(utf8), c, d));
+            }
+        }
+    }
+
+    /**
+     * Tests all vectors using streams created from a container.
+     */
+    @Test
+    public void testVectorsForContainerStreamHash() {
+        testVectors(new Hasher() {
+            @Override
+            public long hash(byte[] key, byte[] data) {
+                SipHasherContainer container = SipHasher.container(key);
+                Assert.assertEquals(
+                    container.stream(1, 3).update(data).digest(),
+                    SipHasher.init(key, 1, 3).update(data).digest()
+                );
+                return container.stream().update(data).digest();
+            }
+        });
+    }
+
+    /**
+     * Tests all 128-bit vectors using streams created from a container.
+     */
+    @Test
+    public void testVectorsForContainerStreamHash128() {
+        testVectors128(new Hasher128() {
+            @Override
+            public void hash(byte[] key, byte[] data, long[] out) {
+                SipHasherContainer container = SipHasher.container(key);
+                Assert.assertEquals(
+                    container.stream128(1, 3).update(data).digest128(new long[2]),
+                    SipHasher.init128(key, 1, 3).update(data).digest128(new long[2])
+                );
+                container.stream128().update(data).digest128(out);
+            }
+        });
+    }
+
+    /**
+     * Tests batch hashing matches hashing each input in turn.
+     */
+    @Test
+    public void testBatchMatchesSingleHash() {
+        byte[] key = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            key[i] = (byte) i;
+        }
+
+        SipHasherContainer container = SipHasher.container(key);
+        int[][] rounds = new int[][] { { 1, 3 }, { 2, 4 }, { 3, 5 } };
+        Random random = new Random(0);
+
+        for (int count = 0; count < 10; count++) {
+            byte[][] inputs = new byte[count][];
+            int[] offsets = new int[count];
+            int[] lengths = new int[count];
+            int total = 0;
+
+            for (int i = 0; i < count; i++) {
+                inputs[i] = new byte[random.nextInt(48)];
+                random.nextBytes(inputs[i]);
+                offsets[i] = total + 1;
+                lengths[i] = inputs[i].length;
+                total += lengths[i] + 1;
+            }
+
+            byte[] data = new byte[total];
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(inputs[i], 0, data, offsets[i], lengths[i]);
+            }
+
+            long[] out1 = container.hashAll(inputs, new long[count]);
+            long[] out2 = container.hashAll(data, offsets, lengths, new long[count + 1]);
+
+            for (int i = 0; i < count; i++) {
+                Assert.assertEquals(out1[i], container.hash(inputs[i]));
+                Assert.assertEquals(out2[i], container.hash(inputs[i]));
+            }
+
+            for (int[] round : rounds) {
+                int c = round[0];
+                int d = round[1];
+
+                out1 = container.hashAll(inputs, c, d, new long[count]);
+                out2 = container.hashAll(data, offsets, lengths, c, d, new long[count]);
+
+                for (int i = 0; i < count; i++) {
+                    Assert.assertEquals(out1[i], container.hash(inputs[i], c, d));
+                    Assert.assertEquals(out2[i], container.hash(inputs[i], c, d));
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests batches containing long runs of equal lengths match single hashes.
+     */
+    @Test
+    public void testBatchRunsMatchSingleHash() {
+        SipHasherContainer container = SipHasher.container(new byte[16]);
+        int[] runs = new int[] { 70, 3, 130, 1, 300 };
+        Random random = new Random(0);
+
+        int count = 0;
+        for (int run : runs) {
+            count += run;
+        }
+
+        byte[][] inputs = new byte[count][];
+        int[] offsets = new int[count];
+        int[] lengths = new int[count];
+        byte[] data = new byte[count * runs.length];
+
+        for (int i = 0, r = 0; r < runs.length; r++) {
+            for (int j = 0; j < runs[r]; j++, i++) {
+                inputs[i] = new byte[r];
+                random.nextBytes(inputs[i]);
+                offsets[i] = i * runs.length;
+                lengths[i] = r;
+                System.arraycopy(inputs[i], 0, data, offsets[i], r);
+            }
+        }
+
+        long[] out1 = container.hashAll(inputs, new long[count]);
+        long[] out2 = container.hashAll(data, offsets, lengths, new long[count]);
+
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(out1[i], container.hash(inputs[i]));
+            Assert.assertEquals(out2[i], container.hash(inputs[i]));
+        }
+    }
+
+    /**
+     * Tests batch output arrays must hold every hash.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidBatchOutput() {
+        SipHasher.container(new byte[16]).hashAll(new byte[3][], new long[2]);
+    }
+
+    /**
+     * Tests batch offsets and lengths must match in size.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnMismatchedBatchSlices() {
+        SipHasher.container(new byte[16]).hashAll(new byte[8], new int[2], new int[1], new long[2]);
+    }
+
+    /**
+     * Tests out of bounds batch slices are rejected.
+     */
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void testExceptionOnInvalidBatchSlice() {
+        SipHasher.container(new byte[16]).hashAll(new byte[8], new int[] { 0, 4 }, new int[] { 4, 8 }, new long[2]);
+    }
 }
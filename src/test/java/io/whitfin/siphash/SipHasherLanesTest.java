@@ -0,0 +1,100 @@
+package io.whitfin.siphash;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+/**
+ * Test cases for the {@link SipHasherLanes} class.
+ */
+public class SipHasherLanesTest {
+
+    /**
+     * Tests lane hashing matches the scalar implementation.
+     */
+    @Test
+    public void testLanesMatchScalarHash() {
+        byte[] key = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            key[i] = (byte) i;
+        }
+
+        SipHasherContainer container = SipHasher.container(key);
+        int[][] rounds = new int[][] { { 1, 3 }, { 2, 4 }, { 3, 5 } };
+        int[] counts = new int[] { 1, 7, 64, 300 };
+        Random random = new Random(0);
+
+        long k0 = SipHasher.INITIAL_V0 ^ SipHasher.bytesToLong(key, 0);
+        long k1 = SipHasher.INITIAL_V1 ^ SipHasher.bytesToLong(key, 8);
+        long k2 = SipHasher.INITIAL_V2 ^ SipHasher.bytesToLong(key, 0);
+        long k3 = SipHasher.INITIAL_V3 ^ SipHasher.bytesToLong(key, 8);
+
+        for (int[] round : rounds) {
+            int c = round[0];
+            int d = round[1];
+
+            for (int count : counts) {
+                for (int length = 0; length < 20; length++) {
+                    byte[][] inputs = new byte[count][length];
+                    byte[] data = new byte[count * length + 1];
+                    int[] offsets = new int[count];
+
+                    for (int i = 0; i < count; i++) {
+                        random.nextBytes(inputs[i]);
+                        offsets[i] = i * length + 1;
+                        System.arraycopy(inputs[i], 0, data, offsets[i], length);
+                    }
+
+                    long[] out1 = new long[count + 1];
+                    long[] out2 = new long[count + 1];
+
+                    SipHasherLanes lanes = new SipHasherLanes(c, d, count);
+                    lanes.hash(k0, k1, k2, k3, inputs, 0, count, out1);
+                    lanes.hash(k0, k1, k2, k3, data, offsets, length, 0, count, out2);
+
+                    for (int i = 0; i < count; i++) {
+                        long expected = container.hash(inputs[i], c, d);
+                        Assert.assertEquals(out1[i], expected);
+                        Assert.assertEquals(out2[i], expected);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests cached engines are re-used and can hash runs of any size.
+     */
+    @Test
+    public void testCachedLanesAreReused() {
+        SipHasherLanes lanes = SipHasherLanes.cached(2, 4);
+
+        Assert.assertSame(SipHasherLanes.cached(2, 4), lanes);
+        Assert.assertNotSame(SipHasherLanes.cached(1, 3), lanes);
+        Assert.assertSame(SipHasherLanes.cached(1, 3), SipHasherLanes.cached(1, 3));
+
+        byte[] key = new byte[16];
+        SipHasherContainer container = SipHasher.container(key);
+
+        long k0 = SipHasher.INITIAL_V0;
+        long k1 = SipHasher.INITIAL_V1;
+        long k2 = SipHasher.INITIAL_V2;
+        long k3 = SipHasher.INITIAL_V3;
+
+        for (int count : new int[] { 600, 3, 70 }) {
+            byte[][] inputs = new byte[count][count % 17];
+            long[] out = new long[count];
+
+            for (int i = 0; i < count; i++) {
+                inputs[i][0] = (byte) i;
+            }
+
+            SipHasherLanes.cached(1, 3).hash(k0, k1, k2, k3, inputs, 0, count, out);
+
+            for (int i = 0; i < count; i++) {
+                Assert.assertEquals(out[i], container.hash(inputs[i], 1, 3));
+            }
+        }
+    }
+}
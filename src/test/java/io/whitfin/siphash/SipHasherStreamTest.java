@@ -1,7 +1,12 @@
 package io.whitfin.siphash;
 
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
 /**
  * Test cases for the {@link SipHasherStream} class.
  */
@@ -27,4 +32,395 @@ public class SipHasherStreamTest extends SipHasherTest {
             }
         });
     }
+
+    /**
+     * Tests all 128-bit vectors using the streaming hash implementation.
+     */
+    @Test
+    public void testVectorsForStreamHash128() {
+        testVectors128(new Hasher128() {
+            @Override
+            public void hash(byte[] key, byte[] data, long[] out) {
+                SipHasher.init128(key).update(data).digest128(out);
+            }
+        });
+    }
+
+    /**
+     * Tests all vectors using a single stream which is reset between hashes.
+     */
+    @Test
+    public void testVectorsForResetStreamHash() {
+        testVectors(new Hasher() {
+            private SipHasherStream stream;
+
+            @Override
+            public long hash(byte[] key, byte[] data) {
+                if (this.stream == null) {
+                    this.stream = SipHasher.init(key);
+                }
+                this.stream.update(data).update((byte) 0xff);
+                return this.stream.reset().update(data).digest();
+            }
+        });
+    }
+
+    /**
+     * Tests all 128-bit vectors using a single stream which is reset between hashes.
+     */
+    @Test
+    public void testVectorsForResetStreamHash128() {
+        testVectors128(new Hasher128() {
+            private SipHasherStream stream;
+
+            @Override
+            public void hash(byte[] key, byte[] data, long[] out) {
+                if (this.stream == null) {
+                    this.stream = SipHasher.init128(key);
+                }
+                this.stream.update(data).update((byte) 0xff);
+                this.stream.reset().update(data).digest128(out);
+            }
+        });
+    }
+
+    /**
+     * Tests 64-bit streams cannot be finalized as 128-bit.
+     */
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testExceptionOnNarrowDigest128() {
+        SipHasher.init(new byte[16]).digest128(new long[2]);
+    }
+
+    /**
+     * Tests 128-bit streams cannot be finalized as 64-bit.
+     */
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testExceptionOnWideDigest() {
+        SipHasher.init128(new byte[16]).digest();
+    }
+
+    /**
+     * Tests all vectors using the streaming slice hash implementation.
+     */
+    @Test
+    public void testVectorsForStreamSliceHash() {
+        testVectors(new Hasher() {
+            @Override
+            public long hash(byte[] key, byte[] data) {
+                return SipHasher.init(key).update(pad(data), 3, data.length).digest();
+            }
+        });
+    }
+
+    /**
+     * Tests all vectors when streamed in chunks of varying sizes.
+     */
+    @Test
+    public void testVectorsForChunkedStreamHash() {
+        testVectors(new Hasher() {
+            @Override
+            public long hash(byte[] key, byte[] data) {
+                long hash = SipHasher.init(key).update(data).digest();
+                for (int chunk = 1; chunk <= 17; chunk++) {
+                    SipHasherStream stream = SipHasher.init(key);
+                    for (int i = 0; i < data.length; i += chunk) {
+                        stream.update(data, i, Math.min(chunk, data.length - i));
+                    }
+                    Assert.assertEquals(stream.digest(), hash);
+                }
+                return hash;
+            }
+        });
+    }
+
+    /**
+     * Tests out of bounds slices are rejected.
+     */
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void testExceptionOnInvalidStreamSlice() {
+        SipHasher.init(new byte[16]).update(new byte[8], -1, 4);
+    }
+
+    /**
+     * Tests all vectors using the streaming buffer hash implementation.
+     */
+    @Test
+    public void testVectorsForStreamBufferHash() {
+        testBufferVectors(new BufferHasher() {
+            @Override
+            public long hash(byte[] key, ByteBuffer data) {
+                long hash = SipHasher.init(key).update(data).digest();
+                Assert.assertFalse(data.hasRemaining());
+                return hash;
+            }
+        });
+    }
+
+    /**
+     * Tests buffers can be mixed with bytes on unaligned boundaries.
+     */
+    @Test
+    public void testVectorsForMixedStreamHash() {
+        testVectors(new Hasher() {
+            @Override
+            public long hash(byte[] key, byte[] data) {
+                SipHasherStream stream = SipHasher.init(key);
+                for (int i = 0; i < data.length; i += 11) {
+                    int length = Math.min(11, data.length - i);
+                    if (i % 2 == 0) {
+                        stream.update(ByteBuffer.wrap(data, i, length));
+                    } else {
+                        stream.update(data[i]);
+                        stream.update(ByteBuffer.wrap(data, i + 1, length - 1));
+                    }
+                }
+                return stream.digest();
+            }
+        });
+    }
+
+    /**
+     * Tests streaming with various rounds matches the 0A implementation.
+     */
+    @Test
+    public void testRoundsMatchZeroAllocHash() {
+        byte[] key = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            key[i] = (byte) i;
+        }
+
+        int[][] rounds = new int[][] { { 1, 3 }, { 2, 4 }, { 3, 5 }, { 4, 8 } };
+
+        for (int[] round : rounds) {
+            for (int i = 0; i < 64; i++) {
+                byte[] data = new byte[i];
+                for (int j = 0; j < i; j++) {
+                    data[j] = (byte) j;
+                }
+
+                long expected = SipHasher.hash(key, data, round[0], round[1]);
+                long actual = SipHasher.init(key, round[0], round[1]).update(data).digest();
+
+                Assert.assertEquals(actual, expected);
+            }
+        }
+    }
+
+    /**
+     * Tests streamed characters match streaming the encoded bytes.
+     */
+    @Test
+    public void testCharsMatchEncodedStreamHash() {
+        Charset utf8 = Charset.forName("UTF-8");
+
+        byte[] key = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            key[i] = (byte) i;
+        }
+
+        for (String string : strings()) {
+            for (int split = 0; split <= string.length(); split += 5) {
+                String head = string.substring(0, split);
+                String tail = string.substring(split);
+
+                long expected16 = SipHasher.init(key)
+                    .update((byte) 1)
+                    .update(chars(head))
+                    .update(chars(tail))
+                    .digest();
+
+                long expected8 = SipHasher.init(key)
+                    .update((byte) 1)
+                    .update(head.getBytes(utf8))
+                    .update(tail.getBytes(utf8))
+                    .digest();
+
+                long actual16 = SipHasher.init(key)
+                    .update((byte) 1)
+                    .updateChars(head)
+                    .updateChars(new StringBuilder(tail))
+                    .digest();
+
+                long actual8 = SipHasher.init(key)
+                    .update((byte) 1)
+                    .update(head)
+                    .update(new StringBuilder(tail))
+                    .digest();
+
+                Assert.assertEquals(actual16, expected16);
+                Assert.assertEquals(actual8, expected8);
+            }
+        }
+    }
+
+    /**
+     * Tests the stream length is tracked beyond 255 bytes.
+     */
+    @Test
+    public void testLengthTracksAllInput() {
+        byte[] key = new byte[16];
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        for (int length = 250; length <= data.length; length += 7) {
+            SipHasherStream stream = SipHasher.init(key);
+
+            stream.update(data[0]);
+            stream.update(data, 1, length / 2 - 1);
+            stream.update(ByteBuffer.wrap(data, length / 2, length - length / 2 - 3));
+            stream.update(data, length - 3, 3);
+
+            Assert.assertEquals(stream.length(), length);
+            Assert.assertEquals(stream.digest(), SipHasher.hash(key, Arrays.copyOf(data, length)));
+        }
+
+        Assert.assertEquals(SipHasher.init(key).update("\u00e9t\u00e9").length(), 5);
+        Assert.assertEquals(SipHasher.init(key).update(data).reset().length(), 0);
+    }
+
+    /**
+     * Tests copied streams share a prefix but are otherwise independent.
+     */
+    @Test
+    public void testCopiedStreamsAreIndependent() {
+        testVectors(new Hasher() {
+            @Override
+            public long hash(byte[] key, byte[] data) {
+                int split = data.length / 3;
+
+                SipHasherStream prefix = SipHasher.init(key).update(data, 0, split);
+                SipHasherStream copy = prefix.copy();
+
+                long first = prefix.copy().update(data, split, data.length - split).digest();
+                long second = copy.update(data, split, data.length - split).digest();
+
+                Assert.assertEquals(first, second);
+                Assert.assertEquals(prefix.length(), split);
+                Assert.assertEquals(copy.reset().update(data).digest(), first);
+
+                return prefix.update(data, split, data.length - split).digest();
+            }
+        });
+    }
+
+    /**
+     * Tests exported states can be imported into another stream.
+     */
+    @Test
+    public void testExportedStatesCanBeImported() {
+        testVectors(new Hasher() {
+            @Override
+            public long hash(byte[] key, byte[] data) {
+                int split = data.length / 2 + 1;
+                if (split > data.length) {
+                    split = data.length;
+                }
+
+                long[] state = SipHasher.init(key)
+                    .update(data, 0, split)
+                    .exportState(new long[SipHasherStream.STATE_LENGTH]);
+
+                SipHasherStream stream = SipHasher.init(key).update((byte) 1).importState(state);
+
+                Assert.assertEquals(stream.length(), split);
+
+                return stream.update(data, split, data.length - split).digest();
+            }
+        });
+    }
+
+    /**
+     * Tests exported 128-bit states can be imported into another stream.
+     */
+    @Test
+    public void testExportedStatesCanBeImported128() {
+        testVectors128(new Hasher128() {
+            @Override
+            public void hash(byte[] key, byte[] data, long[] out) {
+                long[] state = SipHasher.init128(key)
+                    .update(data, 0, data.length / 2)
+                    .exportState(new long[SipHasherStream.STATE_LENGTH]);
+
+                SipHasher.init128(key)
+                    .importState(state)
+                    .update(data, data.length / 2, data.length - data.length / 2)
+                    .digest128(out);
+            }
+        });
+    }
+
+    /**
+     * Tests undersized state arrays are rejected on export.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidStateExport() {
+        SipHasher.init(new byte[16]).exportState(new long[5]);
+    }
+
+    /**
+     * Tests undersized state arrays are rejected on import.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidStateImport() {
+        SipHasher.init(new byte[16]).importState(new long[5]);
+    }
+
+    /**
+     * Tests corrupted states are rejected on import.
+     */
+    @Test
+    public void testExceptionOnCorruptedStateImport() {
+        long[] valid = SipHasher.init(new byte[16])
+            .update(new byte[] { 1, 2, 3 })
+            .exportState(new long[SipHasherStream.STATE_LENGTH]);
+
+        long[][] corrupted = new long[][] {
+            { valid[0], valid[1], valid[2], valid[3], valid[4], -1 },
+            { valid[0], valid[1], valid[2], valid[3], valid[4] | 1L << 24, 3 },
+            { valid[0], valid[1], valid[2], valid[3], 1, 8 }
+        };
+
+        SipHasher.init(new byte[16]).importState(valid);
+
+        for (long[] state : corrupted) {
+            try {
+                SipHasher.init(new byte[16]).importState(state);
+                Assert.fail("Expected an IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Tests digests can be taken without finalizing the stream.
+     */
+    @Test
+    public void testDigestsCanBeCheckpointed() {
+        byte[] key = new byte[16];
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        SipHasherStream stream = SipHasher.init(key);
+        SipHasherStream wide = SipHasher.init128(key);
+
+        for (int i = 0, chunk = 1; i < data.length; i += chunk++) {
+            int length = Math.min(chunk, data.length - i);
+            byte[] prefix = Arrays.copyOf(data, i + length);
+
+            stream.update(data, i, length);
+            wide.update(data, i, length);
+
+            long expected = SipHasher.hash(key, prefix);
+
+            Assert.assertEquals(stream.digest(), expected);
+            Assert.assertEquals(stream.digest(), expected);
+            Assert.assertEquals(wide.digest128(new long[2]), SipHasher.hash128(key, prefix, new long[2]));
+        }
+    }
 }
@@ -3,6 +3,15 @@ package io.whitfin.siphash;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
 /**
  * Test cases for the {@link SipHasher} class.
  *
@@ -31,6 +40,74 @@ public class SipHasherTest {
         0x6ca4ecb15c5f91e1L, 0x9f626da15c9625f3L, 0xe51b38608ef25f57L, 0x958a324ceb064572L
     };
 
+    // test vectors via https://github.com/veorq/SipHash/blob/master/vectors.h
+    private static final long[][] EXPECTED_128 = new long[][] {
+        { 0xe6a825ba047f81a3L, 0x930255c71472f66dL },
+        { 0x44af996bd8c187daL, 0x45fc229b11597634L },
+        { 0xc75da4a48d227781L, 0xe4ff0af6de8ba3fcL },
+        { 0x4ea967520cb6709cL, 0x51ed8529b0b6335fL },
+        { 0xaf8f9c2dc16481f8L, 0x7955cd7b7c6e0f7dL },
+        { 0x886f778059876813L, 0x27960e69077a5254L },
+        { 0x1386208b33caee14L, 0x5ea1d78f30a05e48L },
+        { 0x53c1dbd8beebf1a1L, 0x3982f01fa64ab8c0L },
+        { 0x61f55862baa9623bL, 0xb49714f364e2830fL },
+        { 0xabbad90a06994426L, 0xed716dbb028b7fc4L },
+        { 0x56691478c30d1100L, 0xbafbd0f3d34754c9L },
+        { 0x77666b3868c55101L, 0x18dce5816fdcb4a2L },
+        { 0x58f35e9066b226d6L, 0x25c13285f64d6382L },
+        { 0x108bc0e947e26998L, 0xf752b9c44f9329d0L },
+        { 0x9cded766aceffc31L, 0x024949e45f48c77eL },
+        { 0x11a8b03399e99354L, 0xd9c3cf970fec087eL },
+        { 0xbb54b067caa4e26eL, 0x77052385bf1533fdL },
+        { 0x98b88d73e8063d47L, 0x4077e47ac466c054L },
+        { 0x8548bf23e4e526a4L, 0x23f7aefe81a44d29L },
+        { 0xb0fa65cf31770178L, 0xb12e51528920d574L },
+        { 0x7390223f83fc259eL, 0xeb3938e8a544933eL },
+        { 0x215a52be5a498e56L, 0x121d073ecd14228aL },
+        { 0x9a6bd15245b5294aL, 0xae0aff8e52109c46L },
+        { 0xe0f5a9d5dd84d1c9L, 0x1c69bf9a9ae28ccfL },
+        { 0xd850bd78ae79b42dL, 0xad32618a178a2a88L },
+        { 0x7b445e2d045fce8eL, 0x6f8f8dcbeab95150L },
+        { 0xe807c3b3b4530b9cL, 0x661f147886e0ae7eL },
+        { 0xe4eaa669af48f2abL, 0x94eb9e122febd3bfL },
+        { 0x884b576816da6406L, 0xf4ae587302f335b9L },
+        { 0xe97d33bfc49d4baaL, 0xb76a7c463cfdd40cL },
+        { 0xde6baf1f477f5ceaL, 0x87226d68d4d71a2bL },
+        { 0xfcfa233218b03929L, 0x353dc4524fde2317L },
+        { 0x3efcea5eca56397cL, 0x68eb4665559d3e36L },
+        { 0x321cf0467107c677L, 0xcfffa94e5f9db6b6L },
+        { 0xdf7e84b86c98a637L, 0xde549b30f1f02509L },
+        { 0xf9a8a99de6f005a7L, 0xc88c3c922e1a2407L },
+        { 0x4648c4291f7dc43dL, 0x11674f90ed769e1eL },
+        { 0x1a0efce601bf620dL, 0x2b69d3c551473c0dL },
+        { 0x9e667cca8b46038cL, 0xb5e7be4b085efde4L },
+        { 0x9c2caf3bb95b8a52L, 0xd92bd2d0e5cc7344L },
+        { 0xad5dc9951e306adfL, 0xd83b91c6c80cae97L },
+        { 0x397f852c90891180L, 0xdbb6705e289135e7L },
+        { 0xbb31c2c96a3417e6L, 0x5b0ccacc34ae5036L },
+        { 0xaa21b7ef3734d927L, 0x89df5aecdc211840L },
+        { 0x785e9ced9d7d2389L, 0x4273cc66b1c9b1d8L },
+        { 0x657d5ebf91806d4aL, 0x4cb150a294fa8911L },
+        { 0x89aee75560f9330eL, 0x022949cf3d0efc3fL },
+        { 0xd1190b722b431ce6L, 0x1b1563dc4bd8c88eL },
+        { 0xcf82f749f5aee5f7L, 0x169b2608a6559037L },
+        { 0x4fa5b7d00f038d43L, 0x03641a20adf237a8L },
+        { 0xe304bf4feed390a5L, 0x3f4286f2270d7e24L },
+        { 0xc493fe72a1c1e25fL, 0x38f5f9ae7cd35cb1L },
+        { 0x6eb306bd5c32972cL, 0x7c013a8bd03d13b2L },
+        { 0x94ca6b7a2214c892L, 0x9ed32a009f65f09fL },
+        { 0x8c32d80b1150e8dcL, 0x871d91d64108d5fbL },
+        { 0x1279dac78449f167L, 0xda832592b52be348L },
+        { 0xe94ed572cff23819L, 0x362a1da96f16947eL },
+        { 0xfe49ed46961e4874L, 0x8e6904163024620fL },
+        { 0xd8d6a998dea5fc57L, 0x1d8a3d58d0386400L },
+        { 0xbe1cdcef1cdeec9fL, 0x595357d9743676d4L },
+        { 0x53f128eb000c04e3L, 0x40e772d8cb73ca66L },
+        { 0xfe1d836a9a009776L, 0x7a0f6793591ca9ccL },
+        { 0xa067f52123545358L, 0xbd5947f0a447d505L },
+        { 0x4a83502f77d15051L, 0x7cbd3f979a063e50L }
+    };
+
     /**
      * Tests constructor usage to suppress Jacoco.
      */
@@ -52,6 +129,47 @@ public class SipHasherTest {
         });
     }
 
+    /**
+     * Tests the unrolled kernels match the generic rounds implementation,
+     * for both arrays and every type of buffer.
+     */
+    @Test
+    public void testUnrolledRoundsMatchGeneric() {
+        byte[] key = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            key[i] = (byte) i;
+        }
+
+        long k0 = SipHasher.bytesToLong(key, 0);
+        long k1 = SipHasher.bytesToLong(key, 8);
+
+        int[][] rounds = new int[][] { { 2, 4 }, { 1, 3 }, { 3, 5 } };
+
+        for (int[] round : rounds) {
+            for (int i = 0; i < 64; i++) {
+                byte[] data = new byte[i];
+                for (int j = 0; j < i; j++) {
+                    data[j] = (byte) j;
+                }
+
+                long expected = SipHasher.hashGeneric(
+                    round[0], round[1],
+                    SipHasher.INITIAL_V0 ^ k0,
+                    SipHasher.INITIAL_V1 ^ k1,
+                    SipHasher.INITIAL_V2 ^ k0,
+                    SipHasher.INITIAL_V3 ^ k1,
+                    data, 0, data.length
+                );
+
+                Assert.assertEquals(SipHasher.hash(key, data, round[0], round[1]), expected);
+
+                for (ByteBuffer buffer : buffers(data)) {
+                    Assert.assertEquals(SipHasher.hash(key, buffer, round[0], round[1]), expected);
+                }
+            }
+        }
+    }
+
     /**
      * Tests conversion of hashes to hexidecimal.
      *
@@ -70,6 +188,125 @@ public class SipHasherTest {
         Assert.assertEquals(hex2, "011473413414323e");
     }
 
+    /**
+     * Tests all 128-bit vectors using the 0A hash implementation.
+     */
+    @Test
+    public void testVectorsForZeroAllocHash128() {
+        testVectors128(new Hasher128() {
+            @Override
+            public void hash(byte[] key, byte[] data, long[] out) {
+                SipHasher.hash128(key, data, out);
+            }
+        });
+    }
+
+    /**
+     * Tests invalid output arrays are rejected for 128-bit hashes.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidOutput() {
+        SipHasher.hash128(new byte[16], new byte[0], new long[1]);
+    }
+
+    /**
+     * Tests all vectors using the 0A buffer hash implementation.
+     */
+    @Test
+    public void testVectorsForZeroAllocBufferHash() {
+        testBufferVectors(new BufferHasher() {
+            @Override
+            public long hash(byte[] key, ByteBuffer data) {
+                int position = data.position();
+                long hash = SipHasher.hash(key, data);
+                Assert.assertEquals(data.position(), position);
+                return hash;
+            }
+        });
+    }
+
+    /**
+     * Tests all vectors using the 0A slice hash implementation.
+     */
+    @Test
+    public void testVectorsForZeroAllocSliceHash() {
+        testVectors(new Hasher() {
+            @Override
+            public long hash(byte[] key, byte[] data) {
+                return SipHasher.hash(key, pad(data), 3, data.length, 2, 4);
+            }
+        });
+    }
+
+    /**
+     * Tests out of bounds slices are rejected.
+     */
+    @Test
+    public void testExceptionOnInvalidSlice() {
+        byte[] key = new byte[16];
+        byte[] data = new byte[8];
+        int[][] slices = new int[][] { { -1, 4 }, { 0, -1 }, { 4, 5 }, { 9, 0 } };
+
+        for (int[] slice : slices) {
+            try {
+                SipHasher.hash(key, data, slice[0], slice[1], 2, 4);
+                Assert.fail("Expected an IndexOutOfBoundsException");
+            } catch (IndexOutOfBoundsException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Tests all vectors using the file hash implementation.
+     *
+     * Small windows are also used to make sure that hashes are consistent
+     * when a file is split across multiple mappings.
+     */
+    @Test
+    public void testVectorsForFileHash() {
+        testVectors(new Hasher() {
+            @Override
+            public long hash(byte[] key, byte[] data) {
+                try {
+                    Path path = Files.createTempFile("siphash", ".bin");
+                    try {
+                        Files.write(path, data);
+
+                        long hash = SipHasher.hashFile(key, path);
+                        for (int window : new int[] { 3, 8, 24 }) {
+                            SipHasherStream stream = SipHasher.init(key);
+                            Assert.assertEquals(SipHasher.hashFile(stream, path, window), hash);
+                        }
+                        return hash;
+                    } finally {
+                        Files.delete(path);
+                    }
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Tests wide loads match the byte-by-byte fallback at every offset.
+     */
+    @Test
+    public void testBytesToLongMatchesFallback() {
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 37 + 0x80);
+        }
+
+        for (int i = 0; i <= bytes.length - 8; i++) {
+            Assert.assertEquals(
+                SipHasher.bytesToLong(bytes, i),
+                SipHasher.bytesToLongFallback(bytes, i)
+            );
+        }
+    }
+
     /**
      * Tests invalid key exceptions are thrown.
      */
@@ -104,6 +341,178 @@ public class SipHasherTest {
         }
     }
 
+    /**
+     * Vector test implementation for 128-bit output hashing.
+     *
+     * @param hasher
+     *      the hasher implementation used to generate a hash.
+     */
+    void testVectors128(Hasher128 hasher) {
+        byte[] key = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            key[i] = (byte) i;
+        }
+
+        for (int i = 0; i < EXPECTED_128.length; i++) {
+            byte[] data = new byte[i];
+            for (int j = 0; j < i; j++) {
+                data[j] = (byte) j;
+            }
+
+            long[] actual = new long[2];
+            hasher.hash(key, data, actual);
+
+            Assert.assertEquals(actual, EXPECTED_128[i]);
+        }
+    }
+
+    /**
+     * Vector test implementation for buffer based hashing.
+     *
+     * Each vector is hashed from a heap buffer, a sliced heap buffer, a
+     * read-only buffer and direct buffers in both byte orders, with every
+     * result being required to match the expected vector.
+     *
+     * @param hasher
+     *      the hasher implementation used to generate a hash.
+     */
+    void testBufferVectors(final BufferHasher hasher) {
+        testVectors(new Hasher() {
+            @Override
+            public long hash(byte[] key, byte[] data) {
+                long hash = hasher.hash(key, ByteBuffer.wrap(data));
+                for (ByteBuffer buffer : buffers(data)) {
+                    Assert.assertEquals(hasher.hash(key, buffer), hash);
+                }
+                return hash;
+            }
+        });
+    }
+
+    /**
+     * Creates the sequential key used by the reference vectors.
+     *
+     * @return
+     *      a 16 byte key of the bytes 0 to 15.
+     */
+    static byte[] key() {
+        byte[] key = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            key[i] = (byte) i;
+        }
+        return key;
+    }
+
+    /**
+     * Creates an input over a serialized structure.
+     *
+     * @param bytes
+     *      the serialized form of a structure.
+     * @return
+     *      an input to read the structure from.
+     */
+    static DataInputStream input(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Copies data into a larger array, starting at index 3.
+     *
+     * @param data
+     *      the data to copy into the padded array.
+     * @return
+     *      an array with 3 bytes before and 4 bytes after the data.
+     */
+    static byte[] pad(byte[] data) {
+        byte[] padded = new byte[data.length + 7];
+        for (int i = 0; i < padded.length; i++) {
+            padded[i] = (byte) 0xff;
+        }
+        System.arraycopy(data, 0, padded, 3, data.length);
+        return padded;
+    }
+
+    /**
+     * Writes the characters of a string as little endian bytes.
+     *
+     * Unlike encoding as UTF-16LE, unpaired surrogates are written as-is.
+     *
+     * @param string
+     *      the string to write.
+     * @return
+     *      a byte array of twice the length of the string.
+     */
+    static byte[] chars(String string) {
+        byte[] bytes = new byte[string.length() * 2];
+        for (int i = 0; i < string.length(); i++) {
+            bytes[i * 2] = (byte) string.charAt(i);
+            bytes[i * 2 + 1] = (byte) (string.charAt(i) >>> 8);
+        }
+        return bytes;
+    }
+
+    /**
+     * Creates a set of strings covering each UTF-8 encoding width.
+     *
+     * Strings are drawn from ASCII, 2-byte, 3-byte and surrogate pair
+     * characters, as well as unpaired surrogates, at every length up to 64.
+     *
+     * @return
+     *      an array of generated strings.
+     */
+    static String[] strings() {
+        char[] alphabet = new char[] { 'a', 'Z', '0', '\u00e9', '\u07ff', '\u4e2d', '\uffff', '\ud83d', '\ude00' };
+        String[] strings = new String[130];
+        Random random = new Random(0);
+
+        for (int i = 0; i < 65; i++) {
+            StringBuilder ascii = new StringBuilder();
+            StringBuilder mixed = new StringBuilder();
+            for (int j = 0; j < i; j++) {
+                ascii.append((char) (32 + random.nextInt(95)));
+                if (random.nextInt(4) == 0) {
+                    mixed.append("\ud83d\ude00");
+                } else if (random.nextBoolean()) {
+                    mixed.append((char) (32 + random.nextInt(95)));
+                } else {
+                    mixed.append(alphabet[random.nextInt(alphabet.length)]);
+                }
+            }
+            strings[i * 2] = ascii.toString();
+            strings[i * 2 + 1] = mixed.toString();
+        }
+
+        return strings;
+    }
+
+    /**
+     * Creates a set of buffers of different types containing the input.
+     *
+     * @param data
+     *      the data to place inside each buffer.
+     * @return
+     *      an array of buffers with the data between position and limit.
+     */
+    static ByteBuffer[] buffers(byte[] data) {
+        byte[] padded = pad(data);
+
+        ByteBuffer little = ByteBuffer.allocateDirect(data.length);
+        little.order(ByteOrder.LITTLE_ENDIAN).put(data).flip();
+
+        ByteBuffer big = ByteBuffer.allocateDirect(data.length + 3);
+        big.position(3);
+        big.put(data).flip();
+        big.position(3);
+
+        return new ByteBuffer[] {
+            ByteBuffer.wrap(padded, 3, data.length),
+            ByteBuffer.wrap(padded, 3, data.length).slice(),
+            ByteBuffer.wrap(data).asReadOnlyBuffer(),
+            little,
+            big
+        };
+    }
+
     /**
      * Simple interface for use with {@link #testVectors(Hasher)}.
      */
@@ -121,4 +530,40 @@ public class SipHasherTest {
          */
         long hash(byte[] key, byte[] data);
     }
+
+    /**
+     * Simple interface for use with {@link #testBufferVectors(BufferHasher)}.
+     */
+    interface BufferHasher {
+
+        /**
+         * Given a key and input buffer, return a hash.
+         *
+         * @param key
+         *      the key to seed the hash with.
+         * @param data
+         *      the buffer containing the data being hashed.
+         * @return
+         *      a long representation of a hash.
+         */
+        long hash(byte[] key, ByteBuffer data);
+    }
+
+    /**
+     * Simple interface for use with {@link #testVectors128(Hasher128)}.
+     */
+    interface Hasher128 {
+
+        /**
+         * Given a key and input data, write a 128-bit hash.
+         *
+         * @param key
+         *      the key to seed the hash with.
+         * @param data
+         *      the data being hashed.
+         * @param out
+         *      the array to write the two halves of the hash into.
+         */
+        void hash(byte[] key, byte[] data, long[] out);
+    }
 }
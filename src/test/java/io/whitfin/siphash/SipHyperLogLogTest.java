@@ -0,0 +1,300 @@
+package io.whitfin.siphash;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import static io.whitfin.siphash.SipHasherTest.input;
+import static io.whitfin.siphash.SipHasherTest.key;
+
+/**
+ * Test cases for the {@link SipHyperLogLog} class.
+ */
+public class SipHyperLogLogTest {
+
+    /**
+     * Tests invalid key exceptions are thrown.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidKey() {
+        new SipHyperLogLog(new byte[0], 14);
+    }
+
+    /**
+     * Tests invalid precision exceptions are thrown.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidPrecision() {
+        new SipHyperLogLog(new byte[16], 19);
+    }
+
+    /**
+     * Tests estimates are accurate across sparse and dense forms.
+     */
+    @Test
+    public void testEstimatesAreAccurate() {
+        for (int precision : new int[] { 4, 10, 14 }) {
+            SipHyperLogLog sketch = new SipHyperLogLog(key(), precision);
+            double error = 1.04 / Math.sqrt(1 << precision);
+
+            Assert.assertEquals(sketch.cardinality(), 0);
+
+            long added = 0;
+            for (long target : new long[] { 1, 10, 100, 1000, 10000, 100000, 1000000 }) {
+                for (; added < target; added++) {
+                    sketch.add(added);
+                    sketch.add(added);
+                }
+
+                double estimate = sketch.cardinality();
+                double tolerance = Math.max(1, 4 * error * target);
+
+                Assert.assertEquals(estimate, target, tolerance, "Estimate at precision " + precision);
+            }
+
+            Assert.assertFalse(sketch.isSparse());
+        }
+    }
+
+    /**
+     * Tests buffered sparse entries produce the same sketch in any order.
+     */
+    @Test
+    public void testSparseEntriesAreOrderIndependent() throws IOException {
+        Random random = new Random(0);
+
+        for (int count : new int[] { 10, 500, 3000, 3100, 10000 }) {
+            long[] elements = new long[count * 2];
+            for (int i = 0; i < elements.length; i++) {
+                elements[i] = i % count;
+            }
+
+            SipHyperLogLog ordered = new SipHyperLogLog(key(), 14);
+            for (long element : elements) {
+                ordered.add(element);
+            }
+
+            for (int i = elements.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                long element = elements[i];
+                elements[i] = elements[j];
+                elements[j] = element;
+            }
+
+            SipHyperLogLog shuffled = new SipHyperLogLog(key(), 14);
+            for (long element : elements) {
+                shuffled.add(element);
+            }
+
+            Assert.assertEquals(output(shuffled), output(ordered));
+            Assert.assertEquals(shuffled.cardinality(), ordered.cardinality());
+        }
+    }
+
+    /**
+     * Tests small cardinalities are exact while sparse.
+     */
+    @Test
+    public void testSparseEstimatesAreExact() {
+        SipHyperLogLog sketch = new SipHyperLogLog(key(), 14);
+
+        for (int i = 1; i <= 1000; i++) {
+            sketch.add("element-" + i);
+            Assert.assertEquals(sketch.cardinality(), i, 1);
+        }
+
+        Assert.assertTrue(sketch.isSparse());
+    }
+
+    /**
+     * Tests every element type hashes as its bytes.
+     */
+    @Test
+    public void testElementsMatchBytes() throws IOException {
+        Charset utf8 = Charset.forName("UTF-8");
+
+        SipHyperLogLog bytes = new SipHyperLogLog(key(), 8);
+        SipHyperLogLog typed = new SipHyperLogLog(key(), 8);
+
+        for (int i = 0; i < 200; i++) {
+            bytes.add(("element-" + i).getBytes(utf8));
+            bytes.add(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, i).array());
+
+            typed.add("element-" + i);
+            typed.add((long) i);
+        }
+
+        Assert.assertEquals(output(typed), output(bytes));
+    }
+
+    /**
+     * Tests merged sketches are identical to a sketch of the union.
+     */
+    @Test
+    public void testMergedSketchesMatchUnion() throws IOException {
+        int[][] sizes = new int[][] { { 10, 20 }, { 10, 5000 }, { 5000, 10 }, { 5000, 5000 } };
+
+        for (int[] size : sizes) {
+            SipHyperLogLog left = new SipHyperLogLog(key(), 12);
+            SipHyperLogLog right = new SipHyperLogLog(key(), 12);
+            SipHyperLogLog union = new SipHyperLogLog(key(), 12);
+
+            for (int i = 0; i < size[0]; i++) {
+                left.add("left-" + i);
+                union.add("left-" + i);
+            }
+
+            for (int i = 0; i < size[1]; i++) {
+                right.add("right-" + i);
+                union.add("right-" + i);
+            }
+
+            left.merge(right);
+
+            Assert.assertEquals(left.isSparse(), union.isSparse());
+            Assert.assertEquals(left.cardinality(), union.cardinality());
+            Assert.assertEquals(output(left), output(union));
+        }
+    }
+
+    /**
+     * Tests sketches using different keys cannot be merged.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnMergeWithDifferentKey() {
+        new SipHyperLogLog(key(), 12).merge(new SipHyperLogLog(new byte[16], 12));
+    }
+
+    /**
+     * Tests sketches using different precisions cannot be merged.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnMergeWithDifferentPrecision() {
+        new SipHyperLogLog(key(), 12).merge(new SipHyperLogLog(key(), 14));
+    }
+
+    /**
+     * Tests sketches can be serialized and read back in both forms.
+     */
+    @Test
+    public void testSerializedSketchRoundTrip() throws IOException {
+        for (int count : new int[] { 0, 100, 100000 }) {
+            SipHyperLogLog sketch = new SipHyperLogLog(key(), 12);
+            for (int i = 0; i < count; i++) {
+                sketch.add((long) i);
+            }
+
+            byte[] bytes = output(sketch);
+            SipHyperLogLog copy = SipHyperLogLog.readFrom(key(), input(bytes));
+
+            Assert.assertEquals(copy.keyId(), sketch.keyId());
+            Assert.assertEquals(copy.precision(), sketch.precision());
+            Assert.assertEquals(copy.isSparse(), sketch.isSparse());
+            Assert.assertEquals(copy.cardinality(), sketch.cardinality());
+            Assert.assertEquals(output(copy), bytes);
+        }
+    }
+
+    /**
+     * Tests sparse sketches serialize compactly.
+     */
+    @Test
+    public void testSparseSketchesAreCompact() throws IOException {
+        SipHyperLogLog sketch = new SipHyperLogLog(key(), 14);
+        for (int i = 0; i < 100; i++) {
+            sketch.add((long) i);
+        }
+        Assert.assertTrue(sketch.isSparse());
+        Assert.assertTrue(output(sketch).length < (1 << 14) * 6 / 8 / 20);
+    }
+
+    /**
+     * Tests serialized sketches cannot be read with a different key.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnReadWithDifferentKey() throws IOException {
+        SipHyperLogLog.readFrom(new byte[16], input(output(new SipHyperLogLog(key(), 12))));
+    }
+
+    /**
+     * Tests malformed sparse entries are rejected when read.
+     */
+    @Test
+    public void testExceptionOnReadWithMalformedEntries() throws IOException {
+        long[][] malformed = new long[][] {
+            { 1 << 6 | 1, 0 },              // duplicate entry
+            { 2 << 6 | 1, -(1 << 6) },      // decreasing index
+            { 1 << 6 | 1, 1 },              // repeated index, higher rank
+            { 1 << 6 },                     // rank of zero
+            { 1 << 6 | 41 },                // rank above the sparse maximum
+            { 1 << 6 | 1, 0xffffffffL },    // delta overflowing the index
+            { 1L << 31 | 1 }                // index beyond the sparse precision
+        };
+
+        for (long[] entries : malformed) {
+            SipHyperLogLog sketch = new SipHyperLogLog(key(), 12);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            out.writeByte(1);
+            out.writeLong(sketch.keyId());
+            out.writeByte(sketch.precision());
+            out.writeBoolean(false);
+            out.writeInt(entries.length);
+
+            for (long delta : entries) {
+                long value = delta & 0xffffffffL;
+                while ((value & ~0x7fL) != 0) {
+                    out.writeByte((int) (value & 0x7f | 0x80));
+                    value >>>= 7;
+                }
+                out.writeByte((int) value);
+            }
+
+            try {
+                SipHyperLogLog.readFrom(key(), input(bytes.toByteArray()));
+                Assert.fail("Expected an IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Tests dense registers with invalid ranks are rejected when read.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnReadWithMalformedRegisters() throws IOException {
+        SipHyperLogLog sketch = new SipHyperLogLog(key(), 4);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add((long) i);
+        }
+
+        byte[] bytes = output(sketch);
+        bytes[11] = (byte) 0xff;
+        bytes[12] = (byte) 0xff;
+
+        SipHyperLogLog.readFrom(key(), input(bytes));
+    }
+
+    /**
+     * Serializes a sketch into an array.
+     *
+     * @param sketch
+     *      the sketch to serialize.
+     * @return
+     *      the serialized form of the sketch.
+     */
+    private static byte[] output(SipHyperLogLog sketch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.writeTo(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+}
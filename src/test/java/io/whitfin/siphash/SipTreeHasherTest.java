@@ -0,0 +1,240 @@
+package io.whitfin.siphash;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static io.whitfin.siphash.SipHasherTest.key;
+
+/**
+ * Test cases for the {@link SipTreeHasher} class.
+ */
+public class SipTreeHasherTest {
+
+    /**
+     * Tests invalid key exceptions are thrown.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidKey() {
+        SipHasher.tree(new byte[0]);
+    }
+
+    /**
+     * Tests invalid chunk size exceptions are thrown.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnInvalidChunkSize() {
+        SipHasher.tree(new byte[16], 0);
+    }
+
+    /**
+     * Tests the default chunk size is used when not provided.
+     */
+    @Test
+    public void testDefaultChunkSize() {
+        Assert.assertEquals(SipHasher.tree(new byte[16]).chunkSize(), SipTreeHasher.DEFAULT_CHUNK_SIZE);
+        Assert.assertEquals(SipHasher.tree(new byte[16], 64).chunkSize(), 64);
+    }
+
+    /**
+     * Tests tree hashes match the documented construction.
+     */
+    @Test
+    public void testTreeMatchesConstruction() {
+        byte[] key = key();
+        Random random = new Random(0);
+        int[][] rounds = new int[][] { { 1, 3 }, { 2, 4 }, { 3, 5 } };
+
+        for (int chunkSize : new int[] { 1, 7, 16 }) {
+            SipTreeHasher tree = SipHasher.tree(key, chunkSize);
+
+            for (int length = 0; length <= 64; length++) {
+                byte[] data = new byte[length];
+                random.nextBytes(data);
+
+                Assert.assertEquals(tree.hash(data), construct(key, data, chunkSize, 2, 4));
+
+                for (int[] round : rounds) {
+                    Assert.assertEquals(
+                        tree.hash(data, round[0], round[1]),
+                        construct(key, data, chunkSize, round[0], round[1])
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests tree hashes are stable regardless of the pool used.
+     */
+    @Test
+    public void testTreeIsStableAcrossPools() {
+        byte[] key = key();
+        byte[] data = new byte[100000];
+        new Random(0).nextBytes(data);
+
+        long expected = SipHasher.tree(key, 1024).hash(data);
+
+        for (int parallelism : new int[] { 1, 2, 7 }) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                Assert.assertEquals(SipHasher.tree(key, 1024, pool).hash(data), expected);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Tests tree hashes of files match tree hashes of arrays.
+     */
+    @Test
+    public void testTreeFileMatchesArray() throws IOException {
+        byte[] key = key();
+        Random random = new Random(0);
+
+        for (int length : new int[] { 0, 1, 15, 16, 17, 100, 1000 }) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+
+            Path path = Files.createTempFile("siphash", ".bin");
+            try {
+                Files.write(path, data);
+
+                SipTreeHasher tree = SipHasher.tree(key, 16);
+                long expected = tree.hash(data);
+
+                Assert.assertEquals(tree.hashFile(path), expected);
+                Assert.assertEquals(tree.hashFile(path, 1, 3), tree.hash(data, 1, 3));
+
+                for (int window : new int[] { 16, 48, 160 }) {
+                    Assert.assertEquals(tree.hashFile(path, 2, 4, window), expected);
+                }
+            } finally {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Tests inputs with too many chunks to fit in the root are rejected.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExceptionOnTooManyChunks() throws IOException {
+        Path path = Files.createTempFile("siphash", ".bin");
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(1L << 28);
+            SipHasher.tree(key(), 1).hashFile(path);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Tests tree hashes depend on the chunk size.
+     */
+    @Test
+    public void testTreeDependsOnChunkSize() {
+        byte[] key = key();
+        byte[] data = new byte[64];
+
+        Assert.assertNotEquals(SipHasher.tree(key, 16).hash(data), SipHasher.tree(key, 32).hash(data));
+        Assert.assertNotEquals(SipHasher.tree(key, 64).hash(data), SipHasher.tree(key, 128).hash(data));
+    }
+
+    /**
+     * Tests tree hashes are separated from plain hashes and from leaves.
+     */
+    @Test
+    public void testTreeIsDomainSeparated() {
+        byte[] key = key();
+        byte[] data = new byte[40];
+        new Random(0).nextBytes(data);
+
+        SipTreeHasher tree = SipHasher.tree(key, 16);
+        ByteBuffer message = ByteBuffer.allocate(8 * 5).order(ByteOrder.LITTLE_ENDIAN);
+
+        message.putLong(16);
+        for (int i = 0; i < data.length; i += 16) {
+            message.putLong(SipHasher.hash(key, Arrays.copyOfRange(data, i, Math.min(data.length, i + 16))));
+        }
+        message.putLong(data.length);
+
+        Assert.assertNotEquals(tree.hash(data), SipHasher.hash(key, message.array()));
+        Assert.assertNotEquals(SipHasher.tree(key, 64).hash(data), SipHasher.hash(key, data));
+
+        byte[] empty = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN).putLong(64).putLong(0).array();
+        Assert.assertNotEquals(SipHasher.tree(key, 64).hash(new byte[0]), SipHasher.hash(key, empty));
+    }
+
+    /**
+     * Computes a tree hash directly from its definition.
+     *
+     * @param key
+     *      the key to hash with.
+     * @param data
+     *      the data to hash.
+     * @param chunkSize
+     *      the size of each chunk.
+     * @param c
+     *      the rounds of C compression.
+     * @param d
+     *      the rounds of D compression.
+     * @return
+     *      the expected tree hash.
+     */
+    private static long construct(byte[] key, byte[] data, int chunkSize, int c, int d) {
+        int chunks = (data.length + chunkSize - 1) / chunkSize;
+        ByteBuffer message = ByteBuffer
+            .allocate(8 * (chunks + 2))
+            .order(ByteOrder.LITTLE_ENDIAN);
+
+        message.putLong(chunkSize);
+        for (int i = 0; i < data.length; i += chunkSize) {
+            byte[] chunk = Arrays.copyOfRange(data, i, Math.min(data.length, i + chunkSize));
+            message.putLong(flagged(key, chunk, c, d, 0x01));
+        }
+        message.putLong(data.length);
+
+        return flagged(key, message.array(), c, d, 0x02);
+    }
+
+    /**
+     * Computes a SipHash with a flag applied to v1 after keying.
+     *
+     * @param key
+     *      the key to hash with.
+     * @param data
+     *      the data to hash.
+     * @param c
+     *      the rounds of C compression.
+     * @param d
+     *      the rounds of D compression.
+     * @param flag
+     *      the flag to apply to v1.
+     * @return
+     *      the flagged hash.
+     */
+    private static long flagged(byte[] key, byte[] data, int c, int d, long flag) {
+        long k0 = SipHasher.bytesToLong(key, 0);
+        long k1 = SipHasher.bytesToLong(key, 8);
+
+        return SipHasher.hashGeneric(
+            c, d,
+            SipHasher.INITIAL_V0 ^ k0,
+            SipHasher.INITIAL_V1 ^ k1 ^ flag,
+            SipHasher.INITIAL_V2 ^ k0,
+            SipHasher.INITIAL_V3 ^ k1,
+            data, 0, data.length
+        );
+    }
+}